@@ -0,0 +1,197 @@
+package com.link2lease.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Bounded read-through cache in the manner of Caffeine's LoadingCache: entries are evicted least recently
+ * used once the cache is full, and expire a fixed time after they were loaded. Keys are spread over
+ * segments, each an access-ordered map behind its own lock, so concurrent readers rarely wait on each other.
+ * <p>
+ * Loads run outside the lock. Each segment counts its invalidations as a generation, and a load only stores
+ * its value if the generation did not move while it ran, so a value read before a write committed is never cached
+ * after that write's invalidation. Null values are returned but not cached.
+ */
+public class ReadThroughCache<K, V> {
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long expireAfterWriteNanos;
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final Timer loads;
+
+    public ReadThroughCache(String name, int maximumSize, Duration expireAfterWrite, MeterRegistry meterRegistry) {
+        this(name, maximumSize, expireAfterWrite, meterRegistry, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    ReadThroughCache(String name, int maximumSize, Duration expireAfterWrite, MeterRegistry meterRegistry, LongSupplier clock) {
+        if (maximumSize < SEGMENTS) {
+            throw new IllegalArgumentException("Cache " + name + " must hold at least " + SEGMENTS + " entries");
+        }
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(maximumSize / SEGMENTS, sizeEvictions);
+        }
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.clock = clock;
+
+        FunctionCounter.builder("link2lease.cache.gets", hits, LongAdder::sum)
+                .tag("cache", name).tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.cache.gets", misses, LongAdder::sum)
+                .tag("cache", name).tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("link2lease.cache.hit-ratio", this, ReadThroughCache::hitRatio)
+                .description("Share of lookups answered from the cache since startup")
+                .tag("cache", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.cache.evictions", sizeEvictions, LongAdder::sum)
+                .description("Entries dropped to make room or because they expired")
+                .tag("cache", name).tag("cause", "size")
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.cache.evictions", expirations, LongAdder::sum)
+                .description("Entries dropped to make room or because they expired")
+                .tag("cache", name).tag("cause", "expired")
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.cache.invalidations", invalidations, LongAdder::sum)
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("link2lease.cache.size", this, ReadThroughCache::size)
+                .tag("cache", name)
+                .register(meterRegistry);
+        this.loads = Timer.builder("link2lease.cache.loads")
+                .description("Time to load a missing entry")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached value for the key, or the loader's value, which is cached unless it is null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        long generation;
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.loadedAt < expireAfterWriteNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                segment.remove(key);
+                expirations.increment();
+            }
+            generation = segment.generation;
+        }
+
+        misses.increment();
+        long started = clock.getAsLong();
+        V value = loader.apply(key);
+        long loadedAt = clock.getAsLong();
+        loads.record(loadedAt - started, TimeUnit.NANOSECONDS);
+        if (value != null) {
+            synchronized (segment) {
+                if (segment.generation == generation) {
+                    segment.put(key, new Entry<>(value, loadedAt));
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drop the key, and keep any load of it already running from caching what it read
+     */
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.generation++;
+            segment.remove(key);
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * Drop every entry whose value matches, as invalidate does for each of their keys
+     */
+    public void invalidateIf(Predicate<? super V> matches) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                Iterator<Entry<V>> entries = segment.values().iterator();
+                while (entries.hasNext()) {
+                    if (matches.test(entries.next().value)) {
+                        entries.remove();
+                        invalidations.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    double hitRatio() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ hash >>> 16) & (SEGMENTS - 1)];
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private final int capacity;
+        private final LongAdder evictions;
+        // Bumped by every invalidation, guarded by the segment's lock
+        private long generation;
+
+        private Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
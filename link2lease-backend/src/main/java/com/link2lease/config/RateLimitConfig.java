@@ -0,0 +1,37 @@
+package com.link2lease.config;
+
+import com.link2lease.ratelimit.RateLimitInterceptor;
+import com.link2lease.ratelimit.RateLimitProperties;
+import com.link2lease.ratelimit.RateLimiter;
+import com.link2lease.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig implements WebMvcConfigurer {
+    private final RateLimitProperties properties;
+    private final RateLimiter rateLimiter;
+
+    public RateLimitConfig(RateLimitProperties properties, UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        // The role is read once per tracked user, not per request
+        this.rateLimiter = new RateLimiter(properties, userRepository::findRoleById, meterRegistry);
+    }
+
+    @Bean
+    public RateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.isEnabled()) {
+            registry.addInterceptor(new RateLimitInterceptor(rateLimiter)).addPathPatterns("/api/**");
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package com.link2lease.controller;
 
+import com.link2lease.dto.BroadcastMessageDto;
 import com.link2lease.dto.ConversationDto;
+import com.link2lease.dto.CursorPageDto;
 import com.link2lease.dto.MessageCreateDto;
 import com.link2lease.dto.MessageDto;
 import com.link2lease.dto.MessageStatsDto;
+import com.link2lease.dto.MessageSyncDto;
+import com.link2lease.dto.MessageThreadDto;
+import com.link2lease.ratelimit.RateLimited;
 import com.link2lease.service.MessageService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -21,11 +29,13 @@ import java.util.List;
 public class MessageController {
 
     private final MessageService messageService;
+    private final NdjsonStreamer ndjsonStreamer;
 
     /**
      * Send a new message
      */
     @PostMapping("/{senderId}")
+    @RateLimited(endpoint = "send-message", userIdVariable = "senderId")
     public ResponseEntity<MessageDto> sendMessage(
             @PathVariable Long senderId,
             @Valid @RequestBody MessageCreateDto messageCreateDto) {
@@ -35,42 +45,165 @@ public class MessageController {
         return ResponseEntity.status(HttpStatus.CREATED).body(sentMessage);
     }
 
+    /**
+     * Send one message to many recipients, or to every active tenant of a property
+     */
+    @PostMapping("/{senderId}/broadcast")
+    @RateLimited(endpoint = "send-message", userIdVariable = "senderId")
+    public ResponseEntity<List<MessageDto>> broadcastMessage(
+            @PathVariable Long senderId,
+            @Valid @RequestBody BroadcastMessageDto broadcastDto) {
+
+        log.info("User {} broadcasting message", senderId);
+        List<MessageDto> sentMessages = messageService.broadcastMessage(senderId, broadcastDto);
+        return ResponseEntity.status(HttpStatus.CREATED).body(sentMessages);
+    }
+
+    /**
+     * Stream new messages and read receipts as Server-Sent Events instead of polling
+     */
+    @GetMapping(value = "/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessages(@PathVariable Long userId) {
+        return messageService.openMessageStream(userId);
+    }
+
     /**
      * Get received messages
      */
     @GetMapping("/{userId}/received")
-    public ResponseEntity<List<MessageDto>> getReceivedMessages(@PathVariable Long userId) {
-        List<MessageDto> messages = messageService.getReceivedMessages(userId);
+    public ResponseEntity<CursorPageDto<MessageDto>> getReceivedMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        CursorPageDto<MessageDto> messages = messageService.getReceivedMessages(userId, cursor, limit);
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Stream received messages from the cursor on as NDJSON
+     */
+    @GetMapping(value = "/{userId}/received", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamReceivedMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response) {
+        ndjsonStreamer.write(response, () -> messageService.streamReceivedMessages(userId, cursor));
+    }
+
     /**
      * Get sent messages
      */
     @GetMapping("/{userId}/sent")
-    public ResponseEntity<List<MessageDto>> getSentMessages(@PathVariable Long userId) {
-        List<MessageDto> messages = messageService.getSentMessages(userId);
+    public ResponseEntity<CursorPageDto<MessageDto>> getSentMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        CursorPageDto<MessageDto> messages = messageService.getSentMessages(userId, cursor, limit);
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Stream sent messages from the cursor on as NDJSON
+     */
+    @GetMapping(value = "/{userId}/sent", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamSentMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response) {
+        ndjsonStreamer.write(response, () -> messageService.streamSentMessages(userId, cursor));
+    }
+
     /**
      * Get all messages (sent and received)
      */
     @GetMapping("/{userId}/all")
-    public ResponseEntity<List<MessageDto>> getAllMessages(@PathVariable Long userId) {
-        List<MessageDto> messages = messageService.getAllUserMessages(userId);
+    public ResponseEntity<CursorPageDto<MessageDto>> getAllMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        CursorPageDto<MessageDto> messages = messageService.getAllUserMessages(userId, cursor, limit);
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Stream all messages from the cursor on as NDJSON
+     */
+    @GetMapping(value = "/{userId}/all", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamAllMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response) {
+        ndjsonStreamer.write(response, () -> messageService.streamAllUserMessages(userId, cursor));
+    }
+
     /**
      * Get unread messages
      */
     @GetMapping("/{userId}/unread")
-    public ResponseEntity<List<MessageDto>> getUnreadMessages(@PathVariable Long userId) {
-        List<MessageDto> messages = messageService.getUnreadMessages(userId);
+    public ResponseEntity<CursorPageDto<MessageDto>> getUnreadMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        CursorPageDto<MessageDto> messages = messageService.getUnreadMessages(userId, cursor, limit);
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Stream unread messages from the cursor on as NDJSON
+     */
+    @GetMapping(value = "/{userId}/unread", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamUnreadMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response) {
+        ndjsonStreamer.write(response, () -> messageService.streamUnreadMessages(userId, cursor));
+    }
+
+    /**
+     * Get archived messages, newest first
+     */
+    @GetMapping("/{userId}/archive")
+    public ResponseEntity<CursorPageDto<MessageDto>> getArchivedMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        CursorPageDto<MessageDto> messages = messageService.getArchivedMessages(userId, cursor, limit);
+        return ResponseEntity.ok(messages);
+    }
+
+    /**
+     * Stream archived messages from the cursor on as NDJSON
+     */
+    @GetMapping(value = "/{userId}/archive", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamArchivedMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response) {
+        ndjsonStreamer.write(response, () -> messageService.streamArchivedMessages(userId, cursor));
+    }
+
+    /**
+     * Get messages created, read or deleted since the sync cursor
+     */
+    @GetMapping("/{userId}/sync")
+    public ResponseEntity<MessageSyncDto> syncMessages(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "200") int limit) {
+
+        MessageSyncDto changes = messageService.syncMessages(userId, cursor, limit);
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * Get unread message count for badges
+     */
+    @GetMapping("/{userId}/unread/count")
+    public ResponseEntity<Long> getUnreadCount(@PathVariable Long userId) {
+        return ResponseEntity.ok(messageService.getUnreadCount(userId));
+    }
+
     /**
      * Get all conversations
      */
@@ -92,6 +225,17 @@ public class MessageController {
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Stream a conversation as NDJSON
+     */
+    @GetMapping(value = "/{userId}/conversation/{otherUserId}", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamConversation(
+            @PathVariable Long userId,
+            @PathVariable Long otherUserId,
+            HttpServletResponse response) {
+        ndjsonStreamer.write(response, () -> messageService.streamConversation(userId, otherUserId));
+    }
+
     /**
      * Get specific message by ID
      */
@@ -105,14 +249,30 @@ public class MessageController {
     }
 
     /**
-     * Search messages
+     * Get the full reply thread a message belongs to, nested from its root
+     */
+    @GetMapping("/{userId}/message/{messageId}/thread")
+    public ResponseEntity<MessageThreadDto> getMessageThread(
+            @PathVariable Long userId,
+            @PathVariable Long messageId,
+            @RequestParam(defaultValue = "50") int maxDepth) {
+
+        MessageThreadDto thread = messageService.getMessageThread(messageId, userId, maxDepth);
+        return ResponseEntity.ok(thread);
+    }
+
+    /**
+     * Search messages, best match first. Supports "quoted phrases" and prefix* terms.
      */
     @GetMapping("/{userId}/search")
-    public ResponseEntity<List<MessageDto>> searchMessages(
+    @RateLimited(endpoint = "search")
+    public ResponseEntity<CursorPageDto<MessageDto>> searchMessages(
             @PathVariable Long userId,
-            @RequestParam String searchTerm) {
+            @RequestParam String searchTerm,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
 
-        List<MessageDto> messages = messageService.searchMessages(userId, searchTerm);
+        CursorPageDto<MessageDto> messages = messageService.searchMessages(userId, searchTerm, cursor, limit);
         return ResponseEntity.ok(messages);
     }
 
@@ -126,27 +286,40 @@ public class MessageController {
     }
 
     /**
-     * Mark messages as read
+     * Mark messages as read; returns how many were still unread
      */
     @PutMapping("/{userId}/mark-read")
-    public ResponseEntity<Void> markMessagesAsRead(
+    public ResponseEntity<Integer> markMessagesAsRead(
             @PathVariable Long userId,
             @RequestBody List<Long> messageIds) {
 
-        messageService.markMessagesAsRead(userId, messageIds);
-        return ResponseEntity.ok().build();
+        int updated = messageService.markMessagesAsRead(userId, messageIds);
+        return ResponseEntity.ok(updated);
     }
 
     /**
-     * Mark all messages from a user as read
+     * Mark everything received at or before a cursor or message as read; returns how many were still unread
+     */
+    @PutMapping("/{userId}/mark-read/up-to")
+    public ResponseEntity<Integer> markMessagesAsReadUpTo(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long messageId) {
+
+        int updated = messageService.markMessagesAsReadUpTo(userId, cursor, messageId);
+        return ResponseEntity.ok(updated);
+    }
+
+    /**
+     * Mark all messages from a user as read; returns how many were still unread
      */
     @PutMapping("/{userId}/mark-all-read/{senderId}")
-    public ResponseEntity<Void> markAllMessagesFromUserAsRead(
+    public ResponseEntity<Integer> markAllMessagesFromUserAsRead(
             @PathVariable Long userId,
             @PathVariable Long senderId) {
 
-        messageService.markAllMessagesFromUserAsRead(userId, senderId);
-        return ResponseEntity.ok().build();
+        int updated = messageService.markAllMessagesFromUserAsRead(userId, senderId);
+        return ResponseEntity.ok(updated);
     }
 
     /**
@@ -170,6 +343,14 @@ public class MessageController {
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Stream messages about a property as NDJSON
+     */
+    @GetMapping(value = "/property/{propertyId}", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamPropertyMessages(@PathVariable Long propertyId, HttpServletResponse response) {
+        ndjsonStreamer.write(response, () -> messageService.streamPropertyMessages(propertyId));
+    }
+
     /**
      * Exception handler for this controller
      */
@@ -0,0 +1,85 @@
+package com.link2lease.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes list endpoints requested with Accept: application/x-ndjson, one JSON document per line.
+ * Rows come from a repository Stream, a forward-only cursor read a fetch size at a time, and are
+ * serialized straight into the response, so memory stays flat however long the list is.
+ * The read-only transaction the cursor needs stays open until the last row is written.
+ * When the client disconnects the next write fails, which closes the stream and with it the query.
+ */
+@Component
+@Slf4j
+public class NdjsonStreamer {
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    // Rows between flushes to the client, which is also when streamed entities are cleared from the session
+    private static final int CHUNK_ROWS = 500;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter objectWriter;
+    private final EntityManager entityManager;
+
+    public NdjsonStreamer(PlatformTransactionManager transactionManager, ObjectMapper objectMapper, EntityManager entityManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Lines are flushed a chunk at a time rather than after every row
+        this.objectWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Write every row the supplier's stream yields. The supplier runs before anything is written,
+     * so validation errors it throws still reach the controller's exception handling as usual.
+     */
+    public void write(HttpServletResponse response, Supplier<? extends Stream<?>> rows) {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> writeRows(response, rows));
+        } catch (UncheckedIOException e) {
+            log.debug("Client went away during an NDJSON response: {}", e.getCause().getMessage());
+        }
+    }
+
+    private void writeRows(HttpServletResponse response, Supplier<? extends Stream<?>> rows) {
+        try (Stream<?> stream = rows.get()) {
+            response.setContentType(APPLICATION_NDJSON);
+            JsonGenerator generator = objectWriter.createGenerator(response.getOutputStream());
+
+            long written = 0;
+            for (Iterator<?> iterator = stream.iterator(); iterator.hasNext(); ) {
+                objectWriter.writeValue(generator, iterator.next());
+                if (++written % CHUNK_ROWS == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize an NDJSON row", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.link2lease.controller;
 
+import com.link2lease.dto.CursorPageDto;
 import com.link2lease.dto.PropertyDto;
+import com.link2lease.enums.PropertySort;
+import com.link2lease.enums.SearchConsistency;
 import com.link2lease.model.Property;
+import com.link2lease.search.GeoFilter;
+import com.link2lease.search.TextField;
 import com.link2lease.service.PropertyService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,22 +16,39 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/properties")
 @CrossOrigin(origins = "*")
 public class PropertyController {
     private final PropertyService propertyService;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @Autowired
-    public PropertyController(PropertyService propertyService){
+    public PropertyController(PropertyService propertyService, NdjsonStreamer ndjsonStreamer){
         this.propertyService = propertyService;
+        this.ndjsonStreamer = ndjsonStreamer;
     }
 
-    // Get all properties (DTOs)
+    // Get all properties (DTOs), a keyset page at a time; includeTotal adds the overall count
     @GetMapping
-    public ResponseEntity<List<PropertyDto>> getAllProperties(){
-        return ResponseEntity.ok(propertyService.getAllProperties());
+    public ResponseEntity<?> getAllProperties(@RequestParam(defaultValue = "NEWEST") PropertySort sort,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "20") int limit,
+                                              @RequestParam(defaultValue = "false") boolean includeTotal){
+        try {
+            return ResponseEntity.ok(propertyService.getAllProperties(sort, cursor, limit, includeTotal));
+        } catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Stream all properties as NDJSON
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamAllProperties(HttpServletResponse response){
+        ndjsonStreamer.write(response, propertyService::streamAllProperties);
     }
 
     // Get property by ID (DTO) - FIXED METHOD NAME
@@ -72,10 +95,29 @@ public class PropertyController {
         return ResponseEntity.ok(propertyService.getPropertiesByLandlordId(landlordId));
     }
 
-    // Get available properties
+    // Stream properties by landlord ID as NDJSON
+    @GetMapping(value = "/landlord/{landlordId}", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamPropertiesByLandlord(@PathVariable Long landlordId, HttpServletResponse response){
+        ndjsonStreamer.write(response, () -> propertyService.streamPropertiesByLandlordId(landlordId));
+    }
+
+    // Get available properties, paged like the full list
     @GetMapping("/available")
-    public ResponseEntity<List<PropertyDto>> getAvailableProperties(){
-        return ResponseEntity.ok(propertyService.getAvailableProperties());
+    public ResponseEntity<?> getAvailableProperties(@RequestParam(defaultValue = "NEWEST") PropertySort sort,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "20") int limit,
+                                                    @RequestParam(defaultValue = "false") boolean includeTotal){
+        try {
+            return ResponseEntity.ok(propertyService.getAvailableProperties(sort, cursor, limit, includeTotal));
+        } catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Stream available properties as NDJSON
+    @GetMapping(value = "/available", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamAvailableProperties(HttpServletResponse response){
+        ndjsonStreamer.write(response, () -> propertyService.streamAvailablePropertiesFromDate(LocalDate.now()));
     }
 
     // Get available properties from specific date
@@ -89,24 +131,47 @@ public class PropertyController {
         }
     }
 
-    // Search properties with filters
+    // Stream available properties from specific date as NDJSON
+    @GetMapping(value = "/available/{date}", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<?> streamAvailablePropertiesFromDate(@PathVariable String date, HttpServletResponse response){
+        LocalDate availableDate;
+        try {
+            availableDate = LocalDate.parse(date);
+        } catch(Exception e) {
+            return ResponseEntity.badRequest().body("Error: Invalid date format. Use YYYY-MM-DD");
+        }
+        return streamOrBadRequest(response, () -> propertyService.streamAvailablePropertiesFromDate(availableDate));
+    }
+
+    // Search properties with filters, a page at a time, served from the in-memory search index; consistency=STRONG reads Postgres instead.
+    // facets=true adds the match counts per rent bucket, available-from month and landlord across all pages
     @GetMapping("/search")
     public ResponseEntity<?> searchProperties(@RequestParam(required = false) String title,
                                               @RequestParam(required = false) String address,
                                               @RequestParam(required = false) Double minRent,
                                               @RequestParam(required = false) Double maxRent,
-                                              @RequestParam(required = false) String availableFrom){
+                                              @RequestParam(required = false) String availableFrom,
+                                              @RequestParam(required = false) Long landlordId,
+                                              @RequestParam(defaultValue = "EVENTUAL") SearchConsistency consistency,
+                                              @RequestParam(defaultValue = "NEWEST") PropertySort sort,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "20") int limit,
+                                              @RequestParam(defaultValue = "false") boolean includeTotal,
+                                              @RequestParam(defaultValue = "false") boolean facets){
         try {
             LocalDate availableDate = null;
             if(availableFrom != null && !availableFrom.trim().isEmpty()){
                 availableDate = LocalDate.parse(availableFrom);
             }
 
-            List<PropertyDto> properties = propertyService.searchPropertiesWithFilters(
+            CursorPageDto<PropertyDto> properties = propertyService.searchPropertiesWithFilters(
                     title, address,
                     minRent != null ? minRent : 0,
                     maxRent != null ? maxRent : Double.MAX_VALUE,
-                    availableDate
+                    availableDate,
+                    landlordId,
+                    consistency,
+                    sort, cursor, limit, includeTotal, facets
             );
             return ResponseEntity.ok(properties);
         } catch(IllegalArgumentException e){
@@ -114,16 +179,87 @@ public class PropertyController {
         }
     }
 
+    // Properties within radiusKm of (lat, lng) and/or inside a south/west/north/east bounding box, nearest first,
+    // a page at a time; takes the same filters as /search
+    @GetMapping("/near")
+    public ResponseEntity<?> searchNear(@RequestParam(required = false) Double lat,
+                                        @RequestParam(required = false) Double lng,
+                                        @RequestParam(required = false) Double radiusKm,
+                                        @RequestParam(required = false) Double south,
+                                        @RequestParam(required = false) Double west,
+                                        @RequestParam(required = false) Double north,
+                                        @RequestParam(required = false) Double east,
+                                        @RequestParam(required = false) String title,
+                                        @RequestParam(required = false) String address,
+                                        @RequestParam(required = false) Double minRent,
+                                        @RequestParam(required = false) Double maxRent,
+                                        @RequestParam(required = false) String availableFrom,
+                                        @RequestParam(required = false) Long landlordId,
+                                        @RequestParam(defaultValue = "EVENTUAL") SearchConsistency consistency,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "20") int limit,
+                                        @RequestParam(defaultValue = "false") boolean includeTotal){
+        try {
+            LocalDate availableDate = null;
+            if(availableFrom != null && !availableFrom.trim().isEmpty()){
+                availableDate = LocalDate.parse(availableFrom);
+            }
+
+            CursorPageDto<PropertyDto> properties = propertyService.searchNear(
+                    GeoFilter.of(lat, lng, radiusKm, south, west, north, east),
+                    title, address,
+                    minRent != null ? minRent : 0,
+                    maxRent != null ? maxRent : Double.MAX_VALUE,
+                    availableDate,
+                    landlordId,
+                    consistency,
+                    cursor, limit, includeTotal
+            );
+            return ResponseEntity.ok(properties);
+        } catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Stream search results as NDJSON
+    @GetMapping(value = "/search", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<?> streamSearchProperties(@RequestParam(required = false) String title,
+                                                    @RequestParam(required = false) String address,
+                                                    @RequestParam(required = false) Double minRent,
+                                                    @RequestParam(required = false) Double maxRent,
+                                                    @RequestParam(required = false) String availableFrom,
+                                                    @RequestParam(required = false) Long landlordId,
+                                                    HttpServletResponse response){
+        LocalDate availableDate = null;
+        try {
+            if(availableFrom != null && !availableFrom.trim().isEmpty()){
+                availableDate = LocalDate.parse(availableFrom);
+            }
+        } catch(Exception e) {
+            return ResponseEntity.badRequest().body("Error: Invalid date format. Use YYYY-MM-DD");
+        }
+        LocalDate date = availableDate;
+        return streamOrBadRequest(response, () -> propertyService.streamPropertiesWithFilters(
+                title, address,
+                minRent != null ? minRent : 0,
+                maxRent != null ? maxRent : Double.MAX_VALUE,
+                date, landlordId));
+    }
+
     // Get properties by rent range
     @GetMapping("/rent")
     public ResponseEntity<?> getPropertiesByRentRange(@RequestParam(required = false) Double minRent,
-                                                      @RequestParam(required = false) Double maxRent){
+                                                      @RequestParam(required = false) Double maxRent,
+                                                      @RequestParam(defaultValue = "NEWEST") PropertySort sort,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") int limit,
+                                                      @RequestParam(defaultValue = "false") boolean includeTotal){
         try {
-            List<PropertyDto> properties;
+            CursorPageDto<PropertyDto> properties;
             if(minRent != null && maxRent != null){
-                properties = propertyService.getPropertiesByRentRange(minRent, maxRent);
+                properties = propertyService.getPropertiesByRentRange(minRent, maxRent, sort, cursor, limit, includeTotal);
             } else if(maxRent != null){
-                properties = propertyService.getPropertiesByMaxRent(maxRent);
+                properties = propertyService.getPropertiesByMaxRent(maxRent, sort, cursor, limit, includeTotal);
             } else {
                 return ResponseEntity.badRequest().body("Error: Please provide at least maxRent parameter");
             }
@@ -134,21 +270,105 @@ public class PropertyController {
         }
     }
 
+    // Stream properties by rent range as NDJSON
+    @GetMapping(value = "/rent", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<?> streamPropertiesByRentRange(@RequestParam(required = false) Double minRent,
+                                                         @RequestParam(required = false) Double maxRent,
+                                                         HttpServletResponse response){
+        if(minRent != null && maxRent != null){
+            return streamOrBadRequest(response, () -> propertyService.streamPropertiesByRentRange(minRent, maxRent));
+        } else if(maxRent != null){
+            return streamOrBadRequest(response, () -> propertyService.streamPropertiesByMaxRent(maxRent));
+        }
+        return ResponseEntity.badRequest().body("Error: Please provide at least maxRent parameter");
+    }
+
     // Search by address
     @GetMapping("/search/address")
-    public ResponseEntity<?> searchByAddress(@RequestParam String address){
+    public ResponseEntity<?> searchByAddress(@RequestParam String address,
+                                             @RequestParam(defaultValue = "NEWEST") PropertySort sort,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "20") int limit,
+                                             @RequestParam(defaultValue = "false") boolean includeTotal){
         try {
-            return ResponseEntity.ok(propertyService.searchPropertiesByAddress(address));
+            return ResponseEntity.ok(propertyService.searchPropertiesByAddress(address, sort, cursor, limit, includeTotal));
         } catch(IllegalArgumentException e){
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
 
+    // Stream search by address as NDJSON
+    @GetMapping(value = "/search/address", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<?> streamSearchByAddress(@RequestParam String address, HttpServletResponse response){
+        return streamOrBadRequest(response, () -> propertyService.streamPropertiesByAddress(address));
+    }
+
     // Search by title
     @GetMapping("/search/title")
-    public ResponseEntity<?> searchByTitle(@RequestParam String title){
+    public ResponseEntity<?> searchByTitle(@RequestParam String title,
+                                           @RequestParam(defaultValue = "NEWEST") PropertySort sort,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "20") int limit,
+                                           @RequestParam(defaultValue = "false") boolean includeTotal){
+        try {
+            return ResponseEntity.ok(propertyService.searchPropertiesByTitle(title, sort, cursor, limit, includeTotal));
+        } catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Stream search by title as NDJSON
+    @GetMapping(value = "/search/title", produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public ResponseEntity<?> streamSearchByTitle(@RequestParam String title, HttpServletResponse response){
+        return streamOrBadRequest(response, () -> propertyService.streamPropertiesByTitle(title));
+    }
+
+    // Fuzzy search by address, tolerating typos: the best matches with their similarity, most similar first
+    @GetMapping("/search/address/fuzzy")
+    public ResponseEntity<?> fuzzySearchByAddress(@RequestParam String address,
+                                                  @RequestParam(defaultValue = "0.5") double minSimilarity,
+                                                  @RequestParam(defaultValue = "EVENTUAL") SearchConsistency consistency,
+                                                  @RequestParam(defaultValue = "20") int limit){
+        try {
+            return ResponseEntity.ok(propertyService.searchSimilar(TextField.ADDRESS, address, minSimilarity, consistency, limit));
+        } catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Fuzzy search by title
+    @GetMapping("/search/title/fuzzy")
+    public ResponseEntity<?> fuzzySearchByTitle(@RequestParam String title,
+                                                @RequestParam(defaultValue = "0.5") double minSimilarity,
+                                                @RequestParam(defaultValue = "EVENTUAL") SearchConsistency consistency,
+                                                @RequestParam(defaultValue = "20") int limit){
+        try {
+            return ResponseEntity.ok(propertyService.searchSimilar(TextField.TITLE, title, minSimilarity, consistency, limit));
+        } catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Typeahead: words of titles or addresses completing the last word typed, most available first
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam String prefix,
+                                     @RequestParam(defaultValue = "ADDRESS") TextField field,
+                                     @RequestParam(defaultValue = "10") int limit){
+        try {
+            return ResponseEntity.ok(propertyService.suggest(field, prefix, limit));
+        } catch(IllegalArgumentException e){
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        } catch(IllegalStateException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error: " + e.getMessage());
+        }
+    }
+
+    // Validation errors surface before the first row, so they still get a plain 400.
+    // Once the rows are written there is nothing left for Spring MVC to render, hence null.
+    private ResponseEntity<?> streamOrBadRequest(HttpServletResponse response, Supplier<Stream<PropertyDto>> rows){
         try {
-            return ResponseEntity.ok(propertyService.searchPropertiesByTitle(title));
+            ndjsonStreamer.write(response, rows);
+            return null;
         } catch(IllegalArgumentException e){
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
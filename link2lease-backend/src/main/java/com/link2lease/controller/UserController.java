@@ -2,6 +2,7 @@ package com.link2lease.controller;
 
 import com.link2lease.model.User;
 import com.link2lease.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -11,14 +12,19 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final NdjsonStreamer ndjsonStreamer;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, NdjsonStreamer ndjsonStreamer) {
         this.userService = userService;
+        this.ndjsonStreamer = ndjsonStreamer;
     }
 
     @GetMapping
     public List<User> getUsers() { return userService.getUsers(); }
 
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON)
+    public void streamUsers(HttpServletResponse response) { ndjsonStreamer.write(response, userService::streamUsers); }
+
     @PostMapping(path = "/registration")
     public void registerUser(@RequestBody User user){ userService.addNewUser(user);}
 
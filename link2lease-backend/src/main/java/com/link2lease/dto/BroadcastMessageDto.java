@@ -0,0 +1,30 @@
+package com.link2lease.dto;
+
+import com.link2lease.enums.MessageType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastMessageDto {
+    // Explicit recipients; when empty, every active tenant of the property receives the message
+    private List<Long> recipientIds;
+
+    private Long propertyId;
+    private Long leaseId;
+
+    @NotBlank(message = "Message Content is required")
+    @Size(max = 1000, message = "Message content cannot exceed 1000 characters")
+    private String content;
+
+    @Size(max = 200, message = "Subject cannot exceed 200 characters")
+    private String subject;
+
+    private MessageType messageType = MessageType.GENERAL;
+}
@@ -1,5 +1,6 @@
 package com.link2lease.dto;
 
+import com.link2lease.enums.MessageType;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,4 +17,22 @@ public class ConversationDto {
     private MessageDto latestMessage;
     private Long unreadCount;
     private LocalDateTime lastActivity;
+
+    // Used by the JPQL constructor projection in ConversationThreadRepository.findConversationsForUser
+    public ConversationDto(Long otherUserId, String otherUserName, String otherUserEmail,
+                           Long messageId, Long senderId, String senderName, String senderEmail,
+                           Long recipientId, String recipientName, String recipientEmail,
+                           Long propertyId, String propertyTitle, Long leaseId,
+                           String content, String subject, MessageType messageType, Boolean isRead,
+                           LocalDateTime sentAt, LocalDateTime readAt, Long parentMessageId,
+                           Long unreadCount) {
+        this.otherUserId = otherUserId;
+        this.otherUserName = otherUserName;
+        this.otherUserEmail = otherUserEmail;
+        this.latestMessage = new MessageDto(messageId, senderId, senderName, senderEmail,
+                recipientId, recipientName, recipientEmail, propertyId, propertyTitle, leaseId,
+                content, subject, messageType, isRead, sentAt, readAt, parentMessageId);
+        this.unreadCount = unreadCount;
+        this.lastActivity = sentAt;
+    }
 }
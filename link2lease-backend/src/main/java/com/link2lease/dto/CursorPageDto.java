@@ -0,0 +1,33 @@
+package com.link2lease.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDto<T> {
+    private List<T> items;
+    // Opaque token for the next page, null when there are no more results
+    private String nextCursor;
+    private boolean hasMore;
+    // Matches across all pages; only counted when the caller asks, and left out of the JSON otherwise
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+    // Match counts per value of each facet across all pages, keyed by facet name; only on searches that ask
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, List<FacetCountDto>> facets;
+
+    public CursorPageDto(List<T> items, String nextCursor, boolean hasMore) {
+        this(items, nextCursor, hasMore, null);
+    }
+
+    public CursorPageDto(List<T> items, String nextCursor, boolean hasMore, Long total) {
+        this(items, nextCursor, hasMore, total, null);
+    }
+}
@@ -0,0 +1,14 @@
+package com.link2lease.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDto {
+    // Rent bucket like "1000-1500" or "3000+", month like "2026-05", or landlord id
+    private String value;
+    private Integer count;
+}
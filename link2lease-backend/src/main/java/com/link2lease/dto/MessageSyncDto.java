@@ -0,0 +1,21 @@
+package com.link2lease.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSyncDto {
+    // Current state of every message created or read since the cursor
+    private List<MessageDto> messages;
+    private List<Long> deletedMessageIds;
+    // Pass back on the next sync
+    private String nextCursor;
+    private boolean hasMore;
+    // The cursor is older than the retained change log; reload everything, then sync from nextCursor
+    private boolean resetRequired;
+}
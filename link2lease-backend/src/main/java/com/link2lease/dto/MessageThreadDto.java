@@ -0,0 +1,15 @@
+package com.link2lease.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageThreadDto {
+    private ThreadNodeDto root;
+    private int messageCount;
+    // True when replies were left out because the thread exceeded the depth or size limit
+    private boolean truncated;
+}
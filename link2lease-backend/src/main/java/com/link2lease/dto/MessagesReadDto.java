@@ -0,0 +1,21 @@
+package com.link2lease.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagesReadDto {
+    private Long readerId;
+    // Set when every message from one sender was marked read
+    private Long senderId;
+    // Set when specific messages were marked read
+    private List<Long> messageIds;
+    private Integer count;
+    private LocalDateTime readAt;
+}
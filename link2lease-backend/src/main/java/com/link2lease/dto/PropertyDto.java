@@ -1,5 +1,6 @@
 package com.link2lease.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.link2lease.model.Property;
 
 import java.time.LocalDate;
@@ -11,6 +12,15 @@ public class PropertyDto {
     private String address;
     private double rentAmount;
     private LocalDate availableFrom;
+    private Double latitude;
+    private Double longitude;
+    // Only set on results of a near search
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double distanceKm;
+    // Only set on results of a fuzzy search, from 0 to 1
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double similarity;
+    private Long landlordId;
     private String landlordName;
     private String landlordEmail;
 
@@ -24,8 +34,11 @@ public class PropertyDto {
         this.address = property.getAddress();
         this.rentAmount = property.getRentAmount();
         this.availableFrom = property.getAvailableFrom();
+        this.latitude = property.getLatitude();
+        this.longitude = property.getLongitude();
 
         if(property.getLandlord() != null){
+            this.landlordId = property.getLandlord().getId();
             this.landlordName = property.getLandlord().getFullName();
             this.landlordEmail = property.getLandlord().getEmail();
         }
@@ -38,6 +51,11 @@ public class PropertyDto {
     public String getAddress() { return address; }
     public double getRentAmount() { return rentAmount; }
     public LocalDate getAvailableFrom() { return availableFrom; }
+    public Double getLatitude() { return latitude; }
+    public Double getLongitude() { return longitude; }
+    public Double getDistanceKm() { return distanceKm; }
+    public Double getSimilarity() { return similarity; }
+    public Long getLandlordId() { return landlordId; }
     public String getLandlordName() { return landlordName; }
     public String getLandlordEmail() { return landlordEmail; }
 
@@ -48,6 +66,11 @@ public class PropertyDto {
     public void setAddress(String address) { this.address = address; }
     public void setRentAmount(double rentAmount) { this.rentAmount = rentAmount; }
     public void setAvailableFrom(LocalDate availableFrom) { this.availableFrom = availableFrom; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+    public void setDistanceKm(Double distanceKm) { this.distanceKm = distanceKm; }
+    public void setSimilarity(Double similarity) { this.similarity = similarity; }
+    public void setLandlordId(Long landlordId) { this.landlordId = landlordId; }
     public void setLandlordName(String landlordName) { this.landlordName = landlordName; }
     public void setLandlordEmail(String landlordEmail) { this.landlordEmail = landlordEmail; }
 
@@ -0,0 +1,15 @@
+package com.link2lease.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDto {
+    private String word;
+    // Properties with this word that are available today, and all properties with it
+    private Integer availableCount;
+    private Integer totalCount;
+}
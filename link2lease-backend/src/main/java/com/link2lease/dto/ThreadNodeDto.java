@@ -0,0 +1,19 @@
+package com.link2lease.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThreadNodeDto {
+    private MessageDto message;
+    // Distance from the thread root, which is at depth 0
+    private int depth;
+    // Direct replies, oldest first
+    private List<ThreadNodeDto> replies = new ArrayList<>();
+}
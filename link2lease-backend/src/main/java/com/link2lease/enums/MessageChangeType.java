@@ -0,0 +1,7 @@
+package com.link2lease.enums;
+
+public enum MessageChangeType {
+    CREATED,
+    READ,
+    DELETED
+}
@@ -0,0 +1,23 @@
+package com.link2lease.enums;
+
+/**
+ * Orders for paged property lists. Each order ends with the property id, so a page position
+ * is one (sort key, id) pair and the next page starts strictly after it.
+ * NEWEST sorts by id alone, newest listing first.
+ */
+public enum PropertySort {
+    NEWEST(true),
+    RENT_ASC(false),
+    RENT_DESC(true),
+    AVAILABLE_FROM(false);
+
+    private final boolean descending;
+
+    PropertySort(boolean descending) {
+        this.descending = descending;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+}
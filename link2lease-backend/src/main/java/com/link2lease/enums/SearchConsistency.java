@@ -0,0 +1,11 @@
+package com.link2lease.enums;
+
+/**
+ * How fresh property search results must be.
+ * EVENTUAL reads the in-memory index, which trails writes by the event pipeline's delay;
+ * STRONG queries Postgres and sees every committed write.
+ */
+public enum SearchConsistency {
+    EVENTUAL,
+    STRONG
+}
@@ -0,0 +1,8 @@
+package com.link2lease.event;
+
+/**
+ * Something that happened to a message, lease or property, published once its transaction has committed.
+ * Events carry DTOs and ids only, never managed entities, since consumers run on their own threads.
+ */
+public interface DomainEvent {
+}
@@ -0,0 +1,174 @@
+package com.link2lease.event;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process pipeline that hands committed domain events to every DomainEventConsumer off the request thread.
+ * Events go into one bounded RingBuffer, in the style of the LMAX Disruptor, and each consumer drains it
+ * in batches on its own thread. Publishing never blocks: when the slowest consumer is a full buffer
+ * behind, the event is dropped and counted, so consumers must tolerate gaps (counters reconcile,
+ * clients resync). On shutdown the consumers finish whatever was published before the bus stopped.
+ */
+@Component
+@Slf4j
+public class DomainEventBus implements SmartLifecycle {
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final RingBuffer<DomainEvent> ringBuffer;
+    private final List<Worker> workers = new ArrayList<>();
+    private final int maxBatch;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running;
+
+    public DomainEventBus(List<DomainEventConsumer> consumers,
+                          MeterRegistry meterRegistry,
+                          @Value("${link2lease.events.buffer-size:8192}") int bufferSize,
+                          @Value("${link2lease.events.max-batch:256}") int maxBatch) {
+        this.ringBuffer = new RingBuffer<>(bufferSize, consumers.size());
+        this.maxBatch = maxBatch;
+
+        for (int i = 0; i < consumers.size(); i++) {
+            Worker worker = new Worker(i, consumers.get(i));
+            workers.add(worker);
+            Gauge.builder("link2lease.events.backlog", ringBuffer, buffer -> buffer.backlog(worker.index))
+                    .description("Events published but not yet processed by the consumer")
+                    .tag("consumer", worker.name)
+                    .register(meterRegistry);
+            FunctionCounter.builder("link2lease.events.consumed", worker.consumed, LongAdder::sum)
+                    .tag("consumer", worker.name)
+                    .register(meterRegistry);
+            FunctionCounter.builder("link2lease.events.failures", worker.failures, LongAdder::sum)
+                    .description("Event batches the consumer threw on")
+                    .tag("consumer", worker.name)
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("link2lease.events.published", published, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.events.dropped", dropped, LongAdder::sum)
+                .description("Events dropped because the buffer was full or the bus was stopped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publish the event once the current transaction has committed, or right away when there is none
+     */
+    public void publishAfterCommit(DomainEvent event) {
+        TransactionCallbacks.afterCommit(() -> publish(event));
+    }
+
+    /**
+     * Hand the event to the consumers. Never blocks the caller.
+     */
+    public void publish(DomainEvent event) {
+        if (!running || !ringBuffer.offer(event)) {
+            dropped.increment();
+            log.debug("Dropped {}", event.getClass().getSimpleName());
+            return;
+        }
+        published.increment();
+        for (Worker worker : workers) {
+            if (worker.parked) {
+                LockSupport.unpark(worker.thread);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (Worker worker : workers) {
+            worker.thread = Thread.ofPlatform().name("domain-events-" + worker.name).daemon().start(worker);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+            try {
+                worker.thread.join(Math.max(deadline - System.currentTimeMillis(), 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (worker.thread.isAlive()) {
+                log.error("Consumer {} still had {} events when the application stopped",
+                        worker.name, ringBuffer.backlog(worker.index));
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stops after ReadReceiptBuffer (phase 0), so the events of its final flush are still delivered
+    @Override
+    public int getPhase() {
+        return -100;
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final DomainEventConsumer consumer;
+        private final String name;
+        private final LongAdder consumed = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private volatile Thread thread;
+        private volatile boolean parked;
+
+        private Worker(int index, DomainEventConsumer consumer) {
+            this.index = index;
+            this.consumer = consumer;
+            this.name = ClassUtils.getUserClass(consumer).getSimpleName();
+        }
+
+        @Override
+        public void run() {
+            List<DomainEvent> batch = new ArrayList<>(maxBatch);
+            while (true) {
+                long sequence = ringBuffer.poll(index, batch, maxBatch);
+                if (batch.isEmpty()) {
+                    if (!running && ringBuffer.backlog(index) == 0) {
+                        return;
+                    }
+                    // Publishers unpark us after publishing; the timeout covers a wake-up that raced the flag
+                    parked = true;
+                    if (!ringBuffer.hasAvailable(index)) {
+                        LockSupport.parkNanos(MAX_PARK_NANOS);
+                    }
+                    parked = false;
+                    continue;
+                }
+
+                try {
+                    consumer.onEvents(batch);
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    log.error("Consumer {} failed on a batch of {} events", name, batch.size(), e);
+                }
+                ringBuffer.release(index, sequence);
+                consumed.add(batch.size());
+                batch.clear();
+            }
+        }
+    }
+}
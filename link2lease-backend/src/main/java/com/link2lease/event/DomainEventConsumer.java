@@ -0,0 +1,14 @@
+package com.link2lease.event;
+
+import java.util.List;
+
+/**
+ * Receives every published event on a dedicated thread, in publication order.
+ * Events arrive in batches of whatever accumulated since the last call, so a consumer
+ * can apply them together. The list is reused once the call returns, so copy anything kept from it.
+ * Consumers are picked up as Spring beans by DomainEventBus.
+ */
+public interface DomainEventConsumer {
+
+    void onEvents(List<DomainEvent> events);
+}
@@ -0,0 +1,6 @@
+package com.link2lease.event;
+
+import com.link2lease.dto.LeaseDto;
+
+public record LeaseApplied(LeaseDto lease) implements DomainEvent {
+}
@@ -0,0 +1,4 @@
+package com.link2lease.event;
+
+public record MessageDeleted(Long messageId, Long senderId, Long recipientId, boolean wasUnread) implements DomainEvent {
+}
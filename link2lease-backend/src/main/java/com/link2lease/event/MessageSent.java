@@ -0,0 +1,9 @@
+package com.link2lease.event;
+
+import com.link2lease.dto.MessageDto;
+
+import java.util.List;
+
+// One event per send, or per broadcast with one message for each recipient
+public record MessageSent(List<MessageDto> messages) implements DomainEvent {
+}
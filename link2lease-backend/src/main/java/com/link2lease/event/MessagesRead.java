@@ -0,0 +1,9 @@
+package com.link2lease.event;
+
+import com.link2lease.dto.MessagesReadDto;
+
+import java.util.List;
+
+// senderIds are the senders of the messages that changed
+public record MessagesRead(MessagesReadDto receipt, List<Long> senderIds) implements DomainEvent {
+}
@@ -0,0 +1,4 @@
+package com.link2lease.event;
+
+public record PropertyDeleted(Long propertyId) implements DomainEvent {
+}
@@ -0,0 +1,6 @@
+package com.link2lease.event;
+
+import com.link2lease.dto.PropertyDto;
+
+public record PropertyUpdated(PropertyDto property) implements DomainEvent {
+}
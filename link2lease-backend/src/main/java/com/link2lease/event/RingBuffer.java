@@ -0,0 +1,100 @@
+package com.link2lease.event;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer ring buffer that a fixed set of consumers each read in full, at their own pace.
+ * Producers claim a sequence with a CAS and never wait: when the slowest consumer is a whole lap
+ * behind, offer fails instead. A slot becomes readable when its published sequence matches,
+ * so consumers need no lock either.
+ */
+final class RingBuffer<E> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    // Sequence last published into each slot
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // Last sequence each consumer has finished with
+    private final AtomicLong[] consumed;
+
+    RingBuffer(int minCapacity, int consumers) {
+        if (minCapacity < 2) {
+            throw new IllegalArgumentException("Ring buffer capacity must be at least 2");
+        }
+        this.capacity = 1 << (32 - Integer.numberOfLeadingZeros(minCapacity - 1));
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.consumed = new AtomicLong[consumers];
+        for (int i = 0; i < consumers; i++) {
+            consumed[i] = new AtomicLong(-1);
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Append an element, or return false without waiting if the buffer is full
+     */
+    boolean offer(E element) {
+        long sequence;
+        do {
+            long current = claimed.get();
+            sequence = current + 1;
+            // The slot still holds the element from one lap ago until every consumer is past it
+            if (sequence - capacity > slowestConsumer()) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence - 1, sequence));
+
+        int index = (int) sequence & mask;
+        slots.set(index, element);
+        published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * Copy up to maxBatch published elements the consumer has not seen yet into batch.
+     * Returns the sequence to release once the batch is processed.
+     */
+    long poll(int consumer, List<E> batch, int maxBatch) {
+        long next = consumed[consumer].get() + 1;
+        while (batch.size() < maxBatch && published.get((int) next & mask) == next) {
+            batch.add(slots.get((int) next & mask));
+            next++;
+        }
+        return next - 1;
+    }
+
+    boolean hasAvailable(int consumer) {
+        long next = consumed[consumer].get() + 1;
+        return published.get((int) next & mask) == next;
+    }
+
+    // Lets producers reuse the slots up to and including sequence
+    void release(int consumer, long sequence) {
+        consumed[consumer].set(sequence);
+    }
+
+    // Elements claimed but not yet released by the consumer
+    long backlog(int consumer) {
+        return claimed.get() - consumed[consumer].get();
+    }
+
+    private long slowestConsumer() {
+        long slowest = Long.MAX_VALUE;
+        for (AtomicLong sequence : consumed) {
+            slowest = Math.min(slowest, sequence.get());
+        }
+        return slowest;
+    }
+}
@@ -0,0 +1,67 @@
+package com.link2lease.model;
+
+import com.link2lease.enums.MessageType;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a message that aged out of the messages table.
+ * Rows are moved here by MessageArchiveService and keep their original id; they are read only.
+ */
+@Entity
+@Table(name = "messages_archive",
+        indexes = {
+                @Index(name = "idx_messages_archive_sender_sent", columnList = "sender_id, sent_at, id"),
+                @Index(name = "idx_messages_archive_recipient_sent", columnList = "recipient_id, sent_at, id")
+        })
+@Data
+@NoArgsConstructor
+public class ArchivedMessage {
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "sender_id", nullable = false)
+    private User sender;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "recipient_id", nullable = false)
+    private User recipient;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "property_id")
+    private Property property;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "lease_id")
+    private Lease lease;
+
+    @Column(nullable = false, length = 1000)
+    private String content;
+
+    @Column(name = "subject", length = 200)
+    private String subject;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "message_type")
+    private MessageType messageType;
+
+    @Column(name = "is_read")
+    private Boolean isRead;
+
+    @Column(name = "sent_at", nullable = false)
+    private LocalDateTime sentAt;
+
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    // Plain column, the parent may live in either table
+    @Column(name = "parent_message_id")
+    private Long parentMessageId;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,58 @@
+package com.link2lease.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model for the conversations list, one row per unordered pair of users.
+ * The pair is stored with the lower user id first so both directions map to the same row.
+ * Maintained by ConversationThreadService inside the message write transactions.
+ */
+@Entity
+@Table(name = "conversation_threads",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversation_threads_pair", columnNames = {"user_low_id", "user_high_id"}),
+        indexes = {
+                @Index(name = "idx_conversation_threads_low_activity", columnList = "user_low_id, last_activity"),
+                @Index(name = "idx_conversation_threads_high_activity", columnList = "user_high_id, last_activity")
+        })
+@Data
+@NoArgsConstructor
+public class ConversationThread {
+    @Id
+    @SequenceGenerator(
+            name = "conversation_thread_sequence",
+            sequenceName = "conversation_thread_sequence",
+            allocationSize = 50
+    )
+    @GeneratedValue(
+            strategy = GenerationType.SEQUENCE,
+            generator = "conversation_thread_sequence"
+    )
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_low_id", nullable = false)
+    private User userLow;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_high_id", nullable = false)
+    private User userHigh;
+
+    // Plain column rather than a foreign key so the thread row never blocks deleting a message
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_activity", nullable = false)
+    private LocalDateTime lastActivity;
+
+    // Unread messages addressed to userLow
+    @Column(name = "unread_for_low", nullable = false)
+    private Long unreadForLow = 0L;
+
+    // Unread messages addressed to userHigh
+    @Column(name = "unread_for_high", nullable = false)
+    private Long unreadForHigh = 0L;
+}
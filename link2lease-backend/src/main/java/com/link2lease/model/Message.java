@@ -17,13 +17,36 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+// One index per MessagRepository access pattern; MessageRepositoryQueryPlanTest fails if a query stops using them.
+// Trailing (sent_at, id) columns let keyset pages read in index order without a sort.
+@Table(name = "messages",
+        indexes = {
+                @Index(name = "idx_messages_sender_sent", columnList = "sender_id, sent_at, id"),
+                @Index(name = "idx_messages_recipient_sent", columnList = "recipient_id, sent_at, id"),
+                @Index(name = "idx_messages_recipient_unread", columnList = "recipient_id, is_read, sent_at, id"),
+                @Index(name = "idx_messages_recipient_type", columnList = "recipient_id, message_type, sent_at"),
+                // Both directions of a conversation are two range scans on this index
+                @Index(name = "idx_messages_pair_sent", columnList = "sender_id, recipient_id, sent_at, id"),
+                @Index(name = "idx_messages_property_sent", columnList = "property_id, sent_at"),
+                @Index(name = "idx_messages_lease_sent", columnList = "lease_id, sent_at"),
+                @Index(name = "idx_messages_parent", columnList = "parent_message_id, sent_at"),
+                @Index(name = "idx_messages_sent_at", columnList = "sent_at")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Message {
+    // Sequence ids (pre-allocated in blocks of 50) let Hibernate batch inserts, which IDENTITY prevents
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenceGenerator(
+            name = "message_sequence",
+            sequenceName = "message_sequence",
+            allocationSize = 50
+    )
+    @GeneratedValue(
+            strategy = GenerationType.SEQUENCE,
+            generator = "message_sequence"
+    )
     private Long id;
 
     @NotNull
@@ -0,0 +1,51 @@
+package com.link2lease.model;
+
+import com.link2lease.enums.MessageChangeType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry in a user's message change log, read back by the delta-sync endpoint.
+ * changeSeq is gapless and increasing per user, so a client cursor is simply the last changeSeq it has seen.
+ */
+@Entity
+@Table(name = "message_changes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_message_changes_user_seq", columnNames = {"user_id", "change_seq"}),
+        indexes = @Index(name = "idx_message_changes_changed_at", columnList = "changed_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageChange {
+    @Id
+    @SequenceGenerator(
+            name = "message_change_sequence",
+            sequenceName = "message_change_sequence",
+            allocationSize = 50
+    )
+    @GeneratedValue(
+            strategy = GenerationType.SEQUENCE,
+            generator = "message_change_sequence"
+    )
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq;
+
+    // Plain column rather than a foreign key so tombstones outlive the message
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false)
+    private MessageChangeType changeType;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
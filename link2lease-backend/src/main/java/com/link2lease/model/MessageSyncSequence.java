@@ -0,0 +1,27 @@
+package com.link2lease.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last change number handed out to a user's message change log.
+ * Writers bump the row inside their transaction, so its row lock orders one user's changes by commit.
+ */
+@Entity
+@Table(name = "message_sync_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSyncSequence {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+}
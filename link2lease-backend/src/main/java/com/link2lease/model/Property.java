@@ -5,7 +5,14 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "properties")
+// Keyset pages sorted by rent or availability read these in order; see PropertyRepository.PROPERTY_PAGE
+@Table(name = "properties",
+        indexes = {
+                @Index(name = "idx_properties_rent", columnList = "rent_amount, id"),
+                @Index(name = "idx_properties_available_from", columnList = "available_from, id"),
+                // Bounding boxes of near searches that fall back to SQL
+                @Index(name = "idx_properties_location", columnList = "latitude, longitude")
+        })
 public class Property {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -14,7 +21,12 @@ public class Property {
     private String description;
     private String address;
     private double rentAmount;
+    // Required so the availability order covers every property
+    @Column(nullable = false)
     private LocalDate availableFrom;
+    // WGS84 degrees; both or neither are set, and a property without them is never found by a near search
+    private Double latitude;
+    private Double longitude;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "landlord_id", nullable = false)
@@ -80,6 +92,22 @@ public class Property {
         this.availableFrom = availableFrom;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
     public User getLandlord() {
         return landlord;
     }
@@ -97,6 +125,8 @@ public class Property {
                 ", address='" + address + '\'' +
                 ", rentAmount=" + rentAmount +
                 ", availableFrom=" + availableFrom +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
                 ", landlord=" + landlord +
                 '}';
     }
@@ -0,0 +1,27 @@
+package com.link2lease.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("link2lease.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    // Users tracked at once; past this, new users share one overflow bucket per endpoint at the default rate until a sweep
+    private int maxUsers = 100_000;
+    // How often idle users are swept; a full table sweeps inline at most this often too
+    private long sweepIntervalMs = 60_000;
+    // Endpoint name -> lower case UserRole name, or "default" -> limit
+    private Map<String, Map<String, Limit>> limits = new HashMap<>();
+
+    @Data
+    public static class Limit {
+        // Requests allowed back to back
+        private int capacity;
+        // Sustained requests per second once the burst is spent
+        private double refillPerSecond;
+    }
+}
@@ -0,0 +1,19 @@
+package com.link2lease.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a controller method behind the per-user limit configured for the endpoint under
+ * link2lease.rate-limit.limits. The user is taken from the named path variable.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+
+    String endpoint();
+
+    String userIdVariable() default "userId";
+}
@@ -0,0 +1,225 @@
+package com.link2lease.ratelimit;
+
+import com.link2lease.enums.UserRole;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-user token buckets for the endpoints configured in RateLimitProperties.
+ * Each bucket is stored as a single timestamp, the time at which it would be full again
+ * (the GCRA form of a token bucket), so taking a token is one CAS and needs no lock or refill task.
+ * A bucket whose timestamp has passed is full and carries no state, which makes idle users free
+ * to evict: the periodic sweep drops them and they start again from a fresh, full bucket.
+ * Ids that match no user, and new users while max-users are tracked, never get buckets of their own;
+ * they all share one overflow bucket per endpoint at the default rate.
+ */
+@Slf4j
+public class RateLimiter {
+    private static final String DEFAULT_LIMIT = "default";
+
+    private final Map<String, Integer> endpointIndexes = new HashMap<>();
+    // [endpoint][role ordinal, or the last slot for the default limit]
+    private final Rate[][] rates;
+    private final Counter[] allowed;
+    private final Counter[] rejected;
+    // Empty for an id that matches no user, or a user without a role
+    private final Function<Long, Optional<UserRole>> roleLookup;
+    private final LongSupplier clock;
+    private final int maxUsers;
+    private final long sweepIntervalNanos;
+
+    private final Map<Long, UserBuckets> users = new ConcurrentHashMap<>();
+    private final UserBuckets overflow;
+    private final LongAdder untracked = new LongAdder();
+    // Clock reading of the last sweep, so a full table sweeps inline at most once per interval
+    private final AtomicLong lastSweep;
+
+    public RateLimiter(RateLimitProperties properties, Function<Long, Optional<UserRole>> roleLookup, MeterRegistry meterRegistry) {
+        this(properties, roleLookup, meterRegistry, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, Function<Long, Optional<UserRole>> roleLookup, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.roleLookup = roleLookup;
+        this.clock = clock;
+        this.maxUsers = properties.getMaxUsers();
+        this.sweepIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSweepIntervalMs());
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+
+        int endpoints = properties.getLimits().size();
+        this.rates = new Rate[endpoints][];
+        this.allowed = new Counter[endpoints];
+        this.rejected = new Counter[endpoints];
+        Rate[] defaultRates = new Rate[endpoints];
+        int index = 0;
+        for (Map.Entry<String, Map<String, RateLimitProperties.Limit>> endpoint : properties.getLimits().entrySet()) {
+            endpointIndexes.put(endpoint.getKey(), index);
+            rates[index] = resolveRates(endpoint.getKey(), endpoint.getValue());
+            defaultRates[index] = rates[index][UserRole.values().length];
+            allowed[index] = Counter.builder("link2lease.rate-limit.requests")
+                    .tag("endpoint", endpoint.getKey()).tag("result", "allowed")
+                    .register(meterRegistry);
+            rejected[index] = Counter.builder("link2lease.rate-limit.requests")
+                    .tag("endpoint", endpoint.getKey()).tag("result", "rejected")
+                    .register(meterRegistry);
+            index++;
+        }
+        this.overflow = new UserBuckets(defaultRates, clock.getAsLong());
+
+        Gauge.builder("link2lease.rate-limit.users", users, Map::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.rate-limit.untracked", untracked, LongAdder::sum)
+                .description("Requests from unknown users, or new users past max-users, taken from the shared overflow bucket")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take a token from the user's bucket for the endpoint.
+     * Returns 0 when the request may proceed, otherwise the nanoseconds until a token is available.
+     */
+    public long tryAcquire(Long userId, String endpoint) {
+        Integer index = endpointIndexes.get(endpoint);
+        if (index == null) {
+            return 0;
+        }
+
+        long now = clock.getAsLong();
+        UserBuckets buckets = users.get(userId);
+        if (buckets == null) {
+            buckets = register(userId, now);
+            if (buckets == null) {
+                untracked.increment();
+                buckets = overflow;
+            }
+        }
+
+        Rate rate = buckets.rates[index];
+        while (true) {
+            long fullAt = buckets.fullAt.get(index);
+            // A bucket that filled up in the past is simply full
+            long next = (fullAt - now > 0 ? fullAt : now) + rate.intervalNanos;
+            if (next - now > rate.burstNanos) {
+                rejected[index].increment();
+                return next - now - rate.burstNanos;
+            }
+            if (buckets.fullAt.compareAndSet(index, fullAt, next)) {
+                allowed[index].increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drop users whose buckets have all refilled; they hold nothing a fresh bucket would not
+     */
+    @Scheduled(fixedDelayString = "${link2lease.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        lastSweep.set(now);
+        int before = users.size();
+        users.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+        log.debug("Evicted {} idle users from the rate limiter", before - users.size());
+    }
+
+    int trackedUsers() {
+        return users.size();
+    }
+
+    // Returns null when the user cannot have buckets of their own and must use the overflow bucket
+    private UserBuckets register(Long userId, long now) {
+        if (users.size() >= maxUsers) {
+            // A sweep scans every tracked user, so while the table stays full only one caller per interval
+            // pays for it and the rest go to the overflow bucket straight away
+            long last = lastSweep.get();
+            if (now - last < sweepIntervalNanos || !lastSweep.compareAndSet(last, now)) {
+                return null;
+            }
+            evictIdle();
+            if (users.size() >= maxUsers) {
+                return null;
+            }
+        }
+        // Looked up outside the map so a slow query never holds a map bin lock.
+        // An id that matches no user takes no slot, so made-up ids cannot fill the table.
+        UserRole role = roleLookup.apply(userId).orElse(null);
+        if (role == null) {
+            return null;
+        }
+        Rate[] userRates = new Rate[rates.length];
+        for (int i = 0; i < rates.length; i++) {
+            userRates[i] = rates[i][role.ordinal()];
+        }
+        UserBuckets created = new UserBuckets(userRates, now);
+        UserBuckets existing = users.putIfAbsent(userId, created);
+        return existing != null ? existing : created;
+    }
+
+    private static Rate[] resolveRates(String endpoint, Map<String, RateLimitProperties.Limit> limits) {
+        Map<String, RateLimitProperties.Limit> byKey = new HashMap<>();
+        limits.forEach((key, limit) -> byKey.put(key.toLowerCase(), limit));
+        RateLimitProperties.Limit defaultLimit = byKey.remove(DEFAULT_LIMIT);
+        if (defaultLimit == null) {
+            throw new IllegalStateException("Rate limit for endpoint " + endpoint + " needs a default entry");
+        }
+
+        UserRole[] roles = UserRole.values();
+        Rate[] byRole = new Rate[roles.length + 1];
+        for (UserRole role : roles) {
+            RateLimitProperties.Limit limit = byKey.remove(role.name().toLowerCase());
+            byRole[role.ordinal()] = Rate.of(endpoint, limit != null ? limit : defaultLimit);
+        }
+        if (!byKey.isEmpty()) {
+            throw new IllegalStateException("Unknown roles " + byKey.keySet() + " in rate limit for endpoint " + endpoint);
+        }
+        byRole[roles.length] = Rate.of(endpoint, defaultLimit);
+        return byRole;
+    }
+
+    private record Rate(long intervalNanos, long burstNanos) {
+
+        static Rate of(String endpoint, RateLimitProperties.Limit limit) {
+            if (limit.getCapacity() < 1 || limit.getRefillPerSecond() <= 0) {
+                throw new IllegalStateException("Rate limit for endpoint " + endpoint + " needs a capacity and refill rate above zero");
+            }
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / limit.getRefillPerSecond());
+            return new Rate(intervalNanos, intervalNanos * limit.getCapacity());
+        }
+    }
+
+    private static final class UserBuckets {
+        private final Rate[] rates;
+        // Per endpoint, the time the bucket will be full again
+        private final AtomicLongArray fullAt;
+
+        private UserBuckets(Rate[] rates, long now) {
+            this.rates = rates;
+            this.fullAt = new AtomicLongArray(rates.length);
+            for (int i = 0; i < rates.length; i++) {
+                fullAt.set(i, now);
+            }
+        }
+
+        private boolean isFull(long now) {
+            for (int i = 0; i < rates.length; i++) {
+                if (fullAt.get(i) - now > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
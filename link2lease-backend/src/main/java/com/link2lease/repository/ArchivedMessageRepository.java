@@ -0,0 +1,89 @@
+package com.link2lease.repository;
+
+import com.link2lease.dto.MessageDto;
+import com.link2lease.model.ArchivedMessage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ArchivedMessageRepository extends JpaRepository<ArchivedMessage, Long> {
+
+    // Archived messages for a user (sent or received), keyset paged like the hot message lists: each side is
+    // its own range scan on idx_messages_archive_sender_sent / idx_messages_archive_recipient_sent rather than
+    // one OR over the whole archive, and a page takes at most :limit from each side before sorting
+    String SENT_BY_USER = "SELECT x.id AS id, x.sentAt AS sentAt FROM ArchivedMessage x " +
+            "WHERE x.sender.id = :userId AND (x.sentAt, x.id) < (:sentAt, :id) ";
+    // Messages to oneself are already on the sent side
+    String RECEIVED_BY_USER = "SELECT x.id AS id, x.sentAt AS sentAt FROM ArchivedMessage x " +
+            "WHERE x.recipient.id = :userId AND x.sender.id <> :userId AND (x.sentAt, x.id) < (:sentAt, :id) ";
+    String ARCHIVE_DTO_SELECT = "SELECT new com.link2lease.dto.MessageDto(" +
+            "m.id, s.id, s.fullName, s.email, r.id, r.fullName, r.email, p.id, p.title, m.lease.id, " +
+            "m.content, m.subject, m.messageType, m.isRead, m.sentAt, m.readAt, m.parentMessageId) ";
+    String ARCHIVE_DETAILS = "JOIN ArchivedMessage m ON m.id = u.id " +
+            "JOIN m.sender s " +
+            "JOIN m.recipient r " +
+            "LEFT JOIN m.property p " +
+            "ORDER BY u.sentAt DESC, u.id DESC";
+
+    String USER_ARCHIVE = ARCHIVE_DTO_SELECT +
+            "FROM ((" + SENT_BY_USER + "ORDER BY x.sentAt DESC, x.id DESC LIMIT :limit) " +
+            "UNION ALL (" + RECEIVED_BY_USER + "ORDER BY x.sentAt DESC, x.id DESC LIMIT :limit)) u " +
+            ARCHIVE_DETAILS + " LIMIT :limit";
+
+    // The stream reads both sides whole, merged in order
+    String USER_ARCHIVE_STREAM = ARCHIVE_DTO_SELECT +
+            "FROM (" + SENT_BY_USER + "UNION ALL " + RECEIVED_BY_USER + ") u " +
+            ARCHIVE_DETAILS;
+
+    @Query(USER_ARCHIVE)
+    List<MessageDto> findUserArchive(@Param("userId") Long userId,
+                                     @Param("sentAt") LocalDateTime sentAt,
+                                     @Param("id") Long id,
+                                     @Param("limit") int limit);
+
+    // The whole archive from the cursor on, read a fetch size at a time for NDJSON responses
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    @Query(USER_ARCHIVE_STREAM)
+    Stream<MessageDto> streamUserArchive(@Param("userId") Long userId,
+                                         @Param("sentAt") LocalDateTime sentAt,
+                                         @Param("id") Long id);
+
+    long countBySenderId(Long senderId);
+
+    long countByRecipientId(Long recipientId);
+
+    // Moves up to batchSize of the oldest read messages sent before the cutoff into the archive in one statement.
+    // Messages that still have a reply in the hot table, or that a conversation thread points at, stay behind,
+    // so hot threads keep their whole ancestor chain and the conversations list never loses its latest message.
+    @Modifying
+    @Query(value = "WITH moved AS (" +
+            "  DELETE FROM messages m WHERE m.id IN (" +
+            "    SELECT o.id FROM messages o " +
+            "    WHERE o.sent_at < :cutoff AND o.is_read = true " +
+            "    AND NOT EXISTS (SELECT 1 FROM messages c WHERE c.parent_message_id = o.id) " +
+            "    AND NOT EXISTS (SELECT 1 FROM conversation_threads t WHERE t.last_message_id = o.id) " +
+            "    ORDER BY o.sent_at " +
+            "    LIMIT :batchSize " +
+            "    FOR UPDATE SKIP LOCKED" +
+            "  ) " +
+            "  RETURNING m.id, m.sender_id, m.recipient_id, m.property_id, m.lease_id, m.content, m.subject, " +
+            "  m.message_type, m.is_read, m.sent_at, m.read_at, m.parent_message_id" +
+            ") " +
+            "INSERT INTO messages_archive (id, sender_id, recipient_id, property_id, lease_id, content, subject, " +
+            "message_type, is_read, sent_at, read_at, parent_message_id, archived_at) " +
+            "SELECT id, sender_id, recipient_id, property_id, lease_id, content, subject, " +
+            "message_type, is_read, sent_at, read_at, parent_message_id, now() FROM moved",
+            nativeQuery = true)
+    int archiveBatch(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
+}
@@ -0,0 +1,113 @@
+package com.link2lease.repository;
+
+import com.link2lease.dto.ConversationDto;
+import com.link2lease.model.ConversationThread;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ConversationThreadRepository extends JpaRepository<ConversationThread, Long> {
+
+    // Find every conversation for a user with its partner, latest message and unread count
+    @Query("SELECT new com.link2lease.dto.ConversationDto(" +
+            "CASE WHEN lo.id = :userId THEN hi.id ELSE lo.id END, " +
+            "CASE WHEN lo.id = :userId THEN hi.fullName ELSE lo.fullName END, " +
+            "CASE WHEN lo.id = :userId THEN hi.email ELSE lo.email END, " +
+            "m.id, s.id, s.fullName, s.email, r.id, r.fullName, r.email, p.id, p.title, l.id, " +
+            "m.content, m.subject, m.messageType, m.isRead, m.sentAt, m.readAt, m.parentMessage.id, " +
+            "CASE WHEN lo.id = :userId THEN t.unreadForLow ELSE t.unreadForHigh END) " +
+            "FROM ConversationThread t " +
+            "JOIN t.userLow lo " +
+            "JOIN t.userHigh hi " +
+            "JOIN Message m ON m.id = t.lastMessageId " +
+            "JOIN m.sender s " +
+            "JOIN m.recipient r " +
+            "LEFT JOIN m.property p " +
+            "LEFT JOIN m.lease l " +
+            "WHERE lo.id = :userId OR hi.id = :userId " +
+            "ORDER BY t.lastActivity DESC")
+    List<ConversationDto> findConversationsForUser(@Param("userId") Long userId);
+
+    // Move the pair's thread forward to a new message and add the message to the recipient's unread count,
+    // starting the thread if the pair has none. One upsert, so the first two messages between a pair committing
+    // together cannot both insert and fail the later one on uk_conversation_threads_pair. The last message only
+    // moves forward, so a send whose upsert lands after a later one's does not point the thread back at itself.
+    @Modifying
+    @Query("INSERT INTO ConversationThread (id, userLow.id, userHigh.id, lastMessageId, lastActivity, unreadForLow, unreadForHigh) " +
+            "VALUES (function('nextval', 'conversation_thread_sequence'), :lowId, :highId, :messageId, :sentAt, :unreadForLow, :unreadForHigh) " +
+            "ON CONFLICT (userLow, userHigh) DO UPDATE SET " +
+            "lastMessageId = CASE WHEN (excluded.lastActivity, excluded.lastMessageId) > (lastActivity, lastMessageId) " +
+            "THEN excluded.lastMessageId ELSE lastMessageId END, " +
+            "lastActivity = CASE WHEN (excluded.lastActivity, excluded.lastMessageId) > (lastActivity, lastMessageId) " +
+            "THEN excluded.lastActivity ELSE lastActivity END, " +
+            "unreadForLow = unreadForLow + excluded.unreadForLow, " +
+            "unreadForHigh = unreadForHigh + excluded.unreadForHigh")
+    int recordMessage(@Param("lowId") Long lowId,
+                      @Param("highId") Long highId,
+                      @Param("messageId") Long messageId,
+                      @Param("sentAt") LocalDateTime sentAt,
+                      @Param("unreadForLow") long unreadForLow,
+                      @Param("unreadForHigh") long unreadForHigh);
+
+    // The same upsert, with the same forward-only last message, for one sender's message to each of many
+    // recipients, all in one statement.
+    // Rows go in recipient order, so concurrent broadcasts lock the threads they share in the same order.
+    @Modifying
+    @Query(value = "INSERT INTO conversation_threads (id, user_low_id, user_high_id, last_message_id, last_activity, " +
+            "unread_for_low, unread_for_high) " +
+            "SELECT nextval('conversation_thread_sequence'), LEAST(:senderId, r.recipient_id), GREATEST(:senderId, r.recipient_id), " +
+            "r.message_id, r.sent_at, " +
+            "CASE WHEN r.recipient_id <= :senderId THEN 1 ELSE 0 END, CASE WHEN r.recipient_id > :senderId THEN 1 ELSE 0 END " +
+            "FROM unnest(CAST(:recipientIds AS bigint[]), CAST(:messageIds AS bigint[]), CAST(:sentAts AS timestamp[])) " +
+            "AS r(recipient_id, message_id, sent_at) " +
+            "ORDER BY r.recipient_id " +
+            "ON CONFLICT (user_low_id, user_high_id) DO UPDATE SET " +
+            "last_message_id = CASE WHEN (EXCLUDED.last_activity, EXCLUDED.last_message_id) > " +
+            "(conversation_threads.last_activity, conversation_threads.last_message_id) " +
+            "THEN EXCLUDED.last_message_id ELSE conversation_threads.last_message_id END, " +
+            "last_activity = CASE WHEN (EXCLUDED.last_activity, EXCLUDED.last_message_id) > " +
+            "(conversation_threads.last_activity, conversation_threads.last_message_id) " +
+            "THEN EXCLUDED.last_activity ELSE conversation_threads.last_activity END, " +
+            "unread_for_low = conversation_threads.unread_for_low + EXCLUDED.unread_for_low, " +
+            "unread_for_high = conversation_threads.unread_for_high + EXCLUDED.unread_for_high",
+            nativeQuery = true)
+    int recordBroadcast(@Param("senderId") Long senderId,
+                        @Param("recipientIds") Long[] recipientIds,
+                        @Param("messageIds") Long[] messageIds,
+                        @Param("sentAts") LocalDateTime[] sentAts);
+
+    // Take messages that stopped being unread off their recipients' counts, one (recipient, sender) pair per message.
+    // Pairs are summed per thread first, so messages read in both directions land in one row update. A decrement
+    // commutes with the upsert's increment, so a message sent while this runs stays counted.
+    @Modifying
+    @Query(value = "UPDATE conversation_threads t " +
+            "SET unread_for_low = GREATEST(t.unread_for_low - r.read_by_low, 0), " +
+            "unread_for_high = GREATEST(t.unread_for_high - r.read_by_high, 0) " +
+            "FROM (SELECT LEAST(u.recipient_id, u.sender_id) AS low_id, GREATEST(u.recipient_id, u.sender_id) AS high_id, " +
+            "COUNT(*) FILTER (WHERE u.recipient_id <= u.sender_id) AS read_by_low, " +
+            "COUNT(*) FILTER (WHERE u.recipient_id > u.sender_id) AS read_by_high " +
+            "FROM unnest(CAST(:recipientIds AS bigint[]), CAST(:senderIds AS bigint[])) AS u(recipient_id, sender_id) " +
+            "GROUP BY 1, 2) r " +
+            "WHERE t.user_low_id = r.low_id AND t.user_high_id = r.high_id",
+            nativeQuery = true)
+    int subtractUnread(@Param("recipientIds") Long[] recipientIds,
+                       @Param("senderIds") Long[] senderIds);
+
+    @Modifying
+    @Query("UPDATE ConversationThread t SET t.lastMessageId = :messageId, t.lastActivity = :sentAt " +
+            "WHERE t.userLow.id = :lowId AND t.userHigh.id = :highId")
+    int setLastMessage(@Param("lowId") Long lowId,
+                       @Param("highId") Long highId,
+                       @Param("messageId") Long messageId,
+                       @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("DELETE FROM ConversationThread t WHERE t.userLow.id = :lowId AND t.userHigh.id = :highId")
+    int deletePair(@Param("lowId") Long lowId, @Param("highId") Long highId);
+}
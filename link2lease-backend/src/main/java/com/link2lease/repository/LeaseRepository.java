@@ -1,6 +1,9 @@
 package com.link2lease.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import com.link2lease.enums.LeaseStatus;
 import com.link2lease.model.Lease;
 import com.link2lease.model.User;
 import java.util.List;
@@ -8,4 +11,9 @@ import java.util.List;
 public interface LeaseRepository extends JpaRepository<Lease,Long> {
     List<Lease> findByTenant(User tenant); // gets lease by tenant
     List<Lease> findByPropertyLandlord(User Landlord); //gets lease by landlord
+
+    // gets the distinct tenants holding a lease with the given status on a property
+    @Query("SELECT DISTINCT l.tenant FROM Lease l WHERE l.property.id = :propertyId AND l.status = :status")
+    List<User> findTenantsByPropertyIdAndStatus(@Param("propertyId") Long propertyId,
+                                                @Param("status") LeaseStatus status);
 }
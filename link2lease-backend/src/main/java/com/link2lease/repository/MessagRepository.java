@@ -1,84 +1,188 @@
 package com.link2lease.repository;
 
+import com.link2lease.dto.MessageDto;
 import com.link2lease.enums.MessageType;
 import com.link2lease.model.Message;
 import com.link2lease.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface MessagRepository extends JpaRepository<Message, Long> {
 
+        // Selects only the columns MessageDto needs as an unmanaged constructor projection, so list
+        // endpoints never load whole User rows or fill the persistence context with entities to dirty check
+        String MESSAGE_DTO_SELECT = "SELECT new com.link2lease.dto.MessageDto(" +
+                "m.id, s.id, s.fullName, s.email, r.id, r.fullName, r.email, p.id, p.title, m.lease.id, " +
+                "m.content, m.subject, m.messageType, m.isRead, m.sentAt, m.readAt, m.parentMessage.id) " +
+                "FROM Message m " +
+                "JOIN m.sender s " +
+                "JOIN m.recipient r " +
+                "LEFT JOIN m.property p ";
+
+        // Keyset pages are ordered by (sentAt, id) descending and start strictly after the cursor position
+        String SENT_BY_USER = "SELECT x.id AS id, x.sentAt AS sentAt FROM Message x " +
+                "WHERE x.sender.id = :userId AND (x.sentAt, x.id) < (:sentAt, :id) ";
+        // Messages to oneself are already on the sent side
+        String RECEIVED_BY_USER = "SELECT x.id AS id, x.sentAt AS sentAt FROM Message x " +
+                "WHERE x.recipient.id = :userId AND x.sender.id <> :userId AND (x.sentAt, x.id) < (:sentAt, :id) ";
+        String USER_MESSAGE_DETAILS = "JOIN Message m ON m.id = u.id " +
+                "JOIN m.sender s " +
+                "JOIN m.recipient r " +
+                "LEFT JOIN m.property p " +
+                "ORDER BY u.sentAt DESC, u.id DESC";
+
+        // Sent or received: an OR of the two sides could only be served by a bitmap scan of the whole mailbox
+        // and a sort, so each side is its own range scan on idx_messages_sender_sent / idx_messages_recipient_sent.
+        // A page takes at most :limit from each side and sorts what they give.
+        String ALL_USER_MESSAGES = "SELECT new com.link2lease.dto.MessageDto(" +
+                "m.id, s.id, s.fullName, s.email, r.id, r.fullName, r.email, p.id, p.title, m.lease.id, " +
+                "m.content, m.subject, m.messageType, m.isRead, m.sentAt, m.readAt, m.parentMessage.id) " +
+                "FROM ((" + SENT_BY_USER + "ORDER BY x.sentAt DESC, x.id DESC LIMIT :limit) " +
+                "UNION ALL (" + RECEIVED_BY_USER + "ORDER BY x.sentAt DESC, x.id DESC LIMIT :limit)) u " +
+                USER_MESSAGE_DETAILS + " LIMIT :limit";
+
+        // The stream reads both sides whole, merged in order as they come off their indexes
+        String ALL_USER_MESSAGES_STREAM = "SELECT new com.link2lease.dto.MessageDto(" +
+                "m.id, s.id, s.fullName, s.email, r.id, r.fullName, r.email, p.id, p.title, m.lease.id, " +
+                "m.content, m.subject, m.messageType, m.isRead, m.sentAt, m.readAt, m.parentMessage.id) " +
+                "FROM (" + SENT_BY_USER + "UNION ALL " + RECEIVED_BY_USER + ") u " +
+                USER_MESSAGE_DETAILS;
+
+        String SENT_MESSAGES = MESSAGE_DTO_SELECT +
+                "WHERE m.sender.id = :senderId " +
+                "AND (m.sentAt, m.id) < (:sentAt, :id) " +
+                "ORDER BY m.sentAt DESC, m.id DESC";
+
+        String RECEIVED_MESSAGES = MESSAGE_DTO_SELECT +
+                "WHERE m.recipient.id = :recipientId " +
+                "AND (m.sentAt, m.id) < (:sentAt, :id) " +
+                "ORDER BY m.sentAt DESC, m.id DESC";
+
+        String UNREAD_MESSAGES = MESSAGE_DTO_SELECT +
+                "WHERE m.recipient.id = :recipientId AND m.isRead = false " +
+                "AND (m.sentAt, m.id) < (:sentAt, :id) " +
+                "ORDER BY m.sentAt DESC, m.id DESC";
+
+        String CONVERSATION = MESSAGE_DTO_SELECT +
+                "WHERE (m.sender.id = :user1Id AND m.recipient.id = :user2Id) OR " +
+                "(m.sender.id = :user2Id AND m.recipient.id = :user1Id) " +
+                "ORDER BY m.sentAt ASC";
+
+        String PROPERTY_MESSAGES = MESSAGE_DTO_SELECT +
+                "WHERE m.property.id = :propertyId " +
+                "ORDER BY m.sentAt DESC";
+
         // Find all messages for a user (sent or received)
-        @Query("SELECT m FROM Message m " +
-                "LEFT JOIN FETCH m.sender " +
-                "LEFT JOIN FETCH m.recipient " +
-                "LEFT JOIN FETCH m.property " +
-                "LEFT JOIN FETCH m.lease " +
-                "WHERE m.sender.id = :userId OR m.recipient.id = :userId ORDER BY m.sentAt DESC")
-        List<Message> findAllUserMessages(@Param("userId") Long userId);
+        @Query(ALL_USER_MESSAGES)
+        List<MessageDto> findAllUserMessages(@Param("userId") Long userId,
+                                          @Param("sentAt") LocalDateTime sentAt,
+                                          @Param("id") Long id,
+                                          @Param("limit") int limit);
 
         // Find sent messages
-        @Query("SELECT m FROM Message m " +
-                "LEFT JOIN FETCH m.recipient " +
-                "LEFT JOIN FETCH m.property " +
-                "LEFT JOIN FETCH m.lease " +
-                "WHERE m.sender.id = :senderId ORDER BY m.sentAt DESC")
-        List<Message> findBySenderIdOrderBySentAtDesc(@Param("senderId") Long senderId);
+        @Query(SENT_MESSAGES)
+        List<MessageDto> findBySenderIdOrderBySentAtDesc(@Param("senderId") Long senderId,
+                                                      @Param("sentAt") LocalDateTime sentAt,
+                                                      @Param("id") Long id,
+                                                      Limit limit);
 
         // Find received messages
-        @Query("SELECT m FROM Message m " +
-                "LEFT JOIN FETCH m.sender " +
-                "LEFT JOIN FETCH m.property " +
-                "LEFT JOIN FETCH m.lease " +
-                "WHERE m.recipient.id = :recipientId ORDER BY m.sentAt DESC")
-        List<Message> findByRecipientIdOrderBySentAtDesc(@Param("recipientId") Long recipientId);
+        @Query(RECEIVED_MESSAGES)
+        List<MessageDto> findByRecipientIdOrderBySentAtDesc(@Param("recipientId") Long recipientId,
+                                                         @Param("sentAt") LocalDateTime sentAt,
+                                                         @Param("id") Long id,
+                                                         Limit limit);
 
         // Find unread messages for a recipient
-        @Query("SELECT m FROM Message m " +
-                "LEFT JOIN FETCH m.sender " +
-                "LEFT JOIN FETCH m.property " +
-                "LEFT JOIN FETCH m.lease " +
-                "WHERE m.recipient.id = :recipientId AND m.isRead = false ORDER BY m.sentAt DESC")
-        List<Message> findByRecipientIdAndIsReadFalseOrderBySentAtDesc(@Param("recipientId") Long recipientId);
+        @Query(UNREAD_MESSAGES)
+        List<MessageDto> findByRecipientIdAndIsReadFalseOrderBySentAtDesc(@Param("recipientId") Long recipientId,
+                                                                       @Param("sentAt") LocalDateTime sentAt,
+                                                                       @Param("id") Long id,
+                                                                       Limit limit);
 
         // Count unread messages for a recipient
         Long countByRecipientIdAndIsReadFalse(Long recipientId);
 
         // Find conversation between two users
-        @Query("SELECT m FROM Message m " +
-                "LEFT JOIN FETCH m.sender " +
-                "LEFT JOIN FETCH m.recipient " +
-                "LEFT JOIN FETCH m.property " +
-                "LEFT JOIN FETCH m.lease " +
-                "WHERE (m.sender.id = :user1Id AND m.recipient.id = :user2Id) OR " +
-                "(m.sender.id = :user2Id AND m.recipient.id = :user1Id) " +
-                "ORDER BY m.sentAt ASC")
-        List<Message> findConversationBetweenUsers(@Param("user1Id") Long user1Id,
+        @Query(CONVERSATION)
+        List<MessageDto> findConversationBetweenUsers(@Param("user1Id") Long user1Id,
                                                    @Param("user2Id") Long user2Id);
 
         // Find all conversations for a user (grouped by other participant)
-        @Query("SELECT DISTINCT " +
-                "CASE WHEN m.sender.id = :userId THEN m.recipient ELSE m.sender END " +
-                "FROM Message m WHERE m.sender.id = :userId OR m.recipient.id = :userId")
+        // One subquery per direction so each side is a range scan on its own index
+        @Query("SELECT u FROM User u " +
+                "WHERE u.id IN (SELECT m.recipient.id FROM Message m WHERE m.sender.id = :userId) " +
+                "OR u.id IN (SELECT m.sender.id FROM Message m WHERE m.recipient.id = :userId)")
         List<User> findConversationPartners(@Param("userId") Long userId);
 
-        // Find latest message in each conversation for a user
-        @Query("SELECT m FROM Message m WHERE m.id IN (" +
-                "SELECT MAX(m2.id) FROM Message m2 WHERE " +
-                "(m2.sender.id = :userId OR m2.recipient.id = :userId) " +
-                "GROUP BY CASE WHEN m2.sender.id = :userId THEN m2.recipient.id ELSE m2.sender.id END" +
-                ") ORDER BY m.sentAt DESC")
-        List<Message> findLatestMessagesInConversations(@Param("userId") Long userId);
+        // Find the most recent messages exchanged between two users
+        @Query("SELECT m FROM Message m " +
+                "WHERE (m.sender.id = :user1Id AND m.recipient.id = :user2Id) OR " +
+                "(m.sender.id = :user2Id AND m.recipient.id = :user1Id) " +
+                "ORDER BY m.sentAt DESC, m.id DESC")
+        List<Message> findLatestBetweenUsers(@Param("user1Id") Long user1Id,
+                                             @Param("user2Id") Long user2Id,
+                                             Limit limit);
+
+        // Count unread messages one user has sent another
+        Long countBySenderIdAndRecipientIdAndIsReadFalse(Long senderId, Long recipientId);
 
         // Find messages about a specific property
-        List<Message> findByPropertyIdOrderBySentAtDesc(Long propertyId);
+        @Query(PROPERTY_MESSAGES)
+        List<MessageDto> findByPropertyIdOrderBySentAtDesc(@Param("propertyId") Long propertyId);
+
+        // Streaming forms of the lists above for NDJSON responses: the same queries without a limit,
+        // read through a forward-only cursor a fetch size at a time. Consume inside a transaction and close.
+        @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+                @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+        @Query(ALL_USER_MESSAGES_STREAM)
+        Stream<MessageDto> streamAllUserMessages(@Param("userId") Long userId,
+                                                 @Param("sentAt") LocalDateTime sentAt,
+                                                 @Param("id") Long id);
+
+        @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+                @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+        @Query(SENT_MESSAGES)
+        Stream<MessageDto> streamSentMessages(@Param("senderId") Long senderId,
+                                              @Param("sentAt") LocalDateTime sentAt,
+                                              @Param("id") Long id);
+
+        @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+                @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+        @Query(RECEIVED_MESSAGES)
+        Stream<MessageDto> streamReceivedMessages(@Param("recipientId") Long recipientId,
+                                                  @Param("sentAt") LocalDateTime sentAt,
+                                                  @Param("id") Long id);
+
+        @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+                @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+        @Query(UNREAD_MESSAGES)
+        Stream<MessageDto> streamUnreadMessages(@Param("recipientId") Long recipientId,
+                                                @Param("sentAt") LocalDateTime sentAt,
+                                                @Param("id") Long id);
+
+        @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+                @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+        @Query(CONVERSATION)
+        Stream<MessageDto> streamConversation(@Param("user1Id") Long user1Id,
+                                              @Param("user2Id") Long user2Id);
+
+        @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+                @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+        @Query(PROPERTY_MESSAGES)
+        Stream<MessageDto> streamPropertyMessages(@Param("propertyId") Long propertyId);
 
         // Find messages about a specific lease
         List<Message> findByLeaseIdOrderBySentAtDesc(Long leaseId);
@@ -86,31 +190,99 @@ public interface MessagRepository extends JpaRepository<Message, Long> {
         // Find replies to a message
         List<Message> findByParentMessageIdOrderBySentAtAsc(Long parentMessageId);
 
-        // Mark messages as read
-        @Modifying
-        @Query("UPDATE Message m SET m.isRead = true, m.readAt = :readAt WHERE m.id IN :messageIds AND m.recipient.id = :recipientId")
-        void markMessagesAsRead(@Param("messageIds") List<Long> messageIds,
-                                @Param("recipientId") Long recipientId,
-                                @Param("readAt") LocalDateTime readAt);
+        // Mark messages as read, returning (id, sender id) of each message that was still unread.
+        // The ids go in as one array parameter, so any number of them shares a single statement and plan.
+        @Query(value = "UPDATE messages m SET is_read = true, read_at = :readAt " +
+                "WHERE m.id = ANY(CAST(:messageIds AS bigint[])) AND m.recipient_id = :recipientId AND m.is_read = false " +
+                "RETURNING m.id, m.sender_id",
+                nativeQuery = true)
+        List<Object[]> markMessagesAsRead(@Param("messageIds") Long[] messageIds,
+                                          @Param("recipientId") Long recipientId,
+                                          @Param("readAt") LocalDateTime readAt);
 
-        // Mark all messages from a user as read
-        @Modifying
-        @Query("UPDATE Message m SET m.isRead = true, m.readAt = :readAt WHERE m.sender.id = :senderId AND m.recipient.id = :recipientId AND m.isRead = false")
-        void markAllMessagesFromUserAsRead(@Param("senderId") Long senderId,
-                                           @Param("recipientId") Long recipientId,
-                                           @Param("readAt") LocalDateTime readAt);
+        // Mark every unread message received at or before the keyset position as read, returning (id, sender id)
+        @Query(value = "UPDATE messages m SET is_read = true, read_at = :readAt " +
+                "WHERE m.recipient_id = :recipientId AND m.is_read = false " +
+                "AND (m.sent_at, m.id) <= (:sentAt, :id) " +
+                "RETURNING m.id, m.sender_id",
+                nativeQuery = true)
+        List<Object[]> markReadUpTo(@Param("recipientId") Long recipientId,
+                                    @Param("sentAt") LocalDateTime sentAt,
+                                    @Param("id") Long id,
+                                    @Param("readAt") LocalDateTime readAt);
+
+        // Mark all messages from a user as read, returning the ids that were still unread
+        @Query(value = "UPDATE messages m SET is_read = true, read_at = :readAt " +
+                "WHERE m.sender_id = :senderId AND m.recipient_id = :recipientId AND m.is_read = false " +
+                "RETURNING m.id",
+                nativeQuery = true)
+        List<Long> markAllMessagesFromUserAsRead(@Param("senderId") Long senderId,
+                                                 @Param("recipientId") Long recipientId,
+                                                 @Param("readAt") LocalDateTime readAt);
 
         // Find messages by type
         List<Message> findByMessageTypeAndRecipientIdOrderBySentAtDesc(MessageType messageType, Long recipientId);
 
-        // Search messages by content
-        @Query("SELECT m FROM Message m WHERE " +
-                "(m.sender.id = :userId OR m.recipient.id = :userId) AND " +
-                "(LOWER(m.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-                "LOWER(m.subject) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
-                "ORDER BY m.sentAt DESC")
-        List<Message> searchUserMessages(@Param("userId") Long userId,
-                                         @Param("searchTerm") String searchTerm);
+        // Whole reply thread around a message in one round trip. Climbs to the highest ancestor the user
+        // can see (at most maxDepth hops), then walks replies down from it breadth first, skipping
+        // branches the user is not part of. Rows come parents first:
+        // id, sender id/name/email, recipient id/name/email, property id/title, lease id, content,
+        // subject, message type, is read, sent at, read at, parent id, depth
+        @Query(value = "WITH RECURSIVE ancestors(id, parent_message_id, hops) AS (" +
+                "  SELECT m.id, m.parent_message_id, 0 FROM messages m " +
+                "  WHERE m.id = :messageId AND (m.sender_id = :userId OR m.recipient_id = :userId) " +
+                "  UNION ALL " +
+                "  SELECT p.id, p.parent_message_id, a.hops + 1 FROM ancestors a " +
+                "  JOIN messages p ON p.id = a.parent_message_id " +
+                "  WHERE a.hops < :maxDepth AND (p.sender_id = :userId OR p.recipient_id = :userId)" +
+                "), tree(id, depth) AS (" +
+                "  SELECT id, 0 FROM (SELECT id FROM ancestors ORDER BY hops DESC LIMIT 1) root " +
+                "  UNION ALL " +
+                "  SELECT c.id, t.depth + 1 FROM tree t " +
+                "  JOIN messages c ON c.parent_message_id = t.id " +
+                "  WHERE t.depth < :depthLimit AND (c.sender_id = :userId OR c.recipient_id = :userId)" +
+                ") " +
+                "SELECT m.id, s.id, s.full_name, s.email, r.id, r.full_name, r.email, p.id, p.title, m.lease_id, " +
+                "m.content, m.subject, m.message_type, m.is_read, m.sent_at, m.read_at, m.parent_message_id, t.depth " +
+                "FROM tree t " +
+                "JOIN messages m ON m.id = t.id " +
+                "JOIN users s ON s.id = m.sender_id " +
+                "JOIN users r ON r.id = m.recipient_id " +
+                "LEFT JOIN properties p ON p.id = m.property_id " +
+                "ORDER BY t.depth, m.sent_at, m.id " +
+                "LIMIT :limit",
+                nativeQuery = true)
+        List<Object[]> findThreadRows(@Param("messageId") Long messageId,
+                                      @Param("userId") Long userId,
+                                      @Param("maxDepth") int maxDepth,
+                                      @Param("depthLimit") int depthLimit,
+                                      @Param("limit") int limit);
+
+        // Apply buffered read receipts in one statement, each id paired with its own read time.
+        // Returns the ids that were still unread so callers only count real transitions.
+        @Query(value = "UPDATE messages m SET is_read = true, read_at = r.read_at " +
+                "FROM unnest(CAST(:ids AS bigint[]), CAST(:readAts AS timestamp[])) AS r(id, read_at) " +
+                "WHERE m.id = r.id AND m.is_read = false " +
+                "RETURNING m.id",
+                nativeQuery = true)
+        List<Long> markReadReceipts(@Param("ids") Long[] ids,
+                                    @Param("readAts") LocalDateTime[] readAts);
+
+        // Full-text search over subject and content, best match first (search_vector is defined in schema-postgresql.sql)
+        @Query(value = "SELECT m.id FROM messages m, to_tsquery('english', :tsQuery) q " +
+                "WHERE (m.sender_id = :userId OR m.recipient_id = :userId) AND m.search_vector @@ q " +
+                "ORDER BY ts_rank_cd(m.search_vector, q) DESC, m.id DESC " +
+                "LIMIT :limit OFFSET :offset",
+                nativeQuery = true)
+        List<Long> searchUserMessageIds(@Param("userId") Long userId,
+                                        @Param("tsQuery") String tsQuery,
+                                        @Param("limit") int limit,
+                                        @Param("offset") int offset);
+
+        // Load the given messages as MessageDto, in no particular order
+        @Query(MESSAGE_DTO_SELECT +
+                "WHERE m.id IN :messageIds")
+        List<MessageDto> findAllWithDetailsByIdIn(@Param("messageIds") Collection<Long> messageIds);
 
         // Count total messages sent by user
         Long countBySenderId(Long senderId);
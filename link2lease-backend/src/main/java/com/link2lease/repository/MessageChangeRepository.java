@@ -0,0 +1,26 @@
+package com.link2lease.repository;
+
+import com.link2lease.model.MessageChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MessageChangeRepository extends JpaRepository<MessageChange, Long> {
+
+    // Range scan on uk_message_changes_user_seq
+    @Query("SELECT c FROM MessageChange c WHERE c.userId = :userId AND c.changeSeq > :since ORDER BY c.changeSeq")
+    List<MessageChange> findChangesSince(@Param("userId") Long userId,
+                                         @Param("since") long since,
+                                         Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM MessageChange c WHERE c.changedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,21 @@
+package com.link2lease.repository;
+
+import com.link2lease.model.MessageSyncSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MessageSyncSequenceRepository extends JpaRepository<MessageSyncSequence, Long> {
+
+    // Creates the user's row or advances it by count; either way the row stays locked until commit
+    @Modifying
+    @Query("INSERT INTO MessageSyncSequence (userId, lastSeq) VALUES (:userId, :count) " +
+            "ON CONFLICT (userId) DO UPDATE SET lastSeq = lastSeq + excluded.lastSeq")
+    int advance(@Param("userId") Long userId, @Param("count") long count);
+
+    @Query("SELECT s.lastSeq FROM MessageSyncSequence s WHERE s.userId = :userId")
+    Long findLastSeq(@Param("userId") Long userId);
+}
@@ -2,52 +2,302 @@ package com.link2lease.repository;
 
 import com.link2lease.model.Property;
 import com.link2lease.model.User;
+import com.link2lease.search.IndexedProperty;
+import com.link2lease.search.PropertyFacets;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PropertyRepository extends JpaRepository<Property,Long> {
 
+    // Every listing finder loads each row's landlord in the same statement, since PropertyDto reads its
+    // name and email and the association is lazy; without the graph a list costs a query per landlord.
+    @Override
+    @EntityGraph(attributePaths = "landlord")
+    List<Property> findAll();
+
     //    find properties by landlord
+    @EntityGraph(attributePaths = "landlord")
     List<Property> findByLandlord(User landlord);
 
     //    find available properties (available from date is today or earlier)
+    @EntityGraph(attributePaths = "landlord")
     @Query("SELECT p FROM Property p WHERE p.availableFrom <= :date")
     List<Property> findAvailableProperties(@Param("date")LocalDate date);
 
     //  find properties available for a specific date
+    @EntityGraph(attributePaths = "landlord")
     List<Property> findByAvailableFromBefore(LocalDate date);
+    @EntityGraph(attributePaths = "landlord")
     List<Property> findByAvailableFromAfter(LocalDate date);
 
     // find properties by rent amount range
+    @EntityGraph(attributePaths = "landlord")
     List<Property> findByRentAmountBetween(double minRent, double maxRent);
+    @EntityGraph(attributePaths = "landlord")
     List<Property> findByRentAmountLessThanEqual(double maxRent);
 
-    // find properties by address containing text
-    List<Property> findByAddressContaining(String address);
+    // find properties by address containing text, ignoring case like the filter search;
+    // LOWER(...) LIKE is served by the pg_trgm indexes in schema-postgresql.sql
+    String ADDRESS_CONTAINING = "SELECT p FROM Property p WHERE LOWER(p.address) LIKE LOWER(CONCAT('%', :address, '%'))";
+    String TITLE_CONTAINING = "SELECT p FROM Property p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%'))";
+
+    @EntityGraph(attributePaths = "landlord")
+    @Query(ADDRESS_CONTAINING)
+    List<Property> findByAddressContaining(@Param("address") String address);
 
-    // find properties by title containing text
-    List<Property> findByTitleContaining(String title);
+    // find properties by title containing text, ignoring case
+    @EntityGraph(attributePaths = "landlord")
+    @Query(TITLE_CONTAINING)
+    List<Property> findByTitleContaining(@Param("title") String title);
 
 //    find properties by specific landlord id
+    @EntityGraph(attributePaths = "landlord")
     List<Property> findByLandlordId(Long landlordId);
 
+    // findById stays lazy for the write paths; reads that build a PropertyDto use this
+    @EntityGraph(attributePaths = "landlord")
+    Optional<Property> findWithLandlordById(Long id);
+
+    // Criteria of the filter search, shared by the list, page and count queries below.
+    // Null checks cast their parameter, since Postgres cannot type a bare null or an untyped date on its own.
+    String FILTER_CONDITIONS = "(CAST(:title AS String) IS NULL OR LOWER(p.title) LIKE LOWER(CONCAT('%', CAST(:title AS String), '%'))) AND " +
+            "(CAST(:address AS String) IS NULL OR LOWER(p.address) LIKE LOWER(CONCAT('%', CAST(:address AS String), '%'))) AND " +
+            "(CAST(:minRent AS Double) IS NULL OR p.rentAmount >= :minRent) AND " +
+            "(CAST(:maxRent AS Double) IS NULL OR p.rentAmount <= :maxRent) AND " +
+            "(CAST(:availableFrom AS LocalDate) IS NULL OR p.availableFrom <= :availableFrom) AND " +
+            "(CAST(:landlordId AS Long) IS NULL OR p.landlord.id = :landlordId) ";
+
     // Custom query to find properties with complex search criteria
-    @Query("SELECT p FROM Property p WHERE " +
-            "(:title IS NULL OR LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%'))) AND " +
-            "(:address IS NULL OR LOWER(p.address) LIKE LOWER(CONCAT('%', :address, '%'))) AND " +
-            "(:minRent IS NULL OR p.rentAmount >= :minRent) AND " +
-            "(:maxRent IS NULL OR p.rentAmount <= :maxRent) AND " +
-            "(:availableFrom IS NULL OR p.availableFrom <= :availableFrom)")
+    String PROPERTIES_WITH_FILTERS = "SELECT p FROM Property p WHERE " + FILTER_CONDITIONS;
+
+    @EntityGraph(attributePaths = "landlord")
+    @Query(PROPERTIES_WITH_FILTERS)
     List<Property> findPropertiesWithFilters(@Param("title") String title,
                                              @Param("address") String address,
                                              @Param("minRent") Double minRent,
                                              @Param("maxRent") Double maxRent,
-                                             @Param("availableFrom") LocalDate availableFrom);
+                                             @Param("availableFrom") LocalDate availableFrom,
+                                             @Param("landlordId") Long landlordId);
+
+    // Keyset pages over the filter criteria, one query per PropertySort. A page starts strictly after
+    // the cursor's (sort key, id) and reads in the order of the matching (key, id) index; landlords come in the same statement.
+    String PROPERTY_PAGE = "SELECT p FROM Property p JOIN FETCH p.landlord WHERE " + FILTER_CONDITIONS;
+
+    @Query(PROPERTY_PAGE + "AND p.id < :afterId ORDER BY p.id DESC")
+    List<Property> findNewestPage(@Param("title") String title,
+                                  @Param("address") String address,
+                                  @Param("minRent") Double minRent,
+                                  @Param("maxRent") Double maxRent,
+                                  @Param("availableFrom") LocalDate availableFrom,
+                                  @Param("landlordId") Long landlordId,
+                                  @Param("afterId") long afterId,
+                                  Limit limit);
+
+    @Query(PROPERTY_PAGE + "AND (p.rentAmount, p.id) > (:afterRent, :afterId) ORDER BY p.rentAmount, p.id")
+    List<Property> findRentAscendingPage(@Param("title") String title,
+                                         @Param("address") String address,
+                                         @Param("minRent") Double minRent,
+                                         @Param("maxRent") Double maxRent,
+                                         @Param("availableFrom") LocalDate availableFrom,
+                                         @Param("landlordId") Long landlordId,
+                                         @Param("afterRent") double afterRent,
+                                         @Param("afterId") long afterId,
+                                         Limit limit);
+
+    @Query(PROPERTY_PAGE + "AND (p.rentAmount, p.id) < (:afterRent, :afterId) ORDER BY p.rentAmount DESC, p.id DESC")
+    List<Property> findRentDescendingPage(@Param("title") String title,
+                                          @Param("address") String address,
+                                          @Param("minRent") Double minRent,
+                                          @Param("maxRent") Double maxRent,
+                                          @Param("availableFrom") LocalDate availableFrom,
+                                          @Param("landlordId") Long landlordId,
+                                          @Param("afterRent") double afterRent,
+                                          @Param("afterId") long afterId,
+                                          Limit limit);
+
+    @Query(PROPERTY_PAGE + "AND (p.availableFrom, p.id) > (:afterDate, :afterId) ORDER BY p.availableFrom, p.id")
+    List<Property> findAvailableFromPage(@Param("title") String title,
+                                         @Param("address") String address,
+                                         @Param("minRent") Double minRent,
+                                         @Param("maxRent") Double maxRent,
+                                         @Param("availableFrom") LocalDate availableFrom,
+                                         @Param("landlordId") Long landlordId,
+                                         @Param("afterDate") LocalDate afterDate,
+                                         @Param("afterId") long afterId,
+                                         Limit limit);
+
+    // Total matches for a paged list, only run when the client asks for it
+    @Query("SELECT COUNT(p) FROM Property p WHERE " + FILTER_CONDITIONS)
+    long countWithFilters(@Param("title") String title,
+                          @Param("address") String address,
+                          @Param("minRent") Double minRent,
+                          @Param("maxRent") Double maxRent,
+                          @Param("availableFrom") LocalDate availableFrom,
+                          @Param("landlordId") Long landlordId);
+
+    // Facet counts of the filter search when the index cannot serve them, bucketed as PropertyFacets buckets them,
+    // rent buckets and months ascending
+    String RENT_BUCKET = "GREATEST(0, LEAST(" + (PropertyFacets.RENT_BUCKETS - 1) + ", FLOOR(p.rentAmount / " + PropertyFacets.RENT_BUCKET_WIDTH + ")))";
+    String AVAILABLE_MONTH = "(YEAR(p.availableFrom) * 12 + MONTH(p.availableFrom) - 1)";
+
+    @Query("SELECT " + RENT_BUCKET + ", COUNT(p) FROM Property p WHERE " + FILTER_CONDITIONS + "GROUP BY " + RENT_BUCKET + " ORDER BY " + RENT_BUCKET)
+    List<Object[]> countByRentBucket(@Param("title") String title,
+                                     @Param("address") String address,
+                                     @Param("minRent") Double minRent,
+                                     @Param("maxRent") Double maxRent,
+                                     @Param("availableFrom") LocalDate availableFrom,
+                                     @Param("landlordId") Long landlordId);
+
+    @Query("SELECT " + AVAILABLE_MONTH + ", COUNT(p) FROM Property p WHERE " + FILTER_CONDITIONS +
+            "AND p.availableFrom IS NOT NULL GROUP BY " + AVAILABLE_MONTH + " ORDER BY " + AVAILABLE_MONTH)
+    List<Object[]> countByAvailableMonth(@Param("title") String title,
+                                         @Param("address") String address,
+                                         @Param("minRent") Double minRent,
+                                         @Param("maxRent") Double maxRent,
+                                         @Param("availableFrom") LocalDate availableFrom,
+                                         @Param("landlordId") Long landlordId);
+
+    // Landlords with the most matches first
+    @Query("SELECT p.landlord.id, COUNT(p) FROM Property p WHERE " + FILTER_CONDITIONS +
+            "AND p.landlord IS NOT NULL GROUP BY p.landlord.id ORDER BY COUNT(p) DESC, p.landlord.id")
+    List<Object[]> countByLandlord(@Param("title") String title,
+                                   @Param("address") String address,
+                                   @Param("minRent") Double minRent,
+                                   @Param("maxRent") Double maxRent,
+                                   @Param("availableFrom") LocalDate availableFrom,
+                                   @Param("landlordId") Long landlordId,
+                                   Limit limit);
+
+    // Great-circle distance in km from (:lat, :lng) by the haversine formula, as GeoFilter.distanceKm computes it
+    String DISTANCE_KM = "(6371.0088 * 2 * ASIN(LEAST(1, SQRT(POWER(SIN(RADIANS(p.latitude - :lat) / 2), 2) + " +
+            "COS(RADIANS(:lat)) * COS(RADIANS(p.latitude)) * POWER(SIN(RADIANS(p.longitude - :lng) / 2), 2)))))";
+
+    // The bounding box goes through idx_properties_location; the radius is checked on what is left
+    String NEAR_CONDITIONS = FILTER_CONDITIONS +
+            "AND p.latitude BETWEEN :south AND :north AND p.longitude BETWEEN :west AND :east " +
+            "AND (CAST(:radiusKm AS Double) IS NULL OR " + DISTANCE_KM + " <= :radiusKm) ";
+
+    // Near search when the index cannot serve it: each row with its distance, nearest first
+    @Query("SELECT p, " + DISTANCE_KM + " FROM Property p JOIN FETCH p.landlord WHERE " + NEAR_CONDITIONS +
+            "AND (" + DISTANCE_KM + ", p.id) > (:afterDistance, :afterId) ORDER BY " + DISTANCE_KM + ", p.id")
+    List<Object[]> findNearPage(@Param("title") String title,
+                                @Param("address") String address,
+                                @Param("minRent") Double minRent,
+                                @Param("maxRent") Double maxRent,
+                                @Param("availableFrom") LocalDate availableFrom,
+                                @Param("landlordId") Long landlordId,
+                                @Param("lat") double latitude,
+                                @Param("lng") double longitude,
+                                @Param("radiusKm") Double radiusKm,
+                                @Param("south") double south,
+                                @Param("west") double west,
+                                @Param("north") double north,
+                                @Param("east") double east,
+                                @Param("afterDistance") double afterDistance,
+                                @Param("afterId") long afterId,
+                                Limit limit);
+
+    @Query("SELECT COUNT(p) FROM Property p WHERE " + NEAR_CONDITIONS)
+    long countNear(@Param("title") String title,
+                   @Param("address") String address,
+                   @Param("minRent") Double minRent,
+                   @Param("maxRent") Double maxRent,
+                   @Param("availableFrom") LocalDate availableFrom,
+                   @Param("landlordId") Long landlordId,
+                   @Param("lat") double latitude,
+                   @Param("lng") double longitude,
+                   @Param("radiusKm") Double radiusKm,
+                   @Param("south") double south,
+                   @Param("west") double west,
+                   @Param("north") double north,
+                   @Param("east") double east);
+
+    // Fuzzy search when the search index cannot serve it: ids with their pg_trgm word similarity to the
+    // lower-cased term, best first. <% only keeps rows at or above pg_trgm.word_similarity_threshold,
+    // which setWordSimilarityThreshold sets for the current transaction, and is served by the trigram indexes.
+    @Query(value = "SELECT p.id, word_similarity(:term, lower(p.title)) AS similarity FROM properties p " +
+            "WHERE :term <% lower(p.title) ORDER BY similarity DESC, p.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findSimilarTitles(@Param("term") String term, @Param("limit") int limit);
+
+    @Query(value = "SELECT p.id, word_similarity(:term, lower(p.address)) AS similarity FROM properties p " +
+            "WHERE :term <% lower(p.address) ORDER BY similarity DESC, p.id DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findSimilarAddresses(@Param("term") String term, @Param("limit") int limit);
+
+    @Query(value = "SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)", nativeQuery = true)
+    String setWordSimilarityThreshold(@Param("threshold") String threshold);
+
+    // Streaming forms of the finders above for NDJSON responses. Each row comes with its landlord,
+    // and rows are read a fetch size at a time; consume inside a transaction and close.
+    @EntityGraph(attributePaths = "landlord")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    Stream<Property> streamAllBy();
+
+    @EntityGraph(attributePaths = "landlord")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    Stream<Property> streamByLandlordId(Long landlordId);
+
+    @EntityGraph(attributePaths = "landlord")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    Stream<Property> streamByAvailableFromLessThanEqual(LocalDate date);
+
+    @EntityGraph(attributePaths = "landlord")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    Stream<Property> streamByRentAmountBetween(double minRent, double maxRent);
+
+    @EntityGraph(attributePaths = "landlord")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    Stream<Property> streamByRentAmountLessThanEqual(double maxRent);
+
+    @EntityGraph(attributePaths = "landlord")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    @Query(ADDRESS_CONTAINING)
+    Stream<Property> streamByAddressContaining(@Param("address") String address);
+
+    @EntityGraph(attributePaths = "landlord")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    @Query(TITLE_CONTAINING)
+    Stream<Property> streamByTitleContaining(@Param("title") String title);
+
+    @EntityGraph(attributePaths = "landlord")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    @Query(PROPERTIES_WITH_FILTERS)
+    Stream<Property> streamWithFilters(@Param("title") String title,
+                                       @Param("address") String address,
+                                       @Param("minRent") Double minRent,
+                                       @Param("maxRent") Double maxRent,
+                                       @Param("availableFrom") LocalDate availableFrom,
+                                       @Param("landlordId") Long landlordId);
+
+    // The columns the in-memory search index filters and sorts on, for every property, in id order
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE))
+    @Query("SELECT new com.link2lease.search.IndexedProperty(p.id, p.title, p.address, p.rentAmount, p.availableFrom, p.landlord.id, " +
+            "p.latitude, p.longitude) " +
+            "FROM Property p ORDER BY p.id")
+    Stream<IndexedProperty> streamIndexRows();
 
+    // Load search index matches with their landlords in one statement, in id order
+    @Query("SELECT p FROM Property p LEFT JOIN FETCH p.landlord WHERE p.id IN :ids ORDER BY p.id")
+    List<Property> findAllWithLandlordByIdIn(@Param("ids") Collection<Long> ids);
 }
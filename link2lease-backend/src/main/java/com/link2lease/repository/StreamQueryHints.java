@@ -0,0 +1,13 @@
+package com.link2lease.repository;
+
+/**
+ * Hint values for the repository methods that return a Stream.
+ * Postgres only fetches rows in chunks of the fetch size while a transaction is open,
+ * so callers consume these streams inside one; otherwise the driver reads the whole result up front.
+ */
+final class StreamQueryHints {
+    static final String FETCH_SIZE = "500";
+
+    private StreamQueryHints() {
+    }
+}
@@ -2,15 +2,30 @@ package com.link2lease.repository;
 
 import com.link2lease.enums.UserRole;
 import com.link2lease.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User,Long> {
     Optional<User> findUserByEmail(String email);
 
     List<User> findAllByRole(UserRole userRole);
+
+    @Query("SELECT u.role FROM User u WHERE u.id = :id")
+    Optional<UserRole> findRoleById(@Param("id") Long id);
+
+    // Every user, read a fetch size at a time for NDJSON responses
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = StreamQueryHints.FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u")
+    Stream<User> streamAll();
 }
@@ -0,0 +1,76 @@
+package com.link2lease.search;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Matches per value of one facet, only for values with matches, in ascending value order
+ * unless the counts were cut to the top values
+ */
+public record FacetCounts(long[] values, int[] counts) {
+
+    // Counts per value of an index's ascending values, plus those of values only later slots have, ascending too
+    static FacetCounts of(long[] values, int[] counts, SortedMap<Long, Integer> unindexed) {
+        int present = unindexed != null ? unindexed.size() : 0;
+        for (int count : counts) {
+            present += count > 0 ? 1 : 0;
+        }
+        long[] presentValues = new long[present];
+        int[] presentCounts = new int[present];
+        Iterator<Map.Entry<Long, Integer>> extra = unindexed != null ? unindexed.entrySet().iterator() : Collections.emptyIterator();
+        Map.Entry<Long, Integer> nextExtra = extra.hasNext() ? extra.next() : null;
+        int next = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            while (nextExtra != null && nextExtra.getKey() < values[i]) {
+                presentValues[next] = nextExtra.getKey();
+                presentCounts[next++] = nextExtra.getValue();
+                nextExtra = extra.hasNext() ? extra.next() : null;
+            }
+            presentValues[next] = values[i];
+            presentCounts[next++] = counts[i];
+        }
+        while (nextExtra != null) {
+            presentValues[next] = nextExtra.getKey();
+            presentCounts[next++] = nextExtra.getValue();
+            nextExtra = extra.hasNext() ? extra.next() : null;
+        }
+        return new FacetCounts(presentValues, presentCounts);
+    }
+
+    /**
+     * The n values with the most matches, most first and lower values first among equals
+     */
+    public FacetCounts top(int n) {
+        // Insertion into a list of the best n so far; n is small, and most values lose to its last entry
+        int[] best = new int[Math.min(n, values.length)];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (count == best.length && !ranksBefore(i, best[count - 1])) {
+                continue;
+            }
+            int at = count < best.length ? count++ : count - 1;
+            while (at > 0 && ranksBefore(i, best[at - 1])) {
+                best[at] = best[at - 1];
+                at--;
+            }
+            best[at] = i;
+        }
+        long[] topValues = new long[count];
+        int[] topCounts = new int[count];
+        for (int i = 0; i < count; i++) {
+            topValues[i] = values[best[i]];
+            topCounts[i] = counts[best[i]];
+        }
+        return new FacetCounts(topValues, topCounts);
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        return counts[a] != counts[b] ? counts[a] > counts[b] : values[a] < values[b];
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.link2lease.search;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntToLongFunction;
+
+/**
+ * One facet over the sorted slots of a PropertyColumns snapshot: the distinct values the slots have, each
+ * with the SlotBitmap of the slots having it. Counting a search's matches per value intersects each bitmap
+ * with a bitmap of the matches. When the matches are few next to what the bitmaps hold, they are instead
+ * looked up one by one in the slots' value ordinals, which is cheaper than touching every bitmap.
+ */
+final class FacetIndex {
+    // Key of a slot without a value for the facet
+    static final long NONE = Long.MIN_VALUE;
+
+    // Distinct values, ascending
+    private final long[] values;
+    // Per sorted slot, the index of its value in values, or -1
+    private final int[] ordinals;
+    private final SlotBitmap[] bitmaps;
+    // Words and array entries intersecting every bitmap reads
+    private final long intersectionCost;
+
+    private FacetIndex(long[] values, int[] ordinals, SlotBitmap[] bitmaps, long intersectionCost) {
+        this.values = values;
+        this.ordinals = ordinals;
+        this.bitmaps = bitmaps;
+        this.intersectionCost = intersectionCost;
+    }
+
+    /**
+     * Index the keys of slots [0, size), NONE for slots without a value
+     */
+    static FacetIndex build(long[] keys, int size) {
+        long[] values = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (keys[slot] != NONE) {
+                values[count++] = keys[slot];
+            }
+        }
+        Arrays.sort(values, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        values = Arrays.copyOf(values, distinct);
+
+        // Group the slots by value, ascending within each value, then cut each group into its bitmap
+        int[] ordinals = new int[size];
+        int[] offsets = new int[distinct + 1];
+        for (int slot = 0; slot < size; slot++) {
+            ordinals[slot] = keys[slot] != NONE ? Arrays.binarySearch(values, keys[slot]) : -1;
+            if (ordinals[slot] >= 0) {
+                offsets[ordinals[slot] + 1]++;
+            }
+        }
+        for (int value = 0; value < distinct; value++) {
+            offsets[value + 1] += offsets[value];
+        }
+        int[] grouped = new int[offsets[distinct]];
+        int[] next = Arrays.copyOf(offsets, distinct);
+        for (int slot = 0; slot < size; slot++) {
+            if (ordinals[slot] >= 0) {
+                grouped[next[ordinals[slot]]++] = slot;
+            }
+        }
+        SlotBitmap[] bitmaps = new SlotBitmap[distinct];
+        long intersectionCost = 0;
+        for (int value = 0; value < distinct; value++) {
+            bitmaps[value] = SlotBitmap.of(grouped, offsets[value], offsets[value + 1]);
+            intersectionCost += bitmaps[value].intersectionCost();
+        }
+        return new FacetIndex(values, ordinals, bitmaps, intersectionCost);
+    }
+
+    /**
+     * Matches per value, counted from the bitmap of the matches among the sorted slots unless the matches
+     * are few enough to look up one by one. Later slots are not in the index, so their keys come from keyOf.
+     */
+    FacetCounts count(int[] matches, int sortedMatches, MatchBitmap matchBitmap, IntToLongFunction keyOf) {
+        int[] counts = new int[values.length];
+        if (sortedMatches < intersectionCost) {
+            for (int slot : matches) {
+                if (slot < ordinals.length && ordinals[slot] >= 0) {
+                    counts[ordinals[slot]]++;
+                }
+            }
+        } else {
+            for (int value = 0; value < values.length; value++) {
+                counts[value] = bitmaps[value].andCardinality(matchBitmap.words(), matchBitmap.matchesPerChunk());
+            }
+        }
+
+        // Slots appended since the last compaction may have values no sorted slot has
+        SortedMap<Long, Integer> unindexed = null;
+        for (int slot : matches) {
+            if (slot < ordinals.length) {
+                continue;
+            }
+            long key = keyOf.applyAsLong(slot);
+            int value = key != NONE ? Arrays.binarySearch(values, key) : -1;
+            if (value >= 0) {
+                counts[value]++;
+            } else if (key != NONE) {
+                if (unindexed == null) {
+                    unindexed = new TreeMap<>();
+                }
+                unindexed.merge(key, 1, Integer::sum);
+            }
+        }
+        return FacetCounts.of(values, counts, unindexed);
+    }
+
+    // Bytes held by the bitmaps, for reporting what the facets cost
+    long bitmapBytes() {
+        long bytes = 0;
+        for (SlotBitmap bitmap : bitmaps) {
+            bytes += bitmap.containerBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * A search's matches among the sorted slots as a bitmap, built the first time a facet asks for it
+     */
+    static final class MatchBitmap {
+        private final int[] matches;
+        private final int sortedSize;
+        private long[] words;
+        private int[] matchesPerChunk;
+
+        MatchBitmap(int[] matches, int sortedSize) {
+            this.matches = matches;
+            this.sortedSize = sortedSize;
+        }
+
+        private long[] words() {
+            if (words == null) {
+                words = new long[(sortedSize + 63) >>> 6];
+                matchesPerChunk = new int[(sortedSize >>> SlotBitmap.CHUNK_BITS) + 1];
+                for (int slot : matches) {
+                    if (slot < sortedSize) {
+                        words[slot >>> 6] |= 1L << slot;
+                        matchesPerChunk[slot >>> SlotBitmap.CHUNK_BITS]++;
+                    }
+                }
+            }
+            return words;
+        }
+
+        private int[] matchesPerChunk() {
+            words();
+            return matchesPerChunk;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.link2lease.search;
+
+/**
+ * Area of a near search: a bounding box in degrees, cut down to a radius around the origin when one is given,
+ * with results ordered by great-circle distance from the origin. Boxes do not wrap across the antimeridian,
+ * so a radius reaching over it is clipped at ±180° longitude.
+ */
+public record GeoFilter(double latitude, double longitude, Double radiusKm,
+                        double south, double west, double north, double east) {
+
+    // Mean earth radius, as in PropertyRepository.DISTANCE_KM
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final double MAX_RADIUS_KM = 500;
+
+    /**
+     * Validate and combine the parameters of a near search: a radius around a point, a bounding box, or both.
+     * Without a point, distances are measured from the centre of the box.
+     */
+    public static GeoFilter of(Double latitude, Double longitude, Double radiusKm,
+                               Double south, Double west, Double north, Double east) {
+        boolean hasPoint = latitude != null || longitude != null;
+        if (hasPoint && (latitude == null || longitude == null)) {
+            throw new IllegalArgumentException("Latitude and longitude must be given together");
+        }
+        boolean hasBox = south != null || west != null || north != null || east != null;
+        if (hasBox && (south == null || west == null || north == null || east == null)) {
+            throw new IllegalArgumentException("A bounding box needs south, west, north and east");
+        }
+        if (!hasPoint && !hasBox) {
+            throw new IllegalArgumentException("Give a latitude and longitude or a bounding box");
+        }
+        if (radiusKm != null && !hasPoint) {
+            throw new IllegalArgumentException("A radius needs a latitude and longitude");
+        }
+
+        double boxSouth = -90;
+        double boxWest = -180;
+        double boxNorth = 90;
+        double boxEast = 180;
+        if (hasPoint) {
+            validatePoint(latitude, longitude);
+        }
+        if (hasBox) {
+            validatePoint(south, west);
+            validatePoint(north, east);
+            if (south > north) {
+                throw new IllegalArgumentException("South edge cannot be north of the north edge");
+            }
+            if (west > east) {
+                throw new IllegalArgumentException("Bounding boxes across the antimeridian are not supported");
+            }
+            boxSouth = south;
+            boxWest = west;
+            boxNorth = north;
+            boxEast = east;
+        }
+        if (radiusKm != null) {
+            if (!(radiusKm > 0) || radiusKm > MAX_RADIUS_KM) {
+                throw new IllegalArgumentException("Radius must be above 0 and at most " + (int) MAX_RADIUS_KM + " km");
+            }
+            // The smallest box holding the circle; near a pole it spans every longitude
+            double angle = radiusKm / EARTH_RADIUS_KM;
+            boxSouth = Math.max(boxSouth, latitude - Math.toDegrees(angle));
+            boxNorth = Math.min(boxNorth, latitude + Math.toDegrees(angle));
+            double cosLatitude = Math.cos(Math.toRadians(latitude));
+            if (Math.sin(angle) < cosLatitude) {
+                double deltaLongitude = Math.toDegrees(Math.asin(Math.sin(angle) / cosLatitude));
+                boxWest = Math.max(boxWest, longitude - deltaLongitude);
+                boxEast = Math.min(boxEast, longitude + deltaLongitude);
+            }
+        }
+
+        return new GeoFilter(hasPoint ? latitude : (boxSouth + boxNorth) / 2,
+                hasPoint ? longitude : (boxWest + boxEast) / 2,
+                radiusKm, boxSouth, boxWest, boxNorth, boxEast);
+    }
+
+    /**
+     * Whether a location is in the area. A property without coordinates never is.
+     */
+    public boolean contains(Double latitude, Double longitude) {
+        return latitude != null && longitude != null && contains(latitude.doubleValue(), longitude.doubleValue());
+    }
+
+    boolean contains(double latitude, double longitude) {
+        return latitude >= south && latitude <= north && longitude >= west && longitude <= east
+                && (radiusKm == null || distanceKm(latitude, longitude) <= radiusKm);
+    }
+
+    /**
+     * Great-circle distance from the origin by the haversine formula, the same one the SQL fallback uses
+     */
+    public double distanceKm(double latitude, double longitude) {
+        double deltaLatitude = Math.toRadians(latitude - this.latitude);
+        double deltaLongitude = Math.toRadians(longitude - this.longitude);
+        double h = Math.pow(Math.sin(deltaLatitude / 2), 2)
+                + Math.cos(Math.toRadians(this.latitude)) * Math.cos(Math.toRadians(latitude))
+                * Math.pow(Math.sin(deltaLongitude / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private static void validatePoint(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new IllegalArgumentException("Latitude must be between -90 and 90");
+        }
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Longitude must be between -180 and 180");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.link2lease.search;
+
+/**
+ * A page of index matches in sort order, with each id's sort key for building the next cursor,
+ * the number of matches across all pages and, when asked for, the facet counts of those matches
+ */
+public record IndexPage(long[] ids, double[] sortKeys, boolean hasMore, int total, PropertyFacets facets) {
+
+    public IndexPage(long[] ids, double[] sortKeys, boolean hasMore, int total) {
+        this(ids, sortKeys, hasMore, total, null);
+    }
+}
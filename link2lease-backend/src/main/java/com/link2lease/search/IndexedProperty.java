@@ -0,0 +1,18 @@
+package com.link2lease.search;
+
+import com.link2lease.dto.PropertyDto;
+
+import java.time.LocalDate;
+
+/**
+ * The fields of a property the search index filters on
+ */
+public record IndexedProperty(Long id, String title, String address, double rentAmount, LocalDate availableFrom, Long landlordId,
+                              Double latitude, Double longitude) {
+
+    public static IndexedProperty of(PropertyDto property) {
+        return new IndexedProperty(property.getId(), property.getTitle(), property.getAddress(),
+                property.getRentAmount(), property.getAvailableFrom(), property.getLandlordId(),
+                property.getLatitude(), property.getLongitude());
+    }
+}
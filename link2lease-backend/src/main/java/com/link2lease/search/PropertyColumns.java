@@ -0,0 +1,699 @@
+package com.link2lease.search;
+
+import com.link2lease.enums.PropertySort;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Immutable snapshot of the property search index: one primitive array per filtered field, indexed by slot.
+ * Slots below the sorted size also appear in four sorted views (rent, available-from epoch day,
+ * landlord id and a grid cell of the location), so a range filter is two binary searches and a geo area
+ * two per grid row it spans. Their titles and addresses are in trigram indexes, which narrow a text filter
+ * to the slots having every trigram of the term. Slots appended since the last compaction are checked one
+ * by one. A search drives from the narrowest of its ranges or trigram matches when that is small and
+ * otherwise scans the columns in slot order; either way the other criteria are read straight from the columns.
+ * Facet counts of a search come from per-value slot bitmaps of the rent bucket, available-from month and
+ * landlord, intersected with the search's matches.
+ * <p>
+ * Changes produce a new snapshot. An update retires the old slot and appends a new one, sharing the
+ * column arrays with the previous snapshot, which never reads past its own size. Once enough slots are
+ * unsorted or retired, the live slots are compacted into fresh arrays and sorted again.
+ */
+public final class PropertyColumns {
+    // Sorts after every real date, so a property without one never matches an availability filter
+    static final int NO_DATE = Integer.MAX_VALUE;
+    static final long NO_LANDLORD = Long.MIN_VALUE;
+    // Sorts after every real cell, for properties without a location
+    static final long NO_CELL = Long.MAX_VALUE;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MIN_COMPACTION_SLOTS = 1024;
+    // A range driving the search must cover less than 1/SEQUENTIAL_SCAN_SHARE of the sorted slots
+    private static final int SEQUENTIAL_SCAN_SHARE = 4;
+    // Grid cells are 0.01° square, about 1.1 km north to south; a cell key is its row times the row width plus its column
+    private static final double CELL_DEGREES = 0.01;
+    private static final long CELLS_PER_ROW = 36_001;
+    // Taller areas cover so much of the index that they are scanned instead
+    private static final int MAX_GRID_ROWS = 1_000;
+
+    private final int size;
+    private final int liveCount;
+    private final BitSet live;
+    private final long[] ids;
+    private final double[] rents;
+    private final int[] availableDays;
+    private final long[] landlordIds;
+    private final String[] titles;
+    private final String[] addresses;
+    // NaN without a location
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private final int sortedSize;
+    private final int[] slotsByRent;
+    private final double[] sortedRents;
+    private final int[] slotsByDay;
+    private final int[] sortedDays;
+    private final int[] slotsByLandlord;
+    private final long[] sortedLandlords;
+    private final int[] slotsByCell;
+    private final long[] sortedCells;
+    private final TrigramIndex titleTrigrams;
+    private final TrigramIndex addressTrigrams;
+    private final FacetIndex rentFacet;
+    private final FacetIndex monthFacet;
+    private final FacetIndex landlordFacet;
+
+    private PropertyColumns(int size, int liveCount, BitSet live, long[] ids, double[] rents, int[] availableDays,
+                            long[] landlordIds, String[] titles, String[] addresses, double[] latitudes, double[] longitudes,
+                            PropertyColumns sortedFrom) {
+        this.size = size;
+        this.liveCount = liveCount;
+        this.live = live;
+        this.ids = ids;
+        this.rents = rents;
+        this.availableDays = availableDays;
+        this.landlordIds = landlordIds;
+        this.titles = titles;
+        this.addresses = addresses;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        if (sortedFrom != null) {
+            this.sortedSize = sortedFrom.sortedSize;
+            this.slotsByRent = sortedFrom.slotsByRent;
+            this.sortedRents = sortedFrom.sortedRents;
+            this.slotsByDay = sortedFrom.slotsByDay;
+            this.sortedDays = sortedFrom.sortedDays;
+            this.slotsByLandlord = sortedFrom.slotsByLandlord;
+            this.sortedLandlords = sortedFrom.sortedLandlords;
+            this.slotsByCell = sortedFrom.slotsByCell;
+            this.sortedCells = sortedFrom.sortedCells;
+            this.titleTrigrams = sortedFrom.titleTrigrams;
+            this.addressTrigrams = sortedFrom.addressTrigrams;
+            this.rentFacet = sortedFrom.rentFacet;
+            this.monthFacet = sortedFrom.monthFacet;
+            this.landlordFacet = sortedFrom.landlordFacet;
+            return;
+        }
+
+        // Only built over compacted columns, where every slot below size is live
+        this.sortedSize = size;
+        long[] keys = new long[size];
+        for (int slot = 0; slot < size; slot++) {
+            keys[slot] = sortableBits(rents[slot]);
+        }
+        this.slotsByRent = sortSlots(keys);
+        this.sortedRents = new double[size];
+        for (int slot = 0; slot < size; slot++) {
+            keys[slot] = availableDays[slot];
+        }
+        this.slotsByDay = sortSlots(keys);
+        this.sortedDays = new int[size];
+        this.slotsByLandlord = sortSlots(Arrays.copyOf(landlordIds, size));
+        this.sortedLandlords = new long[size];
+        for (int slot = 0; slot < size; slot++) {
+            keys[slot] = cell(latitudes[slot], longitudes[slot]);
+        }
+        this.slotsByCell = sortSlots(keys);
+        this.sortedCells = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedRents[i] = rents[slotsByRent[i]];
+            sortedDays[i] = availableDays[slotsByDay[i]];
+            sortedLandlords[i] = landlordIds[slotsByLandlord[i]];
+            sortedCells[i] = keys[slotsByCell[i]];
+        }
+        this.titleTrigrams = TrigramIndex.build(titles, size);
+        this.addressTrigrams = TrigramIndex.build(addresses, size);
+        for (int slot = 0; slot < size; slot++) {
+            keys[slot] = rentFacetKey(slot);
+        }
+        this.rentFacet = FacetIndex.build(keys, size);
+        for (int slot = 0; slot < size; slot++) {
+            keys[slot] = monthFacetKey(slot);
+        }
+        this.monthFacet = FacetIndex.build(keys, size);
+        for (int slot = 0; slot < size; slot++) {
+            keys[slot] = landlordFacetKey(slot);
+        }
+        this.landlordFacet = FacetIndex.build(keys, size);
+    }
+
+    /**
+     * Index the properties from scratch. slotById is cleared and refilled with their slots.
+     */
+    public static PropertyColumns build(Collection<IndexedProperty> properties, Map<Long, Integer> slotById) {
+        int capacity = Math.max(properties.size(), MIN_CAPACITY);
+        long[] ids = new long[capacity];
+        double[] rents = new double[capacity];
+        int[] availableDays = new int[capacity];
+        long[] landlordIds = new long[capacity];
+        String[] titles = new String[capacity];
+        String[] addresses = new String[capacity];
+        double[] latitudes = new double[capacity];
+        double[] longitudes = new double[capacity];
+
+        slotById.clear();
+        int slot = 0;
+        for (IndexedProperty property : properties) {
+            write(slot, property, ids, rents, availableDays, landlordIds, titles, addresses, latitudes, longitudes);
+            slotById.put(property.id(), slot);
+            slot++;
+        }
+        BitSet live = new BitSet(capacity);
+        live.set(0, slot);
+        return new PropertyColumns(slot, slot, live, ids, rents, availableDays, landlordIds, titles, addresses,
+                latitudes, longitudes, null);
+    }
+
+    /**
+     * Apply a batch of changes, a null value meaning the property was deleted.
+     * slotById must be the map this snapshot was built or changed with; it is updated in place.
+     */
+    PropertyColumns withChanges(Map<Long, IndexedProperty> changes, Map<Long, Integer> slotById) {
+        BitSet nextLive = (BitSet) live.clone();
+        int nextLiveCount = liveCount;
+        int nextSize = size;
+        long[] nextIds = ids;
+        double[] nextRents = rents;
+        int[] nextDays = availableDays;
+        long[] nextLandlords = landlordIds;
+        String[] nextTitles = titles;
+        String[] nextAddresses = addresses;
+        double[] nextLatitudes = latitudes;
+        double[] nextLongitudes = longitudes;
+
+        for (Map.Entry<Long, IndexedProperty> change : changes.entrySet()) {
+            Integer previous = slotById.remove(change.getKey());
+            if (previous != null) {
+                nextLive.clear(previous);
+                nextLiveCount--;
+            }
+            IndexedProperty property = change.getValue();
+            if (property == null) {
+                continue;
+            }
+
+            if (nextSize == nextIds.length) {
+                int capacity = nextSize + (nextSize >> 1);
+                nextIds = Arrays.copyOf(nextIds, capacity);
+                nextRents = Arrays.copyOf(nextRents, capacity);
+                nextDays = Arrays.copyOf(nextDays, capacity);
+                nextLandlords = Arrays.copyOf(nextLandlords, capacity);
+                nextTitles = Arrays.copyOf(nextTitles, capacity);
+                nextAddresses = Arrays.copyOf(nextAddresses, capacity);
+                nextLatitudes = Arrays.copyOf(nextLatitudes, capacity);
+                nextLongitudes = Arrays.copyOf(nextLongitudes, capacity);
+            }
+            write(nextSize, property, nextIds, nextRents, nextDays, nextLandlords, nextTitles, nextAddresses,
+                    nextLatitudes, nextLongitudes);
+            nextLive.set(nextSize);
+            nextLiveCount++;
+            slotById.put(property.id(), nextSize);
+            nextSize++;
+        }
+
+        PropertyColumns next = new PropertyColumns(nextSize, nextLiveCount, nextLive, nextIds, nextRents, nextDays,
+                nextLandlords, nextTitles, nextAddresses, nextLatitudes, nextLongitudes, this);
+        int threshold = Math.max(MIN_COMPACTION_SLOTS, nextLiveCount / 32);
+        boolean compact = nextSize - sortedSize > threshold || nextSize - nextLiveCount > threshold;
+        return compact ? next.compact(slotById) : next;
+    }
+
+    /**
+     * Ids of the matching properties, ascending
+     */
+    public long[] search(PropertyFilter filter) {
+        int[] slots = matchingSlots(filter);
+        long[] result = new long[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            result[i] = ids[slots[i]];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Up to limit matching properties in the sort's order, starting strictly after (afterKey, afterId).
+     * A key is the sort's key as a double: the rent, the available-from epoch day, or 0 for NEWEST.
+     */
+    public IndexPage page(PropertyFilter filter, PropertySort sort, double afterKey, long afterId, int limit) {
+        return page(filter, sort, afterKey, afterId, limit, false);
+    }
+
+    /**
+     * A page as above, with the facet counts of all matches when withFacets is set
+     */
+    public IndexPage page(PropertyFilter filter, PropertySort sort, double afterKey, long afterId, int limit, boolean withFacets) {
+        int[] slots = matchingSlots(filter);
+        IndexPage page = page(slots, slot -> sortKey(slot, sort), sort.isDescending(), afterKey, afterId, limit);
+        return withFacets ? new IndexPage(page.ids(), page.sortKeys(), page.hasMore(), page.total(), facets(slots)) : page;
+    }
+
+    /**
+     * Up to limit properties in the filter's geo area, nearest its origin first, starting strictly after
+     * (afterDistanceKm, afterId). The sort keys of the page are the distances in kilometres.
+     */
+    public IndexPage nearest(PropertyFilter filter, double afterDistanceKm, long afterId, int limit) {
+        GeoFilter geo = filter.geo();
+        return page(matchingSlots(filter), slot -> geo.distanceKm(latitudes[slot], longitudes[slot]), false,
+                afterDistanceKm, afterId, limit);
+    }
+
+    /**
+     * Up to limit properties whose title or address is similar to the query, best match first and newest first
+     * among equals. Similarity is the share of the query's trigrams the text has, as pg_trgm's word_similarity
+     * computes it when the matching words of the text are adjacent and in the query's order; in any other order
+     * they still count in full here. The sort keys of the page are the similarities, from minSimilarity to 1.
+     */
+    public IndexPage similar(TextField field, String query, double minSimilarity, int limit) {
+        long[] trigrams = TrigramIndex.trigrams(PropertyFilter.normalize(query));
+        if (trigrams.length == 0) {
+            return new IndexPage(new long[0], new double[0], false, 0);
+        }
+        // Rounding down first keeps a threshold of exactly k / n from being pushed to k + 1 hits
+        int minHits = Math.max(1, (int) Math.ceil(minSimilarity * trigrams.length - 1e-9));
+        String[] texts = field == TextField.TITLE ? titles : addresses;
+        short[] shared = (field == TextField.TITLE ? titleTrigrams : addressTrigrams).sharedCounts(trigrams, size);
+        for (int slot = sortedSize; slot < size; slot++) {
+            if (texts[slot] != null) {
+                shared[slot] = (short) TrigramIndex.shared(trigrams, TrigramIndex.trigrams(texts[slot]));
+            }
+        }
+
+        int[] matches = new int[64];
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (shared[slot] >= minHits && live.get(slot)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count << 1);
+                }
+                matches[count++] = slot;
+            }
+        }
+        return page(Arrays.copyOf(matches, count), slot -> shared[slot] / (double) trigrams.length, true,
+                Double.MAX_VALUE, Long.MAX_VALUE, limit);
+    }
+
+    int liveCount() {
+        return liveCount;
+    }
+
+    // The indexed fields of a slot, with title and address lower-cased as the columns hold them
+    IndexedProperty property(int slot) {
+        return new IndexedProperty(ids[slot], titles[slot], addresses[slot], rents[slot],
+                availableDays[slot] != NO_DATE ? LocalDate.ofEpochDay(availableDays[slot]) : null,
+                landlordIds[slot] != NO_LANDLORD ? landlordIds[slot] : null,
+                Double.isNaN(latitudes[slot]) ? null : latitudes[slot],
+                Double.isNaN(longitudes[slot]) ? null : longitudes[slot]);
+    }
+
+    // Size of the trigram postings, for reporting what the text indexes cost
+    long trigramPostings() {
+        return (long) titleTrigrams.postingCount() + addressTrigrams.postingCount();
+    }
+
+    // Size of the facet bitmaps, for reporting what the facets cost
+    long facetBytes() {
+        return rentFacet.bitmapBytes() + monthFacet.bitmapBytes() + landlordFacet.bitmapBytes();
+    }
+
+    // The three facets share one bitmap of the matches, built only if one of them intersects with it
+    private PropertyFacets facets(int[] slots) {
+        int sortedMatches = 0;
+        for (int slot : slots) {
+            sortedMatches += slot < sortedSize ? 1 : 0;
+        }
+        FacetIndex.MatchBitmap matchBitmap = new FacetIndex.MatchBitmap(slots, sortedSize);
+        return new PropertyFacets(
+                rentFacet.count(slots, sortedMatches, matchBitmap, this::rentFacetKey),
+                monthFacet.count(slots, sortedMatches, matchBitmap, this::monthFacetKey),
+                landlordFacet.count(slots, sortedMatches, matchBitmap, this::landlordFacetKey).top(PropertyFacets.MAX_LANDLORDS));
+    }
+
+    private long rentFacetKey(int slot) {
+        return PropertyFacets.rentBucket(rents[slot]);
+    }
+
+    private long monthFacetKey(int slot) {
+        return availableDays[slot] != NO_DATE ? PropertyFacets.month(LocalDate.ofEpochDay(availableDays[slot])) : FacetIndex.NONE;
+    }
+
+    private long landlordFacetKey(int slot) {
+        return landlordIds[slot] != NO_LANDLORD ? landlordIds[slot] : FacetIndex.NONE;
+    }
+
+    private IndexPage page(int[] slots, IntToDoubleFunction sortKey, boolean descending, double afterKey, long afterId, int limit) {
+        // The best limit + 1 matches after the position, in a heap whose root is the last of them in sort order.
+        // A later match only has to beat the root, so the work stays close to one comparison per match.
+        int capacity = limit + 1;
+        double[] heapKeys = new double[capacity];
+        long[] heapIds = new long[capacity];
+        int count = 0;
+        // Slots mostly follow id order, or key order when a sorted view drove the search, so visiting them
+        // in the sort's direction lets most matches lose to the root once the heap is full
+        for (int i = 0; i < slots.length; i++) {
+            int slot = descending ? slots[slots.length - 1 - i] : slots[i];
+            double key = sortKey.applyAsDouble(slot);
+            long id = ids[slot];
+            if (compare(descending, key, id, afterKey, afterId) <= 0) {
+                continue;
+            }
+            if (count < capacity) {
+                siftUp(descending, heapKeys, heapIds, count++, key, id);
+            } else if (compare(descending, key, id, heapKeys[0], heapIds[0]) < 0) {
+                siftDown(descending, heapKeys, heapIds, count, key, id);
+            }
+        }
+
+        // Emptying the heap yields the matches from last to first
+        int kept = count;
+        long[] pageIds = new long[kept];
+        double[] pageKeys = new double[kept];
+        for (int i = kept - 1; i >= 0; i--) {
+            pageIds[i] = heapIds[0];
+            pageKeys[i] = heapKeys[0];
+            count--;
+            if (count > 0) {
+                siftDown(descending, heapKeys, heapIds, count, heapKeys[count], heapIds[count]);
+            }
+        }
+        int pageSize = Math.min(kept, limit);
+        return new IndexPage(Arrays.copyOf(pageIds, pageSize), Arrays.copyOf(pageKeys, pageSize), kept > limit, slots.length);
+    }
+
+    private int[] matchingSlots(PropertyFilter filter) {
+        // Find the narrowest range the filter has in the sorted views, as [from, to) pairs over one view:
+        // a single pair for rent, availability and landlord, one per grid row for a geo area
+        int[] driver = null;
+        int[] bounds = null;
+        long covered = sortedSize;
+        if (filter.minRent() != null || filter.maxRent() != null) {
+            int lo = filter.minRent() != null ? firstIndex(sortedSize, i -> sortedRents[i] >= filter.minRent()) : 0;
+            int hi = filter.maxRent() != null ? firstIndex(sortedSize, i -> sortedRents[i] > filter.maxRent()) : sortedSize;
+            driver = slotsByRent;
+            bounds = new int[]{lo, Math.max(lo, hi)};
+            covered = bounds[1] - lo;
+        }
+        if (filter.availableFrom() != null) {
+            long day = filter.availableFrom().toEpochDay();
+            int hi = firstIndex(sortedSize, i -> sortedDays[i] > day);
+            if (hi < covered) {
+                driver = slotsByDay;
+                bounds = new int[]{0, hi};
+                covered = hi;
+            }
+        }
+        if (filter.landlordId() != null) {
+            long landlordId = filter.landlordId();
+            int lo = firstIndex(sortedSize, i -> sortedLandlords[i] >= landlordId);
+            int hi = firstIndex(sortedSize, i -> sortedLandlords[i] > landlordId);
+            if (hi - lo < covered) {
+                driver = slotsByLandlord;
+                bounds = new int[]{lo, hi};
+                covered = hi - lo;
+            }
+        }
+        if (filter.geo() != null) {
+            int[] cellBounds = cellBounds(filter.geo());
+            long cellsCovered = 0;
+            for (int b = 0; cellBounds != null && b < cellBounds.length; b += 2) {
+                cellsCovered += cellBounds[b + 1] - cellBounds[b];
+            }
+            if (cellBounds != null && cellsCovered < covered) {
+                driver = slotsByCell;
+                bounds = cellBounds;
+                covered = cellsCovered;
+            }
+        }
+
+        // Trigram matches are in slot order, so they drive whenever they are the narrowest
+        boolean inSlotOrder = false;
+        for (int[] candidates : new int[][]{
+                filter.title() != null ? titleTrigrams.containing(filter.title()) : null,
+                filter.address() != null ? addressTrigrams.containing(filter.address()) : null}) {
+            if (candidates != null && candidates.length < covered) {
+                driver = candidates;
+                bounds = new int[]{0, candidates.length};
+                covered = candidates.length;
+                inSlotOrder = true;
+            }
+        }
+
+        Criteria criteria = new Criteria(filter);
+        int[] matches = new int[64];
+        int count = 0;
+        // A sorted view visits slots in random order, so once its range covers a large share
+        // of the index a sequential pass over the columns is cheaper
+        if (driver != null && (inSlotOrder || covered * SEQUENTIAL_SCAN_SHARE < sortedSize)) {
+            for (int b = 0; b < bounds.length; b += 2) {
+                for (int i = bounds[b]; i < bounds[b + 1]; i++) {
+                    int slot = driver[i];
+                    if (matches(slot, criteria)) {
+                        if (count == matches.length) {
+                            matches = Arrays.copyOf(matches, count << 1);
+                        }
+                        matches[count++] = slot;
+                    }
+                }
+            }
+        } else {
+            for (int slot = 0; slot < sortedSize; slot++) {
+                if (matches(slot, criteria)) {
+                    if (count == matches.length) {
+                        matches = Arrays.copyOf(matches, count << 1);
+                    }
+                    matches[count++] = slot;
+                }
+            }
+        }
+        for (int slot = sortedSize; slot < size; slot++) {
+            if (matches(slot, criteria)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count << 1);
+                }
+                matches[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    // Ranges of the cell view holding the area's bounding box, one per grid row, or null when the box
+    // spans too many rows to be worth driving from
+    private int[] cellBounds(GeoFilter geo) {
+        if (geo.south() > geo.north()) {
+            return new int[0];
+        }
+        long firstRow = row(geo.south());
+        long lastRow = row(geo.north());
+        if (lastRow - firstRow >= MAX_GRID_ROWS) {
+            return null;
+        }
+        long westColumn = column(geo.west());
+        long eastColumn = column(geo.east());
+        int[] bounds = new int[2 * (int) (lastRow - firstRow + 1)];
+        for (long row = firstRow; row <= lastRow; row++) {
+            long first = row * CELLS_PER_ROW + westColumn;
+            long last = row * CELLS_PER_ROW + eastColumn;
+            int b = 2 * (int) (row - firstRow);
+            bounds[b] = firstIndex(sortedSize, i -> sortedCells[i] >= first);
+            bounds[b + 1] = Math.max(bounds[b], firstIndex(sortedSize, i -> sortedCells[i] > last));
+        }
+        return bounds;
+    }
+
+    private double sortKey(int slot, PropertySort sort) {
+        return switch (sort) {
+            case NEWEST -> 0;
+            case RENT_ASC, RENT_DESC -> rents[slot];
+            case AVAILABLE_FROM -> availableDays[slot];
+        };
+    }
+
+    private static void siftUp(boolean descending, double[] keys, long[] ids, int index, double key, long id) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(descending, key, id, keys[parent], ids[parent]) <= 0) {
+                break;
+            }
+            keys[index] = keys[parent];
+            ids[index] = ids[parent];
+            index = parent;
+        }
+        keys[index] = key;
+        ids[index] = id;
+    }
+
+    // Put (key, id) at the root of a heap of the given size, replacing the root, and restore the heap
+    private static void siftDown(boolean descending, double[] keys, long[] ids, int size, double key, long id) {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && compare(descending, keys[child + 1], ids[child + 1], keys[child], ids[child]) > 0) {
+                child++;
+            }
+            if (compare(descending, keys[child], ids[child], key, id) <= 0) {
+                break;
+            }
+            keys[index] = keys[child];
+            ids[index] = ids[child];
+            index = child;
+        }
+        keys[index] = key;
+        ids[index] = id;
+    }
+
+    // Negative when (keyA, idA) comes first in the sort's order
+    private static int compare(boolean descending, double keyA, long idA, double keyB, long idB) {
+        int order = Double.compare(keyA, keyB);
+        if (order == 0) {
+            order = Long.compare(idA, idB);
+        }
+        return descending ? -order : order;
+    }
+
+    private boolean matches(int slot, Criteria criteria) {
+        return live.get(slot)
+                && rents[slot] >= criteria.minRent
+                && rents[slot] <= criteria.maxRent
+                && availableDays[slot] <= criteria.maxDay
+                && (!criteria.byLandlord || landlordIds[slot] == criteria.landlordId)
+                && PropertyFilter.contains(titles[slot], criteria.title)
+                && PropertyFilter.contains(addresses[slot], criteria.address)
+                && (criteria.geo == null || criteria.geo.contains(latitudes[slot], longitudes[slot]));
+    }
+
+    private PropertyColumns compact(Map<Long, Integer> slotById) {
+        int capacity = Math.max(liveCount, MIN_CAPACITY);
+        long[] compactIds = new long[capacity];
+        double[] compactRents = new double[capacity];
+        int[] compactDays = new int[capacity];
+        long[] compactLandlords = new long[capacity];
+        String[] compactTitles = new String[capacity];
+        String[] compactAddresses = new String[capacity];
+        double[] compactLatitudes = new double[capacity];
+        double[] compactLongitudes = new double[capacity];
+
+        int next = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0 && slot < size; slot = live.nextSetBit(slot + 1)) {
+            compactIds[next] = ids[slot];
+            compactRents[next] = rents[slot];
+            compactDays[next] = availableDays[slot];
+            compactLandlords[next] = landlordIds[slot];
+            compactTitles[next] = titles[slot];
+            compactAddresses[next] = addresses[slot];
+            compactLatitudes[next] = latitudes[slot];
+            compactLongitudes[next] = longitudes[slot];
+            slotById.put(ids[slot], next);
+            next++;
+        }
+        BitSet compactLive = new BitSet(capacity);
+        compactLive.set(0, next);
+        return new PropertyColumns(next, next, compactLive, compactIds, compactRents, compactDays,
+                compactLandlords, compactTitles, compactAddresses, compactLatitudes, compactLongitudes, null);
+    }
+
+    private static void write(int slot, IndexedProperty property, long[] ids, double[] rents, int[] availableDays,
+                              long[] landlordIds, String[] titles, String[] addresses, double[] latitudes, double[] longitudes) {
+        ids[slot] = property.id();
+        rents[slot] = property.rentAmount();
+        availableDays[slot] = property.availableFrom() != null ? (int) property.availableFrom().toEpochDay() : NO_DATE;
+        landlordIds[slot] = property.landlordId() != null ? property.landlordId() : NO_LANDLORD;
+        titles[slot] = PropertyFilter.normalize(property.title());
+        addresses[slot] = PropertyFilter.normalize(property.address());
+        boolean located = property.latitude() != null && property.longitude() != null;
+        latitudes[slot] = located ? property.latitude() : Double.NaN;
+        longitudes[slot] = located ? property.longitude() : Double.NaN;
+    }
+
+    private static long cell(double latitude, double longitude) {
+        return Double.isNaN(latitude) ? NO_CELL : row(latitude) * CELLS_PER_ROW + column(longitude);
+    }
+
+    private static long row(double latitude) {
+        return (long) Math.floor((latitude + 90) / CELL_DEGREES);
+    }
+
+    private static long column(double longitude) {
+        return (long) Math.floor((longitude + 180) / CELL_DEGREES);
+    }
+
+    // First index in [0, n) at which the predicate holds, for a predicate that is monotonic over the index
+    private static int firstIndex(int n, IntPredicate holds) {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (holds.test(mid)) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    // Slots ordered by key. Keys are replaced by their rank so rank and slot pack into one long,
+    // letting a primitive sort do the work instead of sorting boxed indexes with a comparator.
+    private static int[] sortSlots(long[] keys) {
+        long[] distinct = keys.clone();
+        Arrays.sort(distinct);
+        int distinctCount = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[distinctCount++] = distinct[i];
+            }
+        }
+
+        long[] packed = new long[keys.length];
+        for (int slot = 0; slot < keys.length; slot++) {
+            long rank = Arrays.binarySearch(distinct, 0, distinctCount, keys[slot]);
+            packed[slot] = rank << 32 | slot;
+        }
+        Arrays.sort(packed);
+
+        int[] slots = new int[keys.length];
+        for (int i = 0; i < packed.length; i++) {
+            slots[i] = (int) packed[i];
+        }
+        return slots;
+    }
+
+    // The filter unboxed once per search rather than once per slot
+    private static final class Criteria {
+        private final double minRent;
+        private final double maxRent;
+        private final long maxDay;
+        private final boolean byLandlord;
+        private final long landlordId;
+        private final String title;
+        private final String address;
+        private final GeoFilter geo;
+
+        private Criteria(PropertyFilter filter) {
+            this.minRent = filter.minRent() != null ? filter.minRent() : Double.NEGATIVE_INFINITY;
+            this.maxRent = filter.maxRent() != null ? filter.maxRent() : Double.POSITIVE_INFINITY;
+            this.maxDay = filter.availableFrom() != null ? filter.availableFrom().toEpochDay() : Long.MAX_VALUE;
+            this.byLandlord = filter.landlordId() != null;
+            this.landlordId = byLandlord ? filter.landlordId() : NO_LANDLORD;
+            this.title = filter.title();
+            this.address = filter.address();
+            this.geo = filter.geo();
+        }
+    }
+
+    // Long bits of a double that sort in the same order as the double values
+    private static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ (bits >> 63 & Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,22 @@
+package com.link2lease.search;
+
+import java.time.LocalDate;
+
+/**
+ * Facet counts of a search: its matches per rent bucket, per month of their available-from date and per
+ * landlord, the landlords cut to the MAX_LANDLORDS with the most matches. Rent buckets are RENT_BUCKET_WIDTH
+ * wide from 0, the last one open-ended; a month is numbered year * 12 + month - 1.
+ */
+public record PropertyFacets(FacetCounts rent, FacetCounts availableMonth, FacetCounts landlord) {
+    public static final int RENT_BUCKET_WIDTH = 500;
+    public static final int RENT_BUCKETS = 7;
+    public static final int MAX_LANDLORDS = 20;
+
+    public static long rentBucket(double rent) {
+        return Math.max(0, Math.min(RENT_BUCKETS - 1, (long) Math.floor(rent / RENT_BUCKET_WIDTH)));
+    }
+
+    public static long month(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+}
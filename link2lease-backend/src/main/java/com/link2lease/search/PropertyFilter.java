@@ -0,0 +1,41 @@
+package com.link2lease.search;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Criteria of a property search, with the same meaning as PropertyRepository.findPropertiesWithFilters:
+ * null criteria match everything, text matches case-insensitive substrings and availableFrom
+ * matches properties available on or before that date. A geo area, set for near searches only,
+ * matches the properties located inside it.
+ */
+public record PropertyFilter(String title, String address, Double minRent, Double maxRent, LocalDate availableFrom, Long landlordId,
+                             GeoFilter geo) {
+
+    public PropertyFilter {
+        title = title != null ? title.toLowerCase(Locale.ROOT) : null;
+        address = address != null ? address.toLowerCase(Locale.ROOT) : null;
+    }
+
+    public PropertyFilter(String title, String address, Double minRent, Double maxRent, LocalDate availableFrom, Long landlordId) {
+        this(title, address, minRent, maxRent, availableFrom, landlordId, null);
+    }
+
+    public boolean matches(IndexedProperty property) {
+        return (minRent == null || property.rentAmount() >= minRent)
+                && (maxRent == null || property.rentAmount() <= maxRent)
+                && (availableFrom == null || property.availableFrom() != null && !property.availableFrom().isAfter(availableFrom))
+                && (landlordId == null || landlordId.equals(property.landlordId()))
+                && contains(normalize(property.title()), title)
+                && contains(normalize(property.address()), address)
+                && (geo == null || geo.contains(property.latitude(), property.longitude()));
+    }
+
+    static boolean contains(String lowerCaseValue, String lowerCaseTerm) {
+        return lowerCaseTerm == null || lowerCaseValue != null && lowerCaseValue.contains(lowerCaseTerm);
+    }
+
+    static String normalize(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+}
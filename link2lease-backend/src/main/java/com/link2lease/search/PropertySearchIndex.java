@@ -0,0 +1,196 @@
+package com.link2lease.search;
+
+import com.link2lease.enums.PropertySort;
+import com.link2lease.event.DomainEvent;
+import com.link2lease.event.DomainEventConsumer;
+import com.link2lease.event.PropertyCreated;
+import com.link2lease.event.PropertyDeleted;
+import com.link2lease.event.PropertyUpdated;
+import com.link2lease.repository.PropertyRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index behind property search, so range filters on rent, availability and landlord, text
+ * filters, facet counts, fuzzy text search and typeahead over title and address words never reach Postgres.
+ * Built from the database once the application is ready, then kept current from committed
+ * property events, shortly after each write. Dropped events and landlord renames are healed by a
+ * periodic rebuild. Readers get a consistent snapshot without locking; changes are applied by one writer.
+ */
+@Component
+@Slf4j
+public class PropertySearchIndex implements DomainEventConsumer {
+    public static final int MAX_SUGGESTIONS = TokenTrie.MAX_SUGGESTIONS;
+
+    private final PropertyRepository propertyRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer rebuildTimer;
+    private final boolean enabled;
+
+    // Writer state, guarded by this
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    // Null until the first build, and searches fall back to SQL until then
+    private volatile PropertyColumns columns;
+    // Null until the first build, like columns
+    private volatile PropertySuggestions suggestions;
+
+    public PropertySearchIndex(PropertyRepository propertyRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${link2lease.property-index.enabled:true}") boolean enabled) {
+        this.propertyRepository = propertyRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+
+        this.rebuildTimer = Timer.builder("link2lease.property-index.rebuild")
+                .description("Time to rebuild the property search index from the database")
+                .register(meterRegistry);
+        Gauge.builder("link2lease.property-index.size", this, index -> index.columns != null ? index.columns.liveCount() : 0)
+                .description("Properties in the search index")
+                .register(meterRegistry);
+        Gauge.builder("link2lease.property-index.trigram-postings", this, index -> index.columns != null ? index.columns.trigramPostings() : 0)
+                .description("Entries in the title and address trigram indexes, 4 bytes each")
+                .register(meterRegistry);
+        Gauge.builder("link2lease.property-index.suggestion-words", this, index -> index.suggestions != null ? index.suggestions.wordCount() : 0)
+                .description("Distinct title and address words offered as typeahead suggestions")
+                .register(meterRegistry);
+        Gauge.builder("link2lease.property-index.suggestion-bytes", this, index -> index.suggestions != null ? index.suggestions.estimatedBytes() : 0)
+                .description("Estimated heap of the title and address suggestion tries, their words included")
+                .register(meterRegistry);
+        Gauge.builder("link2lease.property-index.facet-bytes", this, index -> index.columns != null ? index.columns.facetBytes() : 0)
+                .description("Bytes of the rent, availability month and landlord facet bitmaps")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ids of the properties matching the filter, ascending, or null while the index is not built
+     */
+    public long[] search(PropertyFilter filter) {
+        PropertyColumns snapshot = columns;
+        return snapshot != null ? snapshot.search(filter) : null;
+    }
+
+    /**
+     * A page of matches in the sort's order after the given position, with the facet counts of all matches
+     * when withFacets is set, or null while the index is not built
+     */
+    public IndexPage page(PropertyFilter filter, PropertySort sort, double afterKey, long afterId, int limit, boolean withFacets) {
+        PropertyColumns snapshot = columns;
+        return snapshot != null ? snapshot.page(filter, sort, afterKey, afterId, limit, withFacets) : null;
+    }
+
+    /**
+     * A page of matches in the filter's geo area by distance after the given position, or null while the index is not built
+     */
+    public IndexPage nearest(PropertyFilter filter, double afterDistanceKm, long afterId, int limit) {
+        PropertyColumns snapshot = columns;
+        return snapshot != null ? snapshot.nearest(filter, afterDistanceKm, afterId, limit) : null;
+    }
+
+    /**
+     * The best matches of a fuzzy search on one text field, or null while the index is not built
+     */
+    public IndexPage similar(TextField field, String query, double minSimilarity, int limit) {
+        PropertyColumns snapshot = columns;
+        return snapshot != null ? snapshot.similar(field, query, minSimilarity, limit) : null;
+    }
+
+    /**
+     * The best words of the field completing the last word of the input, or null while the index is not built
+     */
+    public List<Suggestion> suggest(TextField field, String prefix, int limit) {
+        PropertySuggestions snapshot = suggestions;
+        return snapshot != null ? snapshot.complete(field, prefix, limit) : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${link2lease.property-index.rebuild-interval-ms:600000}",
+            fixedDelayString = "${link2lease.property-index.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Replace the index with the current contents of the properties table. Events arriving meanwhile
+     * wait for the lock and are applied on top, so none committed after the read are lost.
+     */
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        List<IndexedProperty> properties = readOnlyTransaction.execute(status -> {
+            try (Stream<IndexedProperty> rows = propertyRepository.streamIndexRows()) {
+                return rows.toList();
+            }
+        });
+        columns = PropertyColumns.build(properties, slotById);
+        suggestions = PropertySuggestions.build(properties, LocalDate.now());
+        long elapsed = System.nanoTime() - started;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Indexed {} properties for search in {} ms", properties.size(), elapsed / 1_000_000);
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        // Last change per property wins; null marks a delete
+        Map<Long, IndexedProperty> changes = new LinkedHashMap<>();
+        for (DomainEvent event : events) {
+            switch (event) {
+                case PropertyCreated created -> changes.put(created.property().getId(), IndexedProperty.of(created.property()));
+                case PropertyUpdated updated -> changes.put(updated.property().getId(), IndexedProperty.of(updated.property()));
+                case PropertyDeleted deleted -> changes.put(deleted.propertyId(), null);
+                default -> {
+                }
+            }
+        }
+        if (!changes.isEmpty()) {
+            apply(changes);
+        }
+    }
+
+    private synchronized void apply(Map<Long, IndexedProperty> changes) {
+        // Before the first build there is nothing to change; the build reads these from the database
+        if (columns != null) {
+            // The suggestions take back what the previous version of each property added to them
+            List<IndexedProperty> removed = new ArrayList<>();
+            List<IndexedProperty> added = new ArrayList<>();
+            for (Map.Entry<Long, IndexedProperty> change : changes.entrySet()) {
+                Integer slot = slotById.get(change.getKey());
+                if (slot != null) {
+                    removed.add(columns.property(slot));
+                }
+                if (change.getValue() != null) {
+                    added.add(change.getValue());
+                }
+            }
+            columns = columns.withChanges(changes, slotById);
+            suggestions = suggestions.withChanges(removed, added);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.link2lease.search;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typeahead over the words of property titles and addresses, one trie per field. A word's weight is how
+ * many properties are available with it, then how many have it at all. Availability is judged against the
+ * day the suggestions were built, so incremental changes stay consistent with the counts they adjust;
+ * the search index's periodic rebuild moves that day forward.
+ */
+public final class PropertySuggestions {
+    // Single characters complete nothing useful
+    private static final int MIN_WORD_LENGTH = 2;
+
+    private final TokenTrie titleWords;
+    private final TokenTrie addressWords;
+    private final long day;
+
+    private PropertySuggestions(TokenTrie titleWords, TokenTrie addressWords, long day) {
+        this.titleWords = titleWords;
+        this.addressWords = addressWords;
+        this.day = day;
+    }
+
+    public static PropertySuggestions build(Collection<IndexedProperty> properties, LocalDate today) {
+        long day = today.toEpochDay();
+        Map<String, int[]> titleCounts = new HashMap<>();
+        Map<String, int[]> addressCounts = new HashMap<>();
+        for (IndexedProperty property : properties) {
+            int available = isAvailable(property, day) ? 1 : 0;
+            for (String word : words(property.title())) {
+                int[] counts = titleCounts.computeIfAbsent(word, w -> new int[2]);
+                counts[0] += available;
+                counts[1]++;
+            }
+            for (String word : words(property.address())) {
+                int[] counts = addressCounts.computeIfAbsent(word, w -> new int[2]);
+                counts[0] += available;
+                counts[1]++;
+            }
+        }
+        return new PropertySuggestions(TokenTrie.build(titleCounts), TokenTrie.build(addressCounts), day);
+    }
+
+    /**
+     * Apply property changes: the previous versions of changed and deleted properties are removed,
+     * the new versions of created and changed ones added
+     */
+    public PropertySuggestions withChanges(List<IndexedProperty> removed, List<IndexedProperty> added) {
+        // Net change per word, so an update keeping a word leaves its path untouched
+        Map<String, int[]> titleDeltas = new HashMap<>();
+        Map<String, int[]> addressDeltas = new HashMap<>();
+        for (IndexedProperty property : removed) {
+            count(property, -1, titleDeltas, addressDeltas);
+        }
+        for (IndexedProperty property : added) {
+            count(property, 1, titleDeltas, addressDeltas);
+        }
+        return new PropertySuggestions(apply(titleWords, titleDeltas), apply(addressWords, addressDeltas), day);
+    }
+
+    /**
+     * Completions of the last word of the input, which is empty when the input ends between words
+     */
+    public List<Suggestion> complete(TextField field, String input, int limit) {
+        int start = input.length();
+        while (start > 0 && Character.isLetterOrDigit(input.charAt(start - 1))) {
+            start--;
+        }
+        if (start == input.length()) {
+            return List.of();
+        }
+        String prefix = input.substring(start).toLowerCase(Locale.ROOT);
+        return (field == TextField.TITLE ? titleWords : addressWords).complete(prefix, limit);
+    }
+
+    int wordCount() {
+        return titleWords.size() + addressWords.size();
+    }
+
+    /**
+     * Approximate heap held by both tries, their words included
+     */
+    public long estimatedBytes() {
+        return titleWords.estimatedBytes() + addressWords.estimatedBytes();
+    }
+
+    private void count(IndexedProperty property, int sign, Map<String, int[]> titleDeltas, Map<String, int[]> addressDeltas) {
+        int available = isAvailable(property, day) ? sign : 0;
+        for (String word : words(property.title())) {
+            int[] delta = titleDeltas.computeIfAbsent(word, w -> new int[2]);
+            delta[0] += available;
+            delta[1] += sign;
+        }
+        for (String word : words(property.address())) {
+            int[] delta = addressDeltas.computeIfAbsent(word, w -> new int[2]);
+            delta[0] += available;
+            delta[1] += sign;
+        }
+    }
+
+    private static TokenTrie apply(TokenTrie trie, Map<String, int[]> deltas) {
+        for (Map.Entry<String, int[]> delta : deltas.entrySet()) {
+            if (delta.getValue()[0] != 0 || delta.getValue()[1] != 0) {
+                trie = trie.add(delta.getKey(), delta.getValue()[0], delta.getValue()[1]);
+            }
+        }
+        return trie;
+    }
+
+    private static boolean isAvailable(IndexedProperty property, long day) {
+        return property.availableFrom() != null && property.availableFrom().toEpochDay() <= day;
+    }
+
+    // Distinct lower-cased runs of letters and digits
+    static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < lowerCase.length()) {
+            if (!Character.isLetterOrDigit(lowerCase.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(end))) {
+                end++;
+            }
+            if (end - i >= MIN_WORD_LENGTH) {
+                words.add(lowerCase.substring(i, end));
+            }
+            i = end;
+        }
+        return words;
+    }
+}
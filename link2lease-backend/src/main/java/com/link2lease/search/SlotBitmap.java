@@ -0,0 +1,112 @@
+package com.link2lease.search;
+
+/**
+ * Immutable set of slots laid out the way Roaring bitmaps are: slots are split into chunks of 2^16 by their
+ * high bits, and each chunk holds its low bits either as a sorted array, while it has at most ARRAY_LIMIT of
+ * them, or as a 1024-word bitmap once that is smaller. Sparse sets cost two bytes a slot, dense ones a bit.
+ */
+final class SlotBitmap {
+    static final int CHUNK_BITS = 16;
+    // Above this many slots a chunk's array would outgrow its 8 KB bitmap
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << (CHUNK_BITS - 6);
+    // A container's cache misses, in array entries read
+    private static final int CONTAINER_COST = 16;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    // High bits of the chunks present, ascending
+    private final char[] chunks;
+    // Per chunk, a char[] of low bits ascending or a long[BITMAP_WORDS] bitmap
+    private final Object[] containers;
+
+    private SlotBitmap(char[] chunks, Object[] containers) {
+        this.chunks = chunks;
+        this.containers = containers;
+    }
+
+    /**
+     * The slots[from, to), which must be ascending
+     */
+    static SlotBitmap of(int[] slots, int from, int to) {
+        int chunkCount = 0;
+        for (int i = from; i < to; i++) {
+            if (i == from || slots[i] >>> CHUNK_BITS != slots[i - 1] >>> CHUNK_BITS) {
+                chunkCount++;
+            }
+        }
+        char[] chunks = new char[chunkCount];
+        Object[] containers = new Object[chunkCount];
+        int chunk = 0;
+        int start = from;
+        while (start < to) {
+            int high = slots[start] >>> CHUNK_BITS;
+            int end = start + 1;
+            while (end < to && slots[end] >>> CHUNK_BITS == high) {
+                end++;
+            }
+            chunks[chunk] = (char) high;
+            if (end - start <= ARRAY_LIMIT) {
+                char[] lows = new char[end - start];
+                for (int i = start; i < end; i++) {
+                    lows[i - start] = (char) slots[i];
+                }
+                containers[chunk] = lows;
+            } else {
+                long[] bits = new long[BITMAP_WORDS];
+                for (int i = start; i < end; i++) {
+                    int low = slots[i] & 0xFFFF;
+                    bits[low >>> 6] |= 1L << low;
+                }
+                containers[chunk] = bits;
+            }
+            chunk++;
+            start = end;
+        }
+        return new SlotBitmap(chunks, containers);
+    }
+
+    /**
+     * How many of these slots are set in the given bitmap over all slots. matchesPerChunk says how many bits
+     * each chunk of it has, so chunks without any are skipped.
+     */
+    int andCardinality(long[] words, int[] matchesPerChunk) {
+        int count = 0;
+        for (int c = 0; c < chunks.length; c++) {
+            int high = chunks[c];
+            if (high >= matchesPerChunk.length || matchesPerChunk[high] == 0) {
+                continue;
+            }
+            int base = high << (CHUNK_BITS - 6);
+            if (containers[c] instanceof long[] bits) {
+                int length = Math.min(BITMAP_WORDS, words.length - base);
+                for (int w = 0; w < length; w++) {
+                    count += Long.bitCount(bits[w] & words[base + w]);
+                }
+            } else {
+                for (char low : (char[]) containers[c]) {
+                    count += (int) (words[base + (low >>> 6)] >>> low) & 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Words and array entries andCardinality reads when every chunk has matches, each container also
+    // counting as CONTAINER_COST for reaching it
+    int intersectionCost() {
+        int cost = 0;
+        for (Object container : containers) {
+            cost += CONTAINER_COST + (container instanceof long[] ? BITMAP_WORDS : ((char[]) container).length);
+        }
+        return cost;
+    }
+
+    // Bytes held by the containers, for reporting what the facet index costs
+    long containerBytes() {
+        long bytes = 0;
+        for (Object container : containers) {
+            bytes += ARRAY_HEADER_BYTES + (container instanceof long[] ? (long) BITMAP_WORDS * Long.BYTES : (long) ((char[]) container).length * Character.BYTES);
+        }
+        return bytes;
+    }
+}
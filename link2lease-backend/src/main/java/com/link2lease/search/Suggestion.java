@@ -0,0 +1,20 @@
+package com.link2lease.search;
+
+import java.util.Comparator;
+
+/**
+ * A word completing a typeahead prefix, with how many indexed properties use it and how many of those are available
+ */
+public record Suggestion(String word, int available, int total) {
+
+    // Words of available properties first, then the more common, then alphabetical
+    static final Comparator<Suggestion> RANKING = (a, b) -> {
+        if (a.available != b.available) {
+            return a.available > b.available ? -1 : 1;
+        }
+        if (a.total != b.total) {
+            return a.total > b.total ? -1 : 1;
+        }
+        return a.word.compareTo(b.word);
+    };
+}
@@ -0,0 +1,9 @@
+package com.link2lease.search;
+
+/**
+ * Text column a fuzzy search compares against
+ */
+public enum TextField {
+    TITLE,
+    ADDRESS
+}
@@ -0,0 +1,279 @@
+package com.link2lease.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable trie of the words of one text field, each with its counts of properties. Every node keeps the
+ * best MAX_SUGGESTIONS words below it in Suggestion.RANKING order, so completing a prefix is a walk down its
+ * characters. A change copies the nodes on its word's path and shares all others with the previous trie.
+ * A subtree holding a single word is stored as one leaf with that word, not a node per remaining character,
+ * since those tails are most of the nodes a character trie would have.
+ */
+final class TokenTrie {
+    static final int MAX_SUGGESTIONS = 10;
+    static final TokenTrie EMPTY = new TokenTrie(null, 0);
+
+    // Rough HotSpot sizes with compressed references, for estimatedBytes
+    private static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int NODE_BYTES = align(OBJECT_HEADER_BYTES + 4 * 4);
+    private static final int SUGGESTION_BYTES = align(OBJECT_HEADER_BYTES + 3 * 4);
+    private static final int STRING_BYTES = align(OBJECT_HEADER_BYTES + 4 + 4 + 1 + 1);
+
+    private static final char[] NO_EDGES = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    // Null when the trie has no words
+    private final Node root;
+    private final int size;
+    // Computed on first use; the trie never changes
+    private long estimatedBytes = -1;
+
+    private TokenTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * A trie of the given words and their counts of available and total properties
+     */
+    static TokenTrie build(Map<String, int[]> counts) {
+        Suggestion[] words = new Suggestion[counts.size()];
+        int i = 0;
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            words[i++] = new Suggestion(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+        }
+        Arrays.sort(words, Comparator.comparing(Suggestion::word));
+        return new TokenTrie(build(words, 0, words.length, 0), words.length);
+    }
+
+    /**
+     * The best words starting with the lower-cased prefix, at most limit and MAX_SUGGESTIONS of them
+     */
+    List<Suggestion> complete(String prefix, int limit) {
+        Node node = root;
+        for (int depth = 0; node != null && !node.isLeaf() && depth < prefix.length(); depth++) {
+            node = node.child(prefix.charAt(depth));
+        }
+        if (node == null || limit < 1) {
+            return List.of();
+        }
+        if (node.isLeaf()) {
+            return node.word.word().startsWith(prefix) ? List.of(node.word) : List.of();
+        }
+        return Arrays.asList(node.best).subList(0, Math.min(limit, node.best.length));
+    }
+
+    /**
+     * This trie with a word's counts changed by the given amounts; a word whose total drops to 0 is removed
+     */
+    TokenTrie add(String word, int available, int total) {
+        Suggestion current = find(word);
+        int nextTotal = (current != null ? current.total() : 0) + total;
+        int nextAvailable = (current != null ? current.available() : 0) + available;
+        Suggestion next = nextTotal > 0 ? new Suggestion(word, nextAvailable, nextTotal) : null;
+        int nextSize = size + (next != null ? 1 : 0) - (current != null ? 1 : 0);
+        return new TokenTrie(with(root, word, 0, next), nextSize);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap held by the trie, its words included
+     */
+    long estimatedBytes() {
+        if (estimatedBytes < 0) {
+            estimatedBytes = root != null ? bytes(root) : 0;
+        }
+        return estimatedBytes;
+    }
+
+    private Suggestion find(String word) {
+        Node node = root;
+        for (int depth = 0; node != null && !node.isLeaf() && depth < word.length(); depth++) {
+            node = node.child(word.charAt(depth));
+        }
+        if (node == null || node.word == null) {
+            return null;
+        }
+        return node.word.word().equals(word) ? node.word : null;
+    }
+
+    // Node for the words [from, to), sorted, which share their first depth characters
+    private static Node build(Suggestion[] words, int from, int to, int depth) {
+        if (to - from < 2) {
+            return from < to ? Node.leaf(words[from]) : null;
+        }
+        Suggestion word = null;
+        if (words[from].word().length() == depth) {
+            word = words[from++];
+        }
+        List<Node> children = new ArrayList<>();
+        StringBuilder edges = new StringBuilder();
+        while (from < to) {
+            char edge = words[from].word().charAt(depth);
+            int end = from + 1;
+            while (end < to && words[end].word().charAt(depth) == edge) {
+                end++;
+            }
+            edges.append(edge);
+            children.add(build(words, from, end, depth + 1));
+            from = end;
+        }
+        return Node.of(edges.toString().toCharArray(), children.toArray(NO_CHILDREN), word);
+    }
+
+    // Copy of node with the word below it replaced, null meaning removed; null when nothing is left below it
+    private static Node with(Node node, String text, int depth, Suggestion word) {
+        if (node == null) {
+            return word != null ? Node.leaf(word) : null;
+        }
+        if (node.isLeaf()) {
+            if (node.word.word().equals(text)) {
+                return word != null ? Node.leaf(word) : null;
+            }
+            if (word == null) {
+                return node;
+            }
+            // A second word below the leaf: branch where the two part
+            Suggestion[] pair = node.word.word().compareTo(text) < 0
+                    ? new Suggestion[]{node.word, word}
+                    : new Suggestion[]{word, node.word};
+            return build(pair, 0, 2, depth);
+        }
+
+        char[] edges = node.edges;
+        Node[] children = node.children;
+        if (depth == text.length()) {
+            return Node.of(edges, children, word);
+        }
+
+        char edge = text.charAt(depth);
+        int index = Arrays.binarySearch(edges, edge);
+        Node child = with(index >= 0 ? children[index] : null, text, depth + 1, word);
+        if (index >= 0 && child != null) {
+            children = children.clone();
+            children[index] = child;
+        } else if (index >= 0) {
+            edges = remove(edges, index);
+            Node[] fewer = new Node[children.length - 1];
+            System.arraycopy(children, 0, fewer, 0, index);
+            System.arraycopy(children, index + 1, fewer, index, fewer.length - index);
+            children = fewer;
+        } else if (child != null) {
+            int at = -index - 1;
+            char[] moreEdges = new char[edges.length + 1];
+            System.arraycopy(edges, 0, moreEdges, 0, at);
+            moreEdges[at] = edge;
+            System.arraycopy(edges, at, moreEdges, at + 1, edges.length - at);
+            Node[] more = new Node[children.length + 1];
+            System.arraycopy(children, 0, more, 0, at);
+            more[at] = child;
+            System.arraycopy(children, at, more, at + 1, children.length - at);
+            edges = moreEdges;
+            children = more;
+        }
+        return Node.of(edges, children, node.word);
+    }
+
+    private static char[] remove(char[] edges, int index) {
+        char[] fewer = new char[edges.length - 1];
+        System.arraycopy(edges, 0, fewer, 0, index);
+        System.arraycopy(edges, index + 1, fewer, index, fewer.length - index);
+        return fewer;
+    }
+
+    // A best array is counted on the node that made it, not on the single-child nodes above that share it
+    private static long bytes(Node node) {
+        long bytes = NODE_BYTES;
+        if (node.word != null) {
+            bytes += SUGGESTION_BYTES + STRING_BYTES + align(ARRAY_HEADER_BYTES + node.word.word().length());
+        }
+        if (node.isLeaf()) {
+            return bytes;
+        }
+        bytes += align(ARRAY_HEADER_BYTES + node.edges.length * Character.BYTES) + align(ARRAY_HEADER_BYTES + node.children.length * 4);
+        if (node.children.length > 1 || node.word != null) {
+            bytes += align(ARRAY_HEADER_BYTES + node.best.length * 4);
+        }
+        for (Node child : node.children) {
+            bytes += bytes(child);
+        }
+        return bytes;
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    private static final class Node {
+        // Ascending, one per child
+        private final char[] edges;
+        private final Node[] children;
+        // The word ending here, or for a leaf the one word below it, which may be longer than the leaf's depth
+        private final Suggestion word;
+        // Null for a leaf, whose only suggestion is its word
+        private final Suggestion[] best;
+
+        private Node(char[] edges, Node[] children, Suggestion word, Suggestion[] best) {
+            this.edges = edges;
+            this.children = children;
+            this.word = word;
+            this.best = best;
+        }
+
+        private static Node leaf(Suggestion word) {
+            return new Node(NO_EDGES, NO_CHILDREN, word, null);
+        }
+
+        // The best of a node are the best of its own word and its children's best
+        private static Node of(char[] edges, Node[] children, Suggestion word) {
+            if (children.length == 0) {
+                return word != null ? leaf(word) : null;
+            }
+            if (children.length == 1 && word == null) {
+                // One word below is a leaf wherever it hangs
+                return children[0].isLeaf() ? children[0] : new Node(edges, children, null, children[0].best);
+            }
+
+            // Each child's best is already ranked, so merge them into a bounded array, leaving a child
+            // as soon as its next word would not make it
+            Suggestion[] best = new Suggestion[MAX_SUGGESTIONS];
+            int count = 0;
+            if (word != null) {
+                best[count++] = word;
+            }
+            for (Node child : children) {
+                int candidates = child.isLeaf() ? 1 : child.best.length;
+                for (int i = 0; i < candidates; i++) {
+                    Suggestion candidate = child.isLeaf() ? child.word : child.best[i];
+                    if (count == MAX_SUGGESTIONS && Suggestion.RANKING.compare(candidate, best[count - 1]) >= 0) {
+                        break;
+                    }
+                    int at = count < MAX_SUGGESTIONS ? count++ : count - 1;
+                    while (at > 0 && Suggestion.RANKING.compare(candidate, best[at - 1]) < 0) {
+                        best[at] = best[at - 1];
+                        at--;
+                    }
+                    best[at] = candidate;
+                }
+            }
+            return new Node(edges, children, word, count < MAX_SUGGESTIONS ? Arrays.copyOf(best, count) : best);
+        }
+
+        private boolean isLeaf() {
+            return best == null;
+        }
+
+        private Node child(char edge) {
+            int index = Arrays.binarySearch(edges, edge);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.link2lease.search;
+
+import java.util.Arrays;
+
+/**
+ * Trigram postings over one text column of the sorted slots of a PropertyColumns snapshot.
+ * Text is cut into words of letters and digits, each padded the way pg_trgm pads them ("  word "),
+ * so the trigrams of a text and the word similarity of a fuzzy search are the ones pg_trgm computes.
+ * A trigram is three UTF-16 chars packed into the low 48 bits of a long.
+ */
+final class TrigramIndex {
+    private static final long EMPTY = -1;
+    private static final int MIN_TABLE_SIZE = 1 << 10;
+    // Intersections whose rarest list holds over 1/DENSE_SHARE of the slots count hits in an array instead
+    private static final int DENSE_SHARE = 32;
+
+    // Open addressing table from trigram to term number; postings of term t are postings[offsets[t], offsets[t + 1])
+    private final long[] table;
+    private final int[] termAt;
+    private final int[] offsets;
+    // Slots, ascending within each term
+    private final int[] postings;
+    private final int size;
+
+    private TrigramIndex(long[] table, int[] termAt, int[] offsets, int[] postings, int size) {
+        this.table = table;
+        this.termAt = termAt;
+        this.offsets = offsets;
+        this.postings = postings;
+        this.size = size;
+    }
+
+    /**
+     * Index the lower-cased texts of slots [0, size). Null texts have no trigrams.
+     */
+    static TrigramIndex build(String[] texts, int size) {
+        long[] table = newTable(MIN_TABLE_SIZE);
+        int[] termAt = new int[MIN_TABLE_SIZE];
+        int[] counts = new int[64];
+        int terms = 0;
+
+        // First pass numbers the trigrams and counts their postings, second pass fills them in slot order
+        for (int slot = 0; slot < size; slot++) {
+            if (texts[slot] == null) {
+                continue;
+            }
+            for (long trigram : trigrams(texts[slot])) {
+                int position = position(table, trigram);
+                if (table[position] == EMPTY) {
+                    if (2 * (terms + 1) > table.length) {
+                        long[] grownTable = newTable(table.length << 1);
+                        int[] grownTermAt = new int[grownTable.length];
+                        for (int i = 0; i < table.length; i++) {
+                            if (table[i] != EMPTY) {
+                                int moved = position(grownTable, table[i]);
+                                grownTable[moved] = table[i];
+                                grownTermAt[moved] = termAt[i];
+                            }
+                        }
+                        table = grownTable;
+                        termAt = grownTermAt;
+                        position = position(table, trigram);
+                    }
+                    table[position] = trigram;
+                    termAt[position] = terms;
+                    if (terms == counts.length) {
+                        counts = Arrays.copyOf(counts, terms << 1);
+                    }
+                    terms++;
+                }
+                counts[termAt[position]]++;
+            }
+        }
+
+        int[] offsets = new int[terms + 1];
+        for (int term = 0; term < terms; term++) {
+            offsets[term + 1] = offsets[term] + counts[term];
+        }
+        int[] postings = new int[offsets[terms]];
+        int[] next = Arrays.copyOf(offsets, terms);
+        for (int slot = 0; slot < size; slot++) {
+            if (texts[slot] == null) {
+                continue;
+            }
+            for (long trigram : trigrams(texts[slot])) {
+                postings[next[termAt[position(table, trigram)]]++] = slot;
+            }
+        }
+        return new TrigramIndex(table, termAt, offsets, postings, size);
+    }
+
+    /**
+     * Slots, ascending, whose text may contain the lower-cased term, to be confirmed against the text itself.
+     * Null when the term is too short to have a trigram, so every slot may contain it.
+     */
+    int[] containing(String term) {
+        long[] trigrams = substringTrigrams(term);
+        if (trigrams.length == 0) {
+            return null;
+        }
+        int[] terms = new int[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            terms[i] = term(trigrams[i]);
+            if (terms[i] < 0) {
+                return new int[0];
+            }
+        }
+        sortByPostingCount(terms, terms.length);
+
+        // When every list is long, walking them all into one array of counts beats merging them pairwise
+        if ((long) (offsets[terms[0] + 1] - offsets[terms[0]]) * DENSE_SHARE > size) {
+            short[] shared = new short[size];
+            for (int t : terms) {
+                for (int i = offsets[t]; i < offsets[t + 1]; i++) {
+                    shared[postings[i]]++;
+                }
+            }
+            int[] candidates = new int[offsets[terms[0] + 1] - offsets[terms[0]]];
+            int count = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (shared[slot] == terms.length) {
+                    candidates[count++] = slot;
+                }
+            }
+            return Arrays.copyOf(candidates, count);
+        }
+
+        // Intersect from the rarest trigram. Candidates and postings are both ascending, so each list is
+        // walked forward once, galloping over the stretches between candidates.
+        int[] candidates = Arrays.copyOfRange(postings, offsets[terms[0]], offsets[terms[0] + 1]);
+        int count = candidates.length;
+        for (int t = 1; t < terms.length && count > 0; t++) {
+            int from = offsets[terms[t]];
+            int to = offsets[terms[t] + 1];
+            int kept = 0;
+            for (int i = 0; i < count && from < to; i++) {
+                from = gallop(postings, from, to, candidates[i]);
+                if (from < to && postings[from] == candidates[i]) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            count = kept;
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * How many of the query's trigrams each slot's text has, in an array of the given length, at least
+     * the number of indexed slots; entries past them are left at 0.
+     */
+    short[] sharedCounts(long[] query, int length) {
+        short[] shared = new short[length];
+        for (long trigram : query) {
+            int term = term(trigram);
+            if (term >= 0) {
+                for (int i = offsets[term]; i < offsets[term + 1]; i++) {
+                    shared[postings[i]]++;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Distinct trigrams of a lower-cased text, ascending, each word padded with two spaces before and one after
+     */
+    static long[] trigrams(String text) {
+        long[] trigrams = new long[text.length() + 2];
+        int count = 0;
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+                end++;
+            }
+            long window = pack(' ', ' ', ' ');
+            for (int c = i; c <= end; c++) {
+                window = (window << 16 | (c < end ? text.charAt(c) : ' ')) & 0xFFFF_FFFF_FFFFL;
+                if (count == trigrams.length) {
+                    trigrams = Arrays.copyOf(trigrams, count << 1);
+                }
+                trigrams[count++] = window;
+            }
+            i = end;
+        }
+        return distinct(trigrams, count);
+    }
+
+    /**
+     * Number of trigrams two ascending, distinct trigram arrays share
+     */
+    static int shared(long[] a, long[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    int postingCount() {
+        return postings.length;
+    }
+
+    // Trigrams every text containing the term has. A word of the term may be the tail of a longer word
+    // when it starts the term and the head of one when it ends it, so only its inner edges are padded.
+    private static long[] substringTrigrams(String term) {
+        long[] trigrams = new long[term.length() + 2];
+        int count = 0;
+        int i = 0;
+        while (i < term.length()) {
+            if (!Character.isLetterOrDigit(term.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < term.length() && Character.isLetterOrDigit(term.charAt(end))) {
+                end++;
+            }
+            StringBuilder word = new StringBuilder();
+            if (i > 0) {
+                word.append("  ");
+            }
+            word.append(term, i, end);
+            if (end < term.length()) {
+                word.append(' ');
+            }
+            for (int c = 0; c + 3 <= word.length(); c++) {
+                if (count == trigrams.length) {
+                    trigrams = Arrays.copyOf(trigrams, count << 1);
+                }
+                trigrams[count++] = pack(word.charAt(c), word.charAt(c + 1), word.charAt(c + 2));
+            }
+            i = end;
+        }
+        return distinct(trigrams, count);
+    }
+
+    private int term(long trigram) {
+        int position = position(table, trigram);
+        return table[position] == EMPTY ? -1 : termAt[position];
+    }
+
+    // First index in [from, to) of the ascending postings holding a slot at or after the given one
+    private static int gallop(int[] postings, int from, int to, int slot) {
+        int step = 1;
+        int hi = from;
+        while (hi < to && postings[hi] < slot) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        hi = Math.min(hi, to);
+        while (from < hi) {
+            int mid = (from + hi) >>> 1;
+            if (postings[mid] < slot) {
+                from = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return from;
+    }
+
+    // Insertion sort; a query has a handful of trigrams
+    private void sortByPostingCount(int[] terms, int count) {
+        for (int i = 1; i < count; i++) {
+            int term = terms[i];
+            int length = offsets[term + 1] - offsets[term];
+            int j = i - 1;
+            while (j >= 0 && offsets[terms[j] + 1] - offsets[terms[j]] > length) {
+                terms[j + 1] = terms[j];
+                j--;
+            }
+            terms[j + 1] = term;
+        }
+    }
+
+    // Where the trigram is in the table, or the empty position it would take
+    private static int position(long[] table, long trigram) {
+        int mask = table.length - 1;
+        int position = (int) (trigram * 0x9E37_79B9_7F4A_7C15L >>> 40) & mask;
+        while (table[position] != EMPTY && table[position] != trigram) {
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    private static long[] newTable(int size) {
+        long[] table = new long[size];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static long pack(char a, char b, char c) {
+        return (long) a << 32 | (long) b << 16 | c;
+    }
+
+    private static long[] distinct(long[] values, int count) {
+        Arrays.sort(values, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, distinct);
+    }
+}
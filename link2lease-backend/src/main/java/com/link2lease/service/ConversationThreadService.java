@@ -0,0 +1,106 @@
+package com.link2lease.service;
+
+import com.link2lease.dto.ConversationDto;
+import com.link2lease.model.Message;
+import com.link2lease.repository.ConversationThreadRepository;
+import com.link2lease.repository.MessagRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the conversation_threads read model in step with the messages table.
+ * Every method joins the caller's transaction, so a thread row never disagrees with committed messages.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Transactional
+public class ConversationThreadService {
+    private final ConversationThreadRepository threadRepository;
+    private final MessagRepository messageRepository;
+
+    /**
+     * Get all conversations for a user, most recent activity first
+     */
+    public List<ConversationDto> getConversations(Long userId) {
+        return threadRepository.findConversationsForUser(userId);
+    }
+
+    /**
+     * Move the thread forward to a newly sent message and count it as unread for the recipient
+     */
+    public void recordMessage(Message message) {
+        Long senderId = message.getSender().getId();
+        Long recipientId = message.getRecipient().getId();
+        Long lowId = Math.min(senderId, recipientId);
+        Long highId = Math.max(senderId, recipientId);
+        boolean recipientIsLow = recipientId.equals(lowId);
+
+        threadRepository.recordMessage(lowId, highId, message.getId(), message.getSentAt(),
+                recipientIsLow ? 1L : 0L, recipientIsLow ? 0L : 1L);
+    }
+
+    /**
+     * Record one message from the same sender to each of many recipients.
+     * Existing threads are updated and missing ones created by a single upsert.
+     */
+    public void recordBroadcast(Long senderId, List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Long[] recipientIds = new Long[messages.size()];
+        Long[] messageIds = new Long[messages.size()];
+        LocalDateTime[] sentAts = new LocalDateTime[messages.size()];
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            recipientIds[i] = message.getRecipient().getId();
+            messageIds[i] = message.getId();
+            sentAts[i] = message.getSentAt();
+        }
+        threadRepository.recordBroadcast(senderId, recipientIds, messageIds, sentAts);
+    }
+
+    /**
+     * Take messages that were just marked read or deleted while unread off their recipients' unread counts
+     */
+    public void recordUnreadRemoved(List<MessageChangeLog.MessageParties> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Long[] recipientIds = new Long[messages.size()];
+        Long[] senderIds = new Long[messages.size()];
+        for (int i = 0; i < messages.size(); i++) {
+            recipientIds[i] = messages.get(i).recipientId();
+            senderIds[i] = messages.get(i).senderId();
+        }
+        threadRepository.subtractUnread(recipientIds, senderIds);
+    }
+
+    /**
+     * Repoint or drop the thread after a message was deleted. The delete must already be flushed.
+     */
+    public void recordDeletion(Message message) {
+        Long senderId = message.getSender().getId();
+        Long recipientId = message.getRecipient().getId();
+        Long lowId = Math.min(senderId, recipientId);
+        Long highId = Math.max(senderId, recipientId);
+
+        if (!message.getIsRead()) {
+            recordUnreadRemoved(List.of(MessageChangeLog.MessageParties.of(message)));
+        }
+
+        List<Message> latest = messageRepository.findLatestBetweenUsers(lowId, highId, Limit.of(1));
+        if (latest.isEmpty()) {
+            threadRepository.deletePair(lowId, highId);
+        } else {
+            Message last = latest.get(0);
+            threadRepository.setLastMessage(lowId, highId, last.getId(), last.getSentAt());
+        }
+    }
+}
@@ -2,6 +2,10 @@ package com.link2lease.service;
 
 import com.link2lease.dto.LeaseDto;
 import com.link2lease.enums.LeaseStatus;
+import com.link2lease.event.DomainEventBus;
+import com.link2lease.event.LeaseApplied;
+import com.link2lease.event.LeaseApproved;
+import com.link2lease.event.LeaseTerminated;
 import com.link2lease.model.Lease;
 import com.link2lease.model.Property;
 import com.link2lease.model.User;
@@ -19,13 +23,16 @@ public class LeaseService {
     private final LeaseRepository leaseRepository;
     private final PropertyRepository propertyRepository;
     private final UserRepository userRepository;
+    private final DomainEventBus domainEventBus;
 
     public LeaseService(LeaseRepository leaseRepository,
                         PropertyRepository propertyRepository,
-                        UserRepository userRepository){
+                        UserRepository userRepository,
+                        DomainEventBus domainEventBus){
         this.leaseRepository = leaseRepository;
         this.propertyRepository = propertyRepository;
         this.userRepository = userRepository;
+        this.domainEventBus = domainEventBus;
     }
 
     @Transactional
@@ -47,7 +54,9 @@ public class LeaseService {
         lease.setEndDate(LocalDate.now().plusYears(1));
         Lease savedLease = leaseRepository.save(lease);
 
-        return LeaseDto.fromEntity(savedLease);
+        LeaseDto leaseDto = LeaseDto.fromEntity(savedLease);
+        domainEventBus.publishAfterCommit(new LeaseApplied(leaseDto));
+        return leaseDto;
     }
 
     @Transactional
@@ -60,7 +69,9 @@ public class LeaseService {
         }
 
         lease.setStatus(LeaseStatus.ACTIVE);
-        return LeaseDto.fromEntity(leaseRepository.save(lease));
+        LeaseDto leaseDto = LeaseDto.fromEntity(leaseRepository.save(lease));
+        domainEventBus.publishAfterCommit(new LeaseApproved(leaseDto));
+        return leaseDto;
 
     }
 
@@ -78,7 +89,9 @@ public class LeaseService {
         }
 
         lease.setStatus(LeaseStatus.TERMINATED);
-        return  LeaseDto.fromEntity(leaseRepository.save(lease));
+        LeaseDto leaseDto = LeaseDto.fromEntity(leaseRepository.save(lease));
+        domainEventBus.publishAfterCommit(new LeaseTerminated(leaseDto));
+        return leaseDto;
     }
 
     public LeaseDto getLease(Long leaseId){
@@ -0,0 +1,64 @@
+package com.link2lease.service;
+
+import com.link2lease.repository.ArchivedMessageRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves read messages older than the configured age from messages into messages_archive,
+ * so the hot table, its indexes and its vacuum work stay sized to recent traffic.
+ * Each batch is its own short transaction; the run repeats until nothing old is left to move.
+ */
+@Service
+@Slf4j
+public class MessageArchiveService {
+    private final ArchivedMessageRepository archivedMessageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration archiveAfter;
+    private final int batchSize;
+    private final LongAdder archived = new LongAdder();
+
+    public MessageArchiveService(ArchivedMessageRepository archivedMessageRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${link2lease.archive.after-days:365}") long archiveAfterDays,
+                                 @Value("${link2lease.archive.batch-size:1000}") int batchSize) {
+        this.archivedMessageRepository = archivedMessageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.archiveAfter = Duration.ofDays(archiveAfterDays);
+        this.batchSize = batchSize;
+
+        FunctionCounter.builder("link2lease.archive.messages", archived, LongAdder::sum)
+                .description("Messages moved to the cold archive")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Archive every eligible message sent before the configured age
+     */
+    @Scheduled(initialDelayString = "${link2lease.archive.interval-ms:3600000}",
+            fixedDelayString = "${link2lease.archive.interval-ms:3600000}")
+    public void archiveOldMessages() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(archiveAfter);
+        long total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> archivedMessageRepository.archiveBatch(cutoff, batchSize));
+            total += moved;
+            archived.add(moved);
+        } while (moved == batchSize);
+
+        if (total > 0) {
+            log.info("Archived {} messages sent before {}", total, cutoff);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.link2lease.service;
+
+import com.link2lease.enums.MessageChangeType;
+import com.link2lease.model.Message;
+import com.link2lease.model.MessageChange;
+import com.link2lease.repository.MessageChangeRepository;
+import com.link2lease.repository.MessageSyncSequenceRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-user log of message creations, reads and deletions that backs delta sync.
+ * Each user has a gapless change number, reserved by bumping the user's message_sync_sequences
+ * row in the writer's transaction. The row lock is held until commit, so a user's changes
+ * become visible in change number order and a client cursor can never skip one that commits late.
+ */
+@Service
+@Slf4j
+@Transactional
+public class MessageChangeLog {
+    private final MessageChangeRepository changeRepository;
+    private final MessageSyncSequenceRepository sequenceRepository;
+    private final Duration retention;
+
+    public MessageChangeLog(MessageChangeRepository changeRepository,
+                            MessageSyncSequenceRepository sequenceRepository,
+                            @Value("${link2lease.sync.retention-days:30}") long retentionDays) {
+        this.changeRepository = changeRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    /**
+     * Record new messages for their senders and recipients
+     */
+    public void recordCreated(Collection<Message> messages) {
+        append(MessageChangeType.CREATED, messages.stream().map(MessageParties::of).toList());
+    }
+
+    /**
+     * Record messages that just went from unread to read
+     */
+    public void recordRead(Collection<MessageParties> messages) {
+        append(MessageChangeType.READ, messages);
+    }
+
+    /**
+     * Record a tombstone for a deleted message
+     */
+    public void recordDeleted(Message message) {
+        append(MessageChangeType.DELETED, List.of(MessageParties.of(message)));
+    }
+
+    /**
+     * Drop changes past the retention window. Clients whose cursor points into the dropped
+     * range are told to do a full reload on their next sync.
+     */
+    @Scheduled(initialDelayString = "${link2lease.sync.prune-interval-ms:3600000}",
+            fixedDelayString = "${link2lease.sync.prune-interval-ms:3600000}")
+    public void pruneExpiredChanges() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int deleted = changeRepository.deleteOlderThan(cutoff);
+        if (deleted > 0) {
+            log.info("Pruned {} message changes recorded before {}", deleted, cutoff);
+        }
+    }
+
+    // Should be the last write of the transaction so the sequence rows are locked only briefly
+    private void append(MessageChangeType changeType, Collection<MessageParties> messages) {
+        // Users are locked in ascending id order so concurrent writers cannot deadlock
+        Map<Long, List<Long>> messageIdsByUser = new TreeMap<>();
+        for (MessageParties message : messages) {
+            messageIdsByUser.computeIfAbsent(message.senderId(), id -> new ArrayList<>()).add(message.messageId());
+            messageIdsByUser.computeIfAbsent(message.recipientId(), id -> new ArrayList<>()).add(message.messageId());
+        }
+
+        LocalDateTime changedAt = LocalDateTime.now();
+        List<MessageChange> changes = new ArrayList<>(messages.size() * 2);
+        messageIdsByUser.forEach((userId, messageIds) -> {
+            sequenceRepository.advance(userId, messageIds.size());
+            long seq = sequenceRepository.findLastSeq(userId) - messageIds.size();
+            for (Long messageId : messageIds) {
+                changes.add(new MessageChange(null, userId, ++seq, messageId, changeType, changedAt));
+            }
+        });
+        changeRepository.saveAll(changes);
+    }
+
+    /**
+     * The ids a change is recorded against; both participants see every change to a message
+     */
+    public record MessageParties(Long messageId, Long senderId, Long recipientId) {
+
+        static MessageParties of(Message message) {
+            return new MessageParties(message.getId(), message.getSender().getId(), message.getRecipient().getId());
+        }
+    }
+}
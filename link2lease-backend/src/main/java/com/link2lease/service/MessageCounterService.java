@@ -0,0 +1,171 @@
+package com.link2lease.service;
+
+import com.link2lease.dto.MessageStatsDto;
+import com.link2lease.event.DomainEvent;
+import com.link2lease.event.DomainEventConsumer;
+import com.link2lease.event.MessageDeleted;
+import com.link2lease.event.MessageSent;
+import com.link2lease.event.MessagesRead;
+import com.link2lease.repository.ArchivedMessageRepository;
+import com.link2lease.repository.MessagRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Per-user message counters kept in memory so stats and unread badges do not hit the database.
+ * Entries warm lazily from the database on a miss and are adjusted from committed message
+ * events, shortly after the write. A periodic reconciliation corrects any drift.
+ */
+@Service
+@Slf4j
+public class MessageCounterService implements DomainEventConsumer {
+    private final MessagRepository messageRepository;
+    private final ArchivedMessageRepository archivedMessageRepository;
+    private final Duration idleEviction;
+
+    private final Map<Long, UserCounters> counters = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+
+    public MessageCounterService(MessagRepository messageRepository,
+                                 ArchivedMessageRepository archivedMessageRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${link2lease.message-counters.idle-eviction-minutes:30}") long idleEvictionMinutes) {
+        this.messageRepository = messageRepository;
+        this.archivedMessageRepository = archivedMessageRepository;
+        this.idleEviction = Duration.ofMinutes(idleEvictionMinutes);
+
+        FunctionCounter.builder("link2lease.message.counters.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.message.counters.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.message.counters.corrections", corrections, LongAdder::sum)
+                .description("Cached counters found out of step with the database during reconciliation")
+                .register(meterRegistry);
+        Gauge.builder("link2lease.message.counters.size", counters, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get cached stats for a user, or empty if the user has no warm entry yet
+     */
+    public Optional<MessageStatsDto> getCachedStats(Long userId) {
+        UserCounters userCounters = counters.get(userId);
+        if (userCounters == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        userCounters.lastAccess = System.nanoTime();
+        return Optional.of(userCounters.toStats());
+    }
+
+    /**
+     * Load stats from the database and keep them for later requests
+     */
+    public MessageStatsDto loadStats(Long userId) {
+        UserCounters loaded = loadFromDatabase(userId);
+        UserCounters existing = counters.putIfAbsent(userId, loaded);
+        return (existing != null ? existing : loaded).toStats();
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            switch (event) {
+                case MessageSent sent -> sent.messages().forEach(message -> {
+                    adjust(message.getSenderId(), c -> c.sent.increment());
+                    adjust(message.getRecipientId(), c -> {
+                        c.received.increment();
+                        c.unread.increment();
+                    });
+                });
+                case MessagesRead read -> adjust(read.receipt().getReaderId(), c -> c.unread.add(-read.receipt().getCount()));
+                case MessageDeleted deleted -> {
+                    adjust(deleted.senderId(), c -> c.sent.decrement());
+                    adjust(deleted.recipientId(), c -> {
+                        c.received.decrement();
+                        if (deleted.wasUnread()) {
+                            c.unread.decrement();
+                        }
+                    });
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-read every warm entry from the database, fixing drift and dropping idle users
+     */
+    @Scheduled(fixedDelayString = "${link2lease.message-counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long idleBefore = System.nanoTime() - idleEviction.toNanos();
+        int checked = 0;
+
+        for (Map.Entry<Long, UserCounters> entry : counters.entrySet()) {
+            Long userId = entry.getKey();
+            UserCounters cached = entry.getValue();
+            if (cached.lastAccess - idleBefore < 0) {
+                counters.remove(userId, cached);
+                continue;
+            }
+
+            UserCounters fresh = loadFromDatabase(userId);
+            fresh.lastAccess = cached.lastAccess;
+            if (!fresh.toStats().equals(cached.toStats())) {
+                corrections.increment();
+            }
+            counters.replace(userId, cached, fresh);
+            checked++;
+        }
+        log.debug("Reconciled message counters for {} users", checked);
+    }
+
+    private void adjust(Long userId, Consumer<UserCounters> update) {
+        // Users without a warm entry pick the change up from the database on their next miss
+        UserCounters userCounters = counters.get(userId);
+        if (userCounters != null) {
+            update.accept(userCounters);
+        }
+    }
+
+    private UserCounters loadFromDatabase(Long userId) {
+        UserCounters loaded = new UserCounters();
+        // Archived messages still count towards totals; they are always read, so unread is hot only
+        loaded.sent.add(messageRepository.countBySenderId(userId) + archivedMessageRepository.countBySenderId(userId));
+        loaded.received.add(messageRepository.countByRecipientId(userId) + archivedMessageRepository.countByRecipientId(userId));
+        loaded.unread.add(messageRepository.countByRecipientIdAndIsReadFalse(userId));
+        return loaded;
+    }
+
+    private static final class UserCounters {
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder received = new LongAdder();
+        private final LongAdder unread = new LongAdder();
+        private volatile long lastAccess = System.nanoTime();
+
+        private MessageStatsDto toStats() {
+            long totalSent = sent.sum();
+            long totalReceived = received.sum();
+            return new MessageStatsDto(totalSent + totalReceived, Math.max(unread.sum(), 0), totalSent, totalReceived);
+        }
+    }
+}
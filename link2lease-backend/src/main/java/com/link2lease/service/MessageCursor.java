@@ -0,0 +1,40 @@
+package com.link2lease.service;
+
+import com.link2lease.dto.MessageDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset position in a message list ordered by (sentAt DESC, id DESC).
+ * Clients only ever see the encoded, opaque form.
+ */
+public record MessageCursor(LocalDateTime sentAt, Long id) {
+
+    // Sorts after every real message, so the first page uses the same query as every other page
+    public static final MessageCursor FIRST = new MessageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static MessageCursor of(MessageDto message) {
+        return new MessageCursor(message.getSentAt(), message.getId());
+    }
+
+    public static MessageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new MessageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String raw = sentAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,205 @@
+package com.link2lease.service;
+
+import com.link2lease.event.DomainEvent;
+import com.link2lease.event.DomainEventConsumer;
+import com.link2lease.event.MessageSent;
+import com.link2lease.event.MessagesRead;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process fan-out of message events to connected clients over Server-Sent Events.
+ * Each subscriber gets a bounded queue drained by its own virtual thread, so idle
+ * connections cost no platform thread and a slow client can never hold more than
+ * bufferSize pending events. When a queue overflows its backlog is replaced with a
+ * single "resync" event telling the client to refetch instead of replaying.
+ */
+@Service
+@Slf4j
+public class MessagePushHub implements DomainEventConsumer {
+    private static final String MESSAGE_EVENT = "message";
+    private static final String MESSAGES_READ_EVENT = "messages-read";
+    private static final String RESYNC_EVENT = "resync";
+    private static final String HEARTBEAT_EVENT = "heartbeat";
+    // Wakes a sender thread that is waiting on an empty queue so it can exit
+    private static final PushEvent CLOSE = new PushEvent("close", "");
+
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    public MessagePushHub(MeterRegistry meterRegistry,
+                          @Value("${link2lease.push.buffer-size:64}") int bufferSize,
+                          @Value("${link2lease.push.timeout-minutes:30}") long timeoutMinutes) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMinutes * 60_000;
+
+        Gauge.builder("link2lease.push.connections", connections, AtomicInteger::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.push.events.delivered", delivered, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.push.overflows", overflows, LongAdder::sum)
+                .description("Subscriber buffers that overflowed and were collapsed into a resync event")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a new event stream for a user. A user may hold several streams, one per device.
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(userId, emitter, new ArrayBlockingQueue<>(bufferSize));
+
+        // Added inside compute, so an unsubscribe emptying and unmapping the same set cannot strand the subscriber in it
+        subscribers.compute(userId, (id, userSubscribers) -> {
+            if (userSubscribers == null) {
+                userSubscribers = ConcurrentHashMap.newKeySet();
+            }
+            userSubscribers.add(subscriber);
+            return userSubscribers;
+        });
+        connections.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        senders.execute(() -> drain(subscriber));
+        log.debug("User {} opened a message stream", userId);
+        return emitter;
+    }
+
+    /**
+     * Queue an event for every open stream of the user. Never blocks the caller.
+     */
+    public void publish(Long userId, String eventName, Object payload) {
+        Set<Subscriber> userSubscribers = subscribers.get(userId);
+        if (userSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : userSubscribers) {
+            subscriber.offer(new PushEvent(eventName, payload));
+        }
+    }
+
+    /**
+     * Push committed message events to the participants. The sender's other devices get them too.
+     */
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            switch (event) {
+                case MessageSent sent -> sent.messages().forEach(message -> {
+                    publish(message.getRecipientId(), MESSAGE_EVENT, message);
+                    publish(message.getSenderId(), MESSAGE_EVENT, message);
+                });
+                case MessagesRead read -> {
+                    publish(read.receipt().getReaderId(), MESSAGES_READ_EVENT, read.receipt());
+                    read.senderIds().forEach(senderId -> publish(senderId, MESSAGES_READ_EVENT, read.receipt()));
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    // Keeps proxies from closing idle streams and flushes out connections the client has dropped
+    @Scheduled(fixedDelayString = "${link2lease.push.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        PushEvent heartbeat = new PushEvent(HEARTBEAT_EVENT, "");
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(s -> s.queue.offer(heartbeat)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(s -> s.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (subscriber.open) {
+                PushEvent event = subscriber.queue.take();
+                if (event == CLOSE) {
+                    break;
+                }
+                subscriber.emitter.send(SseEmitter.event().name(event.name()).data(event.payload()));
+                delivered.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            unsubscribe(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        connections.decrementAndGet();
+        subscriber.queue.clear();
+        subscriber.queue.offer(CLOSE);
+        subscribers.computeIfPresent(subscriber.userId, (id, userSubscribers) -> {
+            userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+    private record PushEvent(String name, Object payload) {
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<PushEvent> queue;
+        private volatile boolean open = true;
+
+        private Subscriber(Long userId, SseEmitter emitter, BlockingQueue<PushEvent> queue) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        private void offer(PushEvent event) {
+            if (!queue.offer(event)) {
+                queue.clear();
+                queue.offer(new PushEvent(RESYNC_EVENT, ""));
+                overflows.increment();
+            }
+        }
+
+        private synchronized boolean close() {
+            if (!open) {
+                return false;
+            }
+            open = false;
+            return true;
+        }
+    }
+}
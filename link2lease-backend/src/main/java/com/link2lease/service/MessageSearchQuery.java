@@ -0,0 +1,65 @@
+package com.link2lease.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns a user's search box input into a Postgres tsquery expression.
+ * Quoted text becomes a phrase query, a trailing '*' makes a prefix query and
+ * everything else must match as individual words. Only letters and digits reach
+ * the tsquery, so user input can never produce a tsquery syntax error.
+ */
+public final class MessageSearchQuery {
+
+    private static final Pattern TERM = Pattern.compile("\"([^\"]*)\"?|(\\S+)");
+    private static final Pattern LEXEME = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private MessageSearchQuery() {
+    }
+
+    public static String toTsQuery(String searchTerm) {
+        if (searchTerm == null || searchTerm.isBlank()) {
+            throw new IllegalArgumentException("Search term cannot be empty");
+        }
+
+        List<String> clauses = new ArrayList<>();
+        Matcher term = TERM.matcher(searchTerm);
+        while (term.find()) {
+            if (term.group(1) != null) {
+                List<String> words = lexemes(term.group(1));
+                if (!words.isEmpty()) {
+                    clauses.add(words.size() == 1 ? words.get(0) : "(" + String.join(" <-> ", words) + ")");
+                }
+            } else {
+                String word = term.group(2);
+                boolean prefix = word.endsWith("*");
+                List<String> words = lexemes(word);
+                if (words.isEmpty()) {
+                    continue;
+                }
+                if (prefix) {
+                    int last = words.size() - 1;
+                    words.set(last, words.get(last) + ":*");
+                }
+                // Punctuated words like "o'brien" or "unit-4b" must keep their parts together
+                clauses.add(words.size() == 1 ? words.get(0) : "(" + String.join(" <-> ", words) + ")");
+            }
+        }
+
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("Search term must contain letters or digits");
+        }
+        return String.join(" & ", clauses);
+    }
+
+    private static List<String> lexemes(String text) {
+        List<String> words = new ArrayList<>();
+        Matcher lexeme = LEXEME.matcher(text);
+        while (lexeme.find()) {
+            words.add(lexeme.group().toLowerCase());
+        }
+        return words;
+    }
+}
@@ -1,26 +1,55 @@
 package com.link2lease.service;
 
+import com.link2lease.dto.BroadcastMessageDto;
+import com.link2lease.dto.CursorPageDto;
 import com.link2lease.dto.MessageDto;
+import com.link2lease.enums.LeaseStatus;
+import com.link2lease.event.DomainEventBus;
+import com.link2lease.event.MessageDeleted;
+import com.link2lease.event.MessageSent;
+import com.link2lease.event.MessagesRead;
+import com.link2lease.enums.MessageType;
+import com.link2lease.repository.ArchivedMessageRepository;
 import com.link2lease.repository.LeaseRepository;
 import com.link2lease.repository.MessagRepository;
+import com.link2lease.repository.MessageChangeRepository;
+import com.link2lease.repository.MessageSyncSequenceRepository;
 import com.link2lease.dto.ConversationDto;
 import com.link2lease.repository.PropertyRepository;
 import com.link2lease.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.link2lease.dto.MessageCreateDto;
 import com.link2lease.dto.MessageStatsDto;
+import com.link2lease.dto.MessageSyncDto;
+import com.link2lease.dto.MessageThreadDto;
+import com.link2lease.dto.MessagesReadDto;
+import com.link2lease.dto.ThreadNodeDto;
+import com.link2lease.enums.MessageChangeType;
 import com.link2lease.model.Message;
+import com.link2lease.model.MessageChange;
 import com.link2lease.model.User;
 import com.link2lease.model.Property;
 import com.link2lease.model.Lease;
 
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -28,9 +57,32 @@ import java.util.stream.Collectors;
 @Transactional
 public class MessageService {
     private final MessagRepository messageRepository;
+    private final ArchivedMessageRepository archivedMessageRepository;
     private final UserRepository userRepository;
     private final PropertyRepository propertyRepository;
     private final LeaseRepository leaseRepository;
+    private final ConversationThreadService conversationThreadService;
+    private final MessageCounterService messageCounterService;
+    private final MessagePushHub messagePushHub;
+    private final ReadReceiptBuffer readReceiptBuffer;
+    private final MessageChangeLog messageChangeLog;
+    private final MessageChangeRepository messageChangeRepository;
+    private final MessageSyncSequenceRepository messageSyncSequenceRepository;
+    private final DomainEventBus domainEventBus;
+
+    @Value("${link2lease.messages.broadcast-max-recipients:1000}")
+    private int maxBroadcastRecipients;
+
+    @Value("${link2lease.messages.thread-max-depth:50}")
+    private int maxThreadDepth;
+
+    @Value("${link2lease.messages.thread-max-messages:500}")
+    private int maxThreadMessages;
+
+    @Value("${link2lease.messages.mark-read-max-ids:10000}")
+    private int maxMarkReadIds;
+
+    private static final int MAX_PAGE_SIZE = 200;
 
 //    public MessageService(MessagRepository messageRepository,
 //                          UserRepository userRepository,
@@ -92,70 +144,147 @@ public class MessageService {
             message.setParentMessage(parentMessage);
         }
 
-        Message savedMessage = messageRepository.save(message);
+        // Flush so the generated sentAt is available to the conversation thread
+        Message savedMessage = messageRepository.saveAndFlush(message);
+        conversationThreadService.recordMessage(savedMessage);
+        messageChangeLog.recordCreated(List.of(savedMessage));
         log.info("Message sent successfully with id: {}", savedMessage.getId());
 
-        return new MessageDto(savedMessage);
+        MessageDto sentMessage = new MessageDto(savedMessage);
+        domainEventBus.publishAfterCommit(new MessageSent(List.of(sentMessage)));
+        return sentMessage;
+    }
+
+    /**
+     * Send the same message to many recipients, or to every active tenant of a property.
+     * All entities are resolved in bulk and the rows are inserted as JDBC batches in one transaction.
+     */
+    public List<MessageDto> broadcastMessage(Long senderId, BroadcastMessageDto broadcastDto) {
+        User sender = userRepository.findById(senderId)
+                .orElseThrow(() -> new RuntimeException("Sender not found with id: " + senderId));
+
+        Property property = null;
+        if (broadcastDto.getPropertyId() != null) {
+            property = propertyRepository.findById(broadcastDto.getPropertyId())
+                    .orElseThrow(() -> new RuntimeException("Property not found with id: " + broadcastDto.getPropertyId()));
+        }
+
+        Lease lease = null;
+        if (broadcastDto.getLeaseId() != null) {
+            lease = leaseRepository.findById(broadcastDto.getLeaseId())
+                    .orElseThrow(() -> new RuntimeException("Lease not found with id: " + broadcastDto.getLeaseId()));
+        }
+
+        List<User> recipients = resolveBroadcastRecipients(sender, property, broadcastDto.getRecipientIds());
+        log.info("Broadcasting message from user {} to {} recipients", senderId, recipients.size());
+
+        List<Message> messages = new ArrayList<>(recipients.size());
+        for (User recipient : recipients) {
+            Message message = new Message();
+            message.setSender(sender);
+            message.setRecipient(recipient);
+            message.setContent(broadcastDto.getContent());
+            message.setSubject(broadcastDto.getSubject());
+            message.setMessageType(broadcastDto.getMessageType());
+            message.setProperty(property);
+            message.setLease(lease);
+            messages.add(message);
+        }
+
+        // One flush sends the inserts as JDBC batches and fills in the generated sentAt values
+        List<Message> savedMessages = messageRepository.saveAllAndFlush(messages);
+        conversationThreadService.recordBroadcast(senderId, savedMessages);
+        messageChangeLog.recordCreated(savedMessages);
+
+        List<MessageDto> sentMessages = savedMessages.stream().map(MessageDto::new).collect(Collectors.toList());
+        domainEventBus.publishAfterCommit(new MessageSent(sentMessages));
+        return sentMessages;
+    }
+
+    /**
+     * Open a push stream of message events for a user
+     */
+    public SseEmitter openMessageStream(Long userId) {
+        log.info("Opening message stream for user: {}", userId);
+
+        validateUser(userId);
+        return messagePushHub.subscribe(userId);
     }
 
     /**
      * Get received messages for a user
      */
     @Transactional
-    public List<MessageDto> getReceivedMessages(Long userId) {
+    public CursorPageDto<MessageDto> getReceivedMessages(Long userId, String cursor, int limit) {
         log.info("Fetching received messages for user: {}", userId);
 
         validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        int pageSize = pageSize(limit);
 
-        return messageRepository.findByRecipientIdOrderBySentAtDesc(userId)
-                .stream()
-                .map(MessageDto::new)
-                .collect(Collectors.toList());
+        return toPage(messageRepository.findByRecipientIdOrderBySentAtDesc(
+                userId, position.sentAt(), position.id(), Limit.of(pageSize + 1)), pageSize);
     }
 
     /**
      * Get sent messages for a user
      */
     @Transactional
-    public List<MessageDto> getSentMessages(Long userId) {
+    public CursorPageDto<MessageDto> getSentMessages(Long userId, String cursor, int limit) {
         log.info("Fetching sent messages for user: {}", userId);
 
         validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        int pageSize = pageSize(limit);
 
-        return messageRepository.findBySenderIdOrderBySentAtDesc(userId)
-                .stream()
-                .map(MessageDto::new)
-                .collect(Collectors.toList());
+        return toPage(messageRepository.findBySenderIdOrderBySentAtDesc(
+                userId, position.sentAt(), position.id(), Limit.of(pageSize + 1)), pageSize);
     }
 
     /**
      * Get all messages for a user (sent and received)
      */
     @Transactional
-    public List<MessageDto> getAllUserMessages(Long userId) {
+    public CursorPageDto<MessageDto> getAllUserMessages(Long userId, String cursor, int limit) {
         log.info("Fetching all messages for user: {}", userId);
 
         validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        int pageSize = pageSize(limit);
 
-        return messageRepository.findAllUserMessages(userId)
-                .stream()
-                .map(MessageDto::new)
-                .collect(Collectors.toList());
+        return toPage(messageRepository.findAllUserMessages(
+                userId, position.sentAt(), position.id(), pageSize + 1), pageSize);
     }
 
     /**
      * Get unread messages for a user
      */
     @Transactional
-    public List<MessageDto> getUnreadMessages(Long userId) {
+    public CursorPageDto<MessageDto> getUnreadMessages(Long userId, String cursor, int limit) {
         log.info("Fetching unread messages for user: {}", userId);
 
         validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        int pageSize = pageSize(limit);
 
-        return messageRepository.findByRecipientIdAndIsReadFalseOrderBySentAtDesc(userId)
-                .stream()
-                .map(MessageDto::new)
-                .collect(Collectors.toList());
+        return toPage(messageRepository.findByRecipientIdAndIsReadFalseOrderBySentAtDesc(
+                userId, position.sentAt(), position.id(), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    /**
+     * Get a user's archived messages (sent or received), newest first.
+     * The other message lists only cover the hot table; read messages past the archive age live here.
+     */
+    @Transactional
+    public CursorPageDto<MessageDto> getArchivedMessages(Long userId, String cursor, int limit) {
+        log.info("Fetching archived messages for user: {}", userId);
+
+        validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        int pageSize = pageSize(limit);
+
+        return toPage(archivedMessageRepository.findUserArchive(
+                userId, position.sentAt(), position.id(), pageSize + 1), pageSize);
     }
 
     /**
@@ -168,10 +297,7 @@ public class MessageService {
         validateUser(user1Id);
         validateUser(user2Id);
 
-        return messageRepository.findConversationBetweenUsers(user1Id, user2Id)
-                .stream()
-                .map(MessageDto::new)
-                .collect(Collectors.toList());
+        return messageRepository.findConversationBetweenUsers(user1Id, user2Id);
     }
 
     /**
@@ -183,50 +309,75 @@ public class MessageService {
 
         validateUser(userId);
 
-        // Get latest messages in each conversation
-        List<Message> latestMessages = messageRepository.findLatestMessagesInConversations(userId);
-
-        return latestMessages.stream().map(message -> {
-            // Determine the other user in the conversation
-            User otherUser = message.getSender().getId().equals(userId) ?
-                    message.getRecipient() : message.getSender();
+        return conversationThreadService.getConversations(userId);
+    }
 
-            // Count unread messages in this conversation
-            Long unreadCount = messageRepository.findConversationBetweenUsers(userId, otherUser.getId())
-                    .stream()
-                    .filter(m -> m.getRecipient().getId().equals(userId) && !m.getIsRead())
-                    .count();
+    /**
+     * Mark messages as read, returning how many were still unread
+     */
+    public int markMessagesAsRead(Long userId, List<Long> messageIds) {
+        log.info("Marking messages as read for user: {}", userId);
 
-            return new ConversationDto(
-                    otherUser.getId(),
-                    otherUser.getFullName(),
-                    otherUser.getEmail(),
-                    new MessageDto(message),
-                    unreadCount,
-                    message.getSentAt()
-            );
-        }).collect(Collectors.toList());
+        validateUser(userId);
+        if (messageIds.size() > maxMarkReadIds) {
+            throw new IllegalArgumentException("Cannot mark more than " + maxMarkReadIds + " messages at once");
+        }
+        if (messageIds.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime readAt = LocalDateTime.now();
+        Long[] ids = messageIds.stream().distinct().toArray(Long[]::new);
+        return recordRead(userId, messageRepository.markMessagesAsRead(ids, userId, readAt), readAt);
     }
 
     /**
-     * Mark messages as read
+     * Mark every unread message the user received at or before a position in their inbox as read.
+     * The position is a received/unread list cursor or a message id; messages that arrived later stay unread.
      */
-    public void markMessagesAsRead(Long userId, List<Long> messageIds) {
-        log.info("Marking messages as read for user: {}", userId);
+    public int markMessagesAsReadUpTo(Long userId, String cursor, Long messageId) {
+        log.info("Marking messages as read up to a position for user: {}", userId);
 
         validateUser(userId);
-        messageRepository.markMessagesAsRead(messageIds, userId, LocalDateTime.now());
+        MessageCursor position;
+        if (messageId != null) {
+            Message message = messageRepository.findById(messageId)
+                    .orElseThrow(() -> new RuntimeException("Message not found with id: " + messageId));
+            if (!message.getRecipient().getId().equals(userId)) {
+                throw new IllegalAccessError("Not authorized to view this message");
+            }
+            position = new MessageCursor(message.getSentAt(), message.getId());
+        } else if (cursor != null && !cursor.isBlank()) {
+            position = MessageCursor.decode(cursor);
+        } else {
+            throw new IllegalArgumentException("Provide a cursor or a messageId");
+        }
+
+        LocalDateTime readAt = LocalDateTime.now();
+        return recordRead(userId, messageRepository.markReadUpTo(userId, position.sentAt(), position.id(), readAt), readAt);
     }
 
     /**
-     * Mark all messages from a specific sender as read
+     * Mark all messages from a specific sender as read, returning how many were still unread
      */
-    public void markAllMessagesFromUserAsRead(Long recipientId, Long senderId) {
+    public int markAllMessagesFromUserAsRead(Long recipientId, Long senderId) {
         log.info("Marking all messages from user {} as read for user {}", senderId, recipientId);
 
         validateUser(recipientId);
         validateUser(senderId);
-        messageRepository.markAllMessagesFromUserAsRead(senderId, recipientId, LocalDateTime.now());
+        LocalDateTime readAt = LocalDateTime.now();
+        List<MessageChangeLog.MessageParties> readMessages = messageRepository.markAllMessagesFromUserAsRead(senderId, recipientId, readAt)
+                .stream()
+                .map(id -> new MessageChangeLog.MessageParties(id, senderId, recipientId))
+                .toList();
+        int updated = readMessages.size();
+        conversationThreadService.recordUnreadRemoved(readMessages);
+        messageChangeLog.recordRead(readMessages);
+
+        if (updated > 0) {
+            MessagesReadDto receipt = new MessagesReadDto(recipientId, senderId, null, updated, readAt);
+            domainEventBus.publishAfterCommit(new MessagesRead(receipt, List.of(senderId)));
+        }
+        return updated;
     }
 
     /**
@@ -244,45 +395,154 @@ public class MessageService {
             throw new IllegalAccessError("Not authorized to view this message");
         }
 
-        // Mark as read if user is the recipient and message is unread
+        MessageDto messageDto = new MessageDto(message);
+
+        // Mark as read if user is the recipient and message is unread. The write is buffered,
+        // so only the response reflects it right away.
         if (message.getRecipient().getId().equals(userId) && !message.getIsRead()) {
-            message.markAsRead();
-            messageRepository.save(message);
+            messageDto.setIsRead(true);
+            messageDto.setReadAt(readReceiptBuffer.markRead(message));
+        }
+
+        return messageDto;
+    }
+
+    /**
+     * Get the whole reply thread a message belongs to, nested from its root.
+     * Only messages the user sent or received are included, and the tree is cut off
+     * below maxDepth (capped by configuration) or after the configured number of messages.
+     */
+    @Transactional
+    public MessageThreadDto getMessageThread(Long messageId, Long userId, int maxDepth) {
+        log.info("Fetching thread of message {} for user {}", messageId, userId);
+
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be at least 1");
+        }
+        int depth = Math.min(maxDepth, maxThreadDepth);
+
+        // One extra level and one extra row tell us whether anything was cut off
+        List<Object[]> rows = messageRepository.findThreadRows(messageId, userId, depth, depth + 1, maxThreadMessages + 1);
+        if (rows.isEmpty()) {
+            if (messageRepository.existsById(messageId)) {
+                throw new IllegalAccessError("Not authorized to view this message");
+            }
+            throw new RuntimeException("Message not found with id: " + messageId);
+        }
+
+        boolean truncated = rows.size() > maxThreadMessages;
+        Map<Long, ThreadNodeDto> nodes = new LinkedHashMap<>();
+        for (Object[] row : rows.subList(0, Math.min(rows.size(), maxThreadMessages))) {
+            ThreadNodeDto node = toThreadNode(row);
+            if (node.getDepth() > depth) {
+                truncated = true;
+                continue;
+            }
+            // Rows arrive parents first, so the parent of every reply is already in the map
+            ThreadNodeDto parent = node.getDepth() == 0 ? null : nodes.get(node.getMessage().getParentMessageId());
+            if (parent != null) {
+                parent.getReplies().add(node);
+            }
+            nodes.put(node.getMessage().getId(), node);
         }
 
-        return new MessageDto(message);
+        return new MessageThreadDto(nodes.values().iterator().next(), nodes.size(), truncated);
     }
 
     /**
      * Search messages for a user
      */
     @Transactional
-    public List<MessageDto> searchMessages(Long userId, String searchTerm) {
+    public CursorPageDto<MessageDto> searchMessages(Long userId, String searchTerm, String cursor, int limit) {
         log.info("Searching messages for user {} with term: {}", userId, searchTerm);
 
         validateUser(userId);
+        String tsQuery = MessageSearchQuery.toTsQuery(searchTerm);
+        OffsetCursor position = OffsetCursor.decode(cursor);
+        int pageSize = pageSize(limit);
+
+        List<Long> rankedIds = messageRepository.searchUserMessageIds(userId, tsQuery, pageSize + 1, position.offset());
+        boolean hasMore = rankedIds.size() > pageSize;
+        List<Long> pageIds = hasMore ? rankedIds.subList(0, pageSize) : rankedIds;
+
+        // Keep the relevance order from the search query
+        Map<Long, MessageDto> messagesById = messageRepository.findAllWithDetailsByIdIn(pageIds)
+                .stream()
+                .collect(Collectors.toMap(MessageDto::getId, Function.identity()));
+
+        return new CursorPageDto<>(
+                pageIds.stream().map(messagesById::get).collect(Collectors.toList()),
+                hasMore ? position.next(pageSize).encode() : null,
+                hasMore
+        );
+    }
+
+    /**
+     * Get what changed in a user's mailbox since the cursor: messages created or read, with their
+     * current state, and ids of deleted messages. Each call is one range scan over the user's change log,
+     * so the cost follows the number of changes rather than the mailbox size.
+     */
+    @Transactional
+    public MessageSyncDto syncMessages(Long userId, String cursor, int limit) {
+        log.info("Syncing messages for user: {}", userId);
+
+        validateUser(userId);
+        SyncCursor position = SyncCursor.decode(cursor);
+        int pageSize = pageSize(limit);
+
+        List<MessageChange> changes = messageChangeRepository.findChangesSince(userId, position.seq(), Limit.of(pageSize + 1));
+        boolean hasMore = changes.size() > pageSize;
+        List<MessageChange> page = hasMore ? changes.subList(0, pageSize) : changes;
+
+        // Change numbers have no gaps, so anything but the next one means the cursor fell out of retention
+        boolean resetRequired = page.isEmpty()
+                ? position.seq() != lastChangeSeq(userId)
+                : page.get(0).getChangeSeq() != position.seq() + 1;
+        if (resetRequired) {
+            return new MessageSyncDto(List.of(), List.of(), new SyncCursor(lastChangeSeq(userId)).encode(), false, true);
+        }
+
+        // Only the latest change per message matters, since messages are returned as they are now
+        Map<Long, MessageChangeType> latestChanges = new LinkedHashMap<>();
+        page.forEach(change -> latestChanges.put(change.getMessageId(), change.getChangeType()));
+        List<Long> deletedIds = new ArrayList<>();
+        List<Long> changedIds = new ArrayList<>();
+        latestChanges.forEach((messageId, changeType) ->
+                (changeType == MessageChangeType.DELETED ? deletedIds : changedIds).add(messageId));
 
-        return messageRepository.searchUserMessages(userId, searchTerm)
+        // Keep change order; messages archived since the change are no longer in the hot table and are left out
+        Map<Long, MessageDto> messagesById = changedIds.isEmpty() ? Map.of() : messageRepository.findAllWithDetailsByIdIn(changedIds)
                 .stream()
-                .map(MessageDto::new)
+                .collect(Collectors.toMap(MessageDto::getId, Function.identity()));
+        List<MessageDto> messages = changedIds.stream()
+                .map(messagesById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        SyncCursor next = page.isEmpty() ? position : new SyncCursor(page.get(page.size() - 1).getChangeSeq());
+
+        return new MessageSyncDto(messages, deletedIds, next.encode(), hasMore, false);
     }
 
     /**
      * Get message statistics for a user
      */
     @Transactional
-    public MessageStatsDto getMessageStats(Long userId) { // Fixed: Return MessageStatsDto instead of MessageCreateDto
+    public MessageStatsDto getMessageStats(Long userId) {
         log.info("Fetching message statistics for user: {}", userId);
 
-        validateUser(userId);
-
-        Long totalSent = messageRepository.countBySenderId(userId);
-        Long totalReceived = messageRepository.countByRecipientId(userId);
-        Long unreadCount = messageRepository.countByRecipientIdAndIsReadFalse(userId);
-        Long totalMessages = totalSent + totalReceived;
+        // Served from the in-memory counters; only a cold entry touches the database
+        return messageCounterService.getCachedStats(userId).orElseGet(() -> {
+            validateUser(userId);
+            return messageCounterService.loadStats(userId);
+        });
+    }
 
-        return new MessageStatsDto(totalMessages, unreadCount, totalSent, totalReceived); // Fixed: Use correct DTO
+    /**
+     * Get the unread message count for a user's badge
+     */
+    @Transactional
+    public Long getUnreadCount(Long userId) {
+        return getMessageStats(userId).getUnreadMessages();
     }
 
     /**
@@ -300,6 +560,10 @@ public class MessageService {
         }
 
         messageRepository.delete(message);
+        messageRepository.flush();
+        conversationThreadService.recordDeletion(message);
+        domainEventBus.publishAfterCommit(new MessageDeleted(messageId, userId, message.getRecipient().getId(), !message.getIsRead()));
+        messageChangeLog.recordDeleted(message);
         log.info("Message {} deleted successfully", messageId);
     }
 
@@ -314,10 +578,141 @@ public class MessageService {
         propertyRepository.findById(propertyId)
                 .orElseThrow(() -> new RuntimeException("Property not found with id: " + propertyId)); // Fixed: Use RuntimeException
 
-        return messageRepository.findByPropertyIdOrderBySentAtDesc(propertyId)
-                .stream()
-                .map(MessageDto::new)
+        return messageRepository.findByPropertyIdOrderBySentAtDesc(propertyId);
+    }
+
+    // Streaming forms of the lists above for NDJSON responses. Each stream reads from an open cursor,
+    // so the caller consumes and closes it inside its own transaction. Validation happens up front.
+
+    public Stream<MessageDto> streamReceivedMessages(Long userId, String cursor) {
+        validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        return messageRepository.streamReceivedMessages(userId, position.sentAt(), position.id());
+    }
+
+    public Stream<MessageDto> streamSentMessages(Long userId, String cursor) {
+        validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        return messageRepository.streamSentMessages(userId, position.sentAt(), position.id());
+    }
+
+    public Stream<MessageDto> streamAllUserMessages(Long userId, String cursor) {
+        validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        return messageRepository.streamAllUserMessages(userId, position.sentAt(), position.id());
+    }
+
+    public Stream<MessageDto> streamUnreadMessages(Long userId, String cursor) {
+        validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        return messageRepository.streamUnreadMessages(userId, position.sentAt(), position.id());
+    }
+
+    public Stream<MessageDto> streamArchivedMessages(Long userId, String cursor) {
+        validateUser(userId);
+        MessageCursor position = MessageCursor.decode(cursor);
+        return archivedMessageRepository.streamUserArchive(userId, position.sentAt(), position.id());
+    }
+
+    public Stream<MessageDto> streamConversation(Long user1Id, Long user2Id) {
+        validateUser(user1Id);
+        validateUser(user2Id);
+        return messageRepository.streamConversation(user1Id, user2Id);
+    }
+
+    public Stream<MessageDto> streamPropertyMessages(Long propertyId) {
+        if (!propertyRepository.existsById(propertyId)) {
+            throw new RuntimeException("Property not found with id: " + propertyId);
+        }
+        return messageRepository.streamPropertyMessages(propertyId);
+    }
+
+    private List<User> resolveBroadcastRecipients(User sender, Property property, List<Long> recipientIds) {
+        List<User> recipients;
+        if (recipientIds != null && !recipientIds.isEmpty()) {
+            Set<Long> uniqueIds = new LinkedHashSet<>(recipientIds);
+            recipients = userRepository.findAllById(uniqueIds);
+            if (recipients.size() != uniqueIds.size()) {
+                Set<Long> missing = new LinkedHashSet<>(uniqueIds);
+                recipients.forEach(recipient -> missing.remove(recipient.getId()));
+                throw new RuntimeException("Recipients not found with ids: " + missing);
+            }
+        } else if (property != null) {
+            // Only the landlord may message every tenant of a property
+            if (!property.getLandlord().getId().equals(sender.getId())) {
+                throw new IllegalAccessError("Only the landlord can broadcast to this property's tenants");
+            }
+            recipients = leaseRepository.findTenantsByPropertyIdAndStatus(property.getId(), LeaseStatus.ACTIVE);
+        } else {
+            throw new IllegalArgumentException("Provide recipientIds or a propertyId");
+        }
+
+        recipients = recipients.stream()
+                .filter(recipient -> !recipient.getId().equals(sender.getId()))
                 .collect(Collectors.toList());
+        if (recipients.isEmpty()) {
+            throw new IllegalArgumentException("Broadcast has no recipients");
+        }
+        if (recipients.size() > maxBroadcastRecipients) {
+            throw new IllegalArgumentException("Broadcast cannot exceed " + maxBroadcastRecipients + " recipients");
+        }
+        return recipients;
+    }
+
+    // Maps a row of MessagRepository.findThreadRows
+    private ThreadNodeDto toThreadNode(Object[] row) {
+        MessageDto message = new MessageDto(
+                (Long) row[0], (Long) row[1], (String) row[2], (String) row[3],
+                (Long) row[4], (String) row[5], (String) row[6],
+                (Long) row[7], (String) row[8], (Long) row[9],
+                (String) row[10], (String) row[11],
+                row[12] != null ? MessageType.valueOf((String) row[12]) : null,
+                (Boolean) row[13], toLocalDateTime(row[14]), toLocalDateTime(row[15]), (Long) row[16]);
+        return new ThreadNodeDto(message, ((Number) row[17]).intValue(), new ArrayList<>());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    // Follows up a mark-read UPDATE from its (id, sender id) rows and returns how many messages changed
+    private int recordRead(Long recipientId, List<Object[]> rows, LocalDateTime readAt) {
+        List<MessageChangeLog.MessageParties> readMessages = rows.stream()
+                .map(row -> new MessageChangeLog.MessageParties((Long) row[0], (Long) row[1], recipientId))
+                .toList();
+        if (readMessages.isEmpty()) {
+            return 0;
+        }
+
+        conversationThreadService.recordUnreadRemoved(readMessages);
+        messageChangeLog.recordRead(readMessages);
+
+        List<Long> senderIds = readMessages.stream().map(MessageChangeLog.MessageParties::senderId).distinct().toList();
+        List<Long> messageIds = readMessages.stream().map(MessageChangeLog.MessageParties::messageId).toList();
+        MessagesReadDto receipt = new MessagesReadDto(recipientId, null, messageIds, messageIds.size(), readAt);
+        domainEventBus.publishAfterCommit(new MessagesRead(receipt, senderIds));
+        return messageIds.size();
+    }
+
+    private long lastChangeSeq(Long userId) {
+        Long lastSeq = messageSyncSequenceRepository.findLastSeq(userId);
+        return lastSeq != null ? lastSeq : 0L;
+    }
+
+    private int pageSize(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // Rows are fetched with one extra element so we know whether another page exists
+    private CursorPageDto<MessageDto> toPage(List<MessageDto> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<MessageDto> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? MessageCursor.of(page.get(page.size() - 1)).encode() : null;
+
+        return new CursorPageDto<>(page, nextCursor, hasMore);
     }
 
     private void validateUser(Long userId) {
@@ -0,0 +1,36 @@
+package com.link2lease.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the results of a near search: the distance from the search origin and the id.
+ * Clients only ever see the encoded, opaque form.
+ */
+public record NearCursor(double distanceKm, long id) {
+
+    // Sorts before any real distance, so the first page uses the same query as every other page
+    public static final NearCursor FIRST = new NearCursor(-1, 0);
+
+    private static final String PREFIX = "near";
+
+    public static NearCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String[] raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            if (!PREFIX.equals(raw[0])) {
+                throw new IllegalArgumentException("Not a near cursor");
+            }
+            return new NearCursor(Double.parseDouble(raw[1]), Long.parseLong(raw[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String raw = PREFIX + "|" + distanceKm + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,38 @@
+package com.link2lease.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a ranked result list where keyset paging does not apply,
+ * such as relevance-ordered search. Clients only ever see the encoded form.
+ */
+public record OffsetCursor(int offset) {
+
+    public static final OffsetCursor FIRST = new OffsetCursor(0);
+
+    public static OffsetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int offset = Integer.parseInt(raw.substring(raw.indexOf(':') + 1));
+            if (!raw.startsWith("offset:") || offset < 0) {
+                throw new IllegalArgumentException();
+            }
+            return new OffsetCursor(offset);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public OffsetCursor next(int pageSize) {
+        return new OffsetCursor(offset + pageSize);
+    }
+
+    public String encode() {
+        String raw = "offset:" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,69 @@
+package com.link2lease.service;
+
+import com.link2lease.cache.ReadThroughCache;
+import com.link2lease.dto.PropertyDto;
+import com.link2lease.event.TransactionCallbacks;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Caches behind GET /api/properties/{id} and /api/properties/landlord/{landlordId}. Writes drop the entries
+ * they change once their transaction commits, so a reader never caches the version they replaced for longer
+ * than the commit takes. Entries also expire after ttl-seconds.
+ */
+@Component
+public class PropertyCache {
+    private final ReadThroughCache<Long, PropertyDto> properties;
+    private final ReadThroughCache<Long, List<PropertyDto>> landlordProperties;
+
+    public PropertyCache(MeterRegistry meterRegistry,
+                         @Value("${link2lease.property-cache.max-properties:10000}") int maxProperties,
+                         @Value("${link2lease.property-cache.max-landlords:2000}") int maxLandlords,
+                         @Value("${link2lease.property-cache.ttl-seconds:300}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.properties = new ReadThroughCache<>("properties", maxProperties, ttl, meterRegistry);
+        this.landlordProperties = new ReadThroughCache<>("landlord-properties", maxLandlords, ttl, meterRegistry);
+    }
+
+    public Optional<PropertyDto> getProperty(Long id, Function<Long, Optional<PropertyDto>> loader) {
+        return Optional.ofNullable(properties.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    // The list is shared by every caller that gets it from the cache, so it is kept unmodifiable
+    public List<PropertyDto> getLandlordProperties(Long landlordId, Function<Long, List<PropertyDto>> loader) {
+        return landlordProperties.get(landlordId, key -> List.copyOf(loader.apply(key)));
+    }
+
+    /**
+     * Drop a property and the lists of the landlords it had or has once the current transaction commits
+     */
+    public void invalidateAfterCommit(Long propertyId, Long... landlordIds) {
+        TransactionCallbacks.afterCommit(() -> {
+            if (propertyId != null) {
+                properties.invalidate(propertyId);
+            }
+            for (Long landlordId : landlordIds) {
+                if (landlordId != null) {
+                    landlordProperties.invalidate(landlordId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop everything showing the landlord's name or email once the current transaction commits
+     */
+    public void invalidateLandlordAfterCommit(Long landlordId) {
+        TransactionCallbacks.afterCommit(() -> {
+            landlordProperties.invalidate(landlordId);
+            properties.invalidateIf(property -> Objects.equals(property.getLandlordId(), landlordId));
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.link2lease.service;
+
+import com.link2lease.dto.PropertyDto;
+import com.link2lease.enums.PropertySort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Keyset position in a property list: the sort it belongs to, that sort's key and the id.
+ * Only the key of the cursor's own sort is meaningful. Clients only ever see the encoded, opaque form.
+ */
+public record PropertyCursor(PropertySort sort, double rentAmount, LocalDate availableFrom, long id) {
+
+    // Sorts before the first real property of the order, so the first page uses the same query as every other page
+    public static PropertyCursor first(PropertySort sort) {
+        return switch (sort) {
+            case NEWEST -> new PropertyCursor(sort, 0, null, Long.MAX_VALUE);
+            case RENT_ASC -> new PropertyCursor(sort, -Double.MAX_VALUE, null, 0);
+            case RENT_DESC -> new PropertyCursor(sort, Double.MAX_VALUE, null, Long.MAX_VALUE);
+            case AVAILABLE_FROM -> new PropertyCursor(sort, 0, LocalDate.of(1, 1, 1), 0);
+        };
+    }
+
+    public static PropertyCursor of(PropertySort sort, PropertyDto property) {
+        return new PropertyCursor(sort, property.getRentAmount(), property.getAvailableFrom(), property.getId());
+    }
+
+    public static PropertyCursor decode(String cursor, PropertySort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return first(sort);
+        }
+        PropertyCursor position;
+        try {
+            String[] raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            PropertySort cursorSort = PropertySort.valueOf(raw[0]);
+            long id = Long.parseLong(raw[2]);
+            position = switch (cursorSort) {
+                case NEWEST -> new PropertyCursor(cursorSort, 0, null, id);
+                case RENT_ASC, RENT_DESC -> new PropertyCursor(cursorSort, Double.parseDouble(raw[1]), null, id);
+                case AVAILABLE_FROM -> new PropertyCursor(cursorSort, 0, LocalDate.parse(raw[1]), id);
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (position.sort() != sort) {
+            throw new IllegalArgumentException("Cursor belongs to sort " + position.sort() + ", not " + sort);
+        }
+        return position;
+    }
+
+    // Where the search index orders this position: its keys are doubles, with dates as epoch days
+    public static PropertyCursor ofIndexKey(PropertySort sort, double key, long id) {
+        return switch (sort) {
+            case NEWEST -> new PropertyCursor(sort, 0, null, id);
+            case RENT_ASC, RENT_DESC -> new PropertyCursor(sort, key, null, id);
+            case AVAILABLE_FROM -> new PropertyCursor(sort, 0, LocalDate.ofEpochDay((long) key), id);
+        };
+    }
+
+    public double indexKey() {
+        return switch (sort) {
+            case NEWEST -> 0;
+            case RENT_ASC, RENT_DESC -> rentAmount;
+            case AVAILABLE_FROM -> availableFrom.toEpochDay();
+        };
+    }
+
+    public String encode() {
+        String key = switch (sort) {
+            case NEWEST -> "";
+            case RENT_ASC, RENT_DESC -> Double.toString(rentAmount);
+            case AVAILABLE_FROM -> availableFrom.toString();
+        };
+        String raw = sort + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,29 +1,65 @@
 package com.link2lease.service;
 
+import com.link2lease.dto.CursorPageDto;
+import com.link2lease.dto.FacetCountDto;
 import com.link2lease.dto.PropertyDto;
+import com.link2lease.dto.SuggestionDto;
+import com.link2lease.enums.PropertySort;
+import com.link2lease.enums.SearchConsistency;
+import com.link2lease.event.DomainEventBus;
+import com.link2lease.event.PropertyCreated;
+import com.link2lease.event.PropertyDeleted;
+import com.link2lease.event.PropertyUpdated;
 import com.link2lease.model.Property;
 import com.link2lease.model.User;
 import com.link2lease.repository.PropertyRepository;
 import com.link2lease.repository.UserRepository;
+import com.link2lease.search.FacetCounts;
+import com.link2lease.search.GeoFilter;
+import com.link2lease.search.IndexPage;
+import com.link2lease.search.IndexedProperty;
+import com.link2lease.search.PropertyFacets;
+import com.link2lease.search.PropertyFilter;
+import com.link2lease.search.PropertySearchIndex;
+import com.link2lease.search.Suggestion;
+import com.link2lease.search.TextField;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class PropertyService {
     private final PropertyRepository propertyRepository;
     private final UserRepository userRepository;
+    private final DomainEventBus domainEventBus;
+    private final PropertySearchIndex propertySearchIndex;
+    private final PropertyCache propertyCache;
+
+    private static final int MAX_PAGE_SIZE = 200;
 
     @Autowired
-    public PropertyService(PropertyRepository propertyRepository,UserRepository userRepository){
+    public PropertyService(PropertyRepository propertyRepository,UserRepository userRepository,DomainEventBus domainEventBus,
+                           PropertySearchIndex propertySearchIndex, PropertyCache propertyCache){
         this.propertyRepository = propertyRepository;
         this.userRepository = userRepository;
+        this.domainEventBus = domainEventBus;
+        this.propertySearchIndex = propertySearchIndex;
+        this.propertyCache = propertyCache;
     }
 
     // --- Utility to convert entities -> DTOs ---
@@ -38,13 +74,22 @@ public class PropertyService {
     // --- Basic CRUD with entities (still used internally) ---
     public Property saveProperty(Property property){
         validateProperty(property);
-        return propertyRepository.save(property);
+        boolean isNew = property.getId() == null;
+        Long previousLandlordId = isNew ? null : landlordIdOf(property.getId());
+        Property savedProperty = propertyRepository.save(property);
+        propertyCache.invalidateAfterCommit(savedProperty.getId(), previousLandlordId, landlordId(savedProperty));
+        domainEventBus.publishAfterCommit(isNew ? new PropertyCreated(toDto(savedProperty)) : new PropertyUpdated(toDto(savedProperty)));
+        return savedProperty;
     }
 
     public PropertyDto savePropertyDto(Property property){
         if (property.getLandlord() == null || property.getLandlord().getId() == null) {
             throw new IllegalArgumentException("Property must have a landlord id");
         }
+        if (property.getAvailableFrom() == null) {
+            throw new IllegalArgumentException("Available from date cannot be null");
+        }
+        validateLocation(property.getLatitude(), property.getLongitude());
 
         // Fetch the managed landlord entity
         Long landlordId = property.getLandlord().getId();
@@ -53,8 +98,13 @@ public class PropertyService {
 
         property.setLandlord(landlord); // assign managed entity
 
+        boolean isNew = property.getId() == null;
+        Long previousLandlordId = isNew ? null : landlordIdOf(property.getId());
         Property savedProperty = propertyRepository.save(property);
-        return new PropertyDto(savedProperty);
+        propertyCache.invalidateAfterCommit(savedProperty.getId(), previousLandlordId, landlordId);
+        PropertyDto propertyDto = new PropertyDto(savedProperty);
+        domainEventBus.publishAfterCommit(isNew ? new PropertyCreated(propertyDto) : new PropertyUpdated(propertyDto));
+        return propertyDto;
     }
 
     public Property updateProperty(Long id, Property propertyDetails){
@@ -68,20 +118,32 @@ public class PropertyService {
         property.setAddress(propertyDetails.getAddress());
         property.setRentAmount(propertyDetails.getRentAmount());
         property.setAvailableFrom(propertyDetails.getAvailableFrom());
+        property.setLatitude(propertyDetails.getLatitude());
+        property.setLongitude(propertyDetails.getLongitude());
 
-        return propertyRepository.save(property);
+        Property savedProperty = propertyRepository.save(property);
+        propertyCache.invalidateAfterCommit(id, landlordId(savedProperty));
+        domainEventBus.publishAfterCommit(new PropertyUpdated(toDto(savedProperty)));
+        return savedProperty;
     }
 
 
     public PropertyDto updatePropertyDto(Long id, PropertyDto propertyDetailsDto) {
         Property property = propertyRepository.findById(id)
                 .orElseThrow(() -> new IllegalStateException("Property not found"));
+        if (propertyDetailsDto.getAvailableFrom() == null) {
+            throw new IllegalArgumentException("Available from date cannot be null");
+        }
+        validateLocation(propertyDetailsDto.getLatitude(), propertyDetailsDto.getLongitude());
+        Long previousLandlordId = landlordId(property);
 
         property.setTitle(propertyDetailsDto.getTitle());
         property.setDescription(propertyDetailsDto.getDescription());
         property.setAddress(propertyDetailsDto.getAddress());
         property.setRentAmount(propertyDetailsDto.getRentAmount());
         property.setAvailableFrom(propertyDetailsDto.getAvailableFrom());
+        property.setLatitude(propertyDetailsDto.getLatitude());
+        property.setLongitude(propertyDetailsDto.getLongitude());
 
         // Now this will work because PropertyDto has getLandlordEmail()
         if (propertyDetailsDto.getLandlordEmail() != null) {
@@ -94,25 +156,41 @@ public class PropertyService {
         }
 
         Property saved = propertyRepository.save(property);
-        return new PropertyDto(saved);
+        propertyCache.invalidateAfterCommit(id, previousLandlordId, landlordId(saved));
+        PropertyDto propertyDto = new PropertyDto(saved);
+        domainEventBus.publishAfterCommit(new PropertyUpdated(propertyDto));
+        return propertyDto;
     }
 
 
     public void deleteProperty(Long id){
-        boolean exists = propertyRepository.existsById(id);
-        if(!exists){
-            throw new IllegalStateException("Property with id " + id + " does not exist");
-        }
-        propertyRepository.deleteById(id);
+        Property property = propertyRepository.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Property with id " + id + " does not exist"));
+        Long landlordId = landlordId(property);
+        propertyRepository.delete(property);
+        propertyCache.invalidateAfterCommit(id, landlordId);
+        domainEventBus.publishAfterCommit(new PropertyDeleted(id));
+    }
+
+    private static Long landlordId(Property property){
+        return property.getLandlord() != null ? property.getLandlord().getId() : null;
+    }
+
+    // Landlord a stored property has before it is saved again, which may move it to another landlord
+    private Long landlordIdOf(Long propertyId){
+        return propertyRepository.findById(propertyId).map(PropertyService::landlordId).orElse(null);
     }
 
     // --- DTO-based methods for Controller responses ---
-    public List<PropertyDto> getAllProperties(){
-        return toDtoList(propertyRepository.findAll());
+    public CursorPageDto<PropertyDto> getAllProperties(PropertySort sort, String cursor, int limit, boolean includeTotal){
+        PropertyFilter filter = new PropertyFilter(null, null, null, null, null, null);
+        return findPage(filter, PropertyCursor.decode(cursor, sort), pageSize(limit), includeTotal);
     }
 
+    // Hits are served without opening a transaction; a miss loads in the repository's own
+    @Transactional(Transactional.TxType.SUPPORTS)
     public Optional<PropertyDto> getPropertyById(Long id){
-        return propertyRepository.findById(id).map(this::toDto);
+        return propertyCache.getProperty(id, key -> propertyRepository.findWithLandlordById(key).map(this::toDto));
     }
 
     // REMOVED: getPropertyId method (was causing confusion)
@@ -122,56 +200,406 @@ public class PropertyService {
         return toDtoList(propertyRepository.findByLandlord(landlord));
     }
 
+    @Transactional(Transactional.TxType.SUPPORTS)
     public List<PropertyDto> getPropertiesByLandlordId(Long landlordId){
-        return toDtoList(propertyRepository.findByLandlordId(landlordId));
+        return propertyCache.getLandlordProperties(landlordId, key -> toDtoList(propertyRepository.findByLandlordId(key)));
     }
 
     public List<PropertyDto> getAvailablePropertiesFromDate(LocalDate date){
         return toDtoList(propertyRepository.findAvailableProperties(date));
     }
 
-    public List<PropertyDto> getAvailableProperties() {
-        return toDtoList(propertyRepository.findAvailableProperties(LocalDate.now()));
+    public CursorPageDto<PropertyDto> getAvailableProperties(PropertySort sort, String cursor, int limit, boolean includeTotal) {
+        PropertyFilter filter = new PropertyFilter(null, null, null, null, LocalDate.now(), null);
+        return findPage(filter, PropertyCursor.decode(cursor, sort), pageSize(limit), includeTotal);
     }
 
-    public List<PropertyDto> getPropertiesByRentRange(double minRent, double maxRent){
-        if(minRent < 0 || maxRent < 0){
-            throw new IllegalArgumentException("Rent amounts cannot be negative");
-        }
-        if(minRent > maxRent){
-            throw new IllegalArgumentException("Minimum rent cannot be greater than maximum rent");
-        }
-        return toDtoList(propertyRepository.findByRentAmountBetween(minRent, maxRent));
+    public CursorPageDto<PropertyDto> getPropertiesByRentRange(double minRent, double maxRent,
+                                                               PropertySort sort, String cursor, int limit, boolean includeTotal){
+        validateRentRange(minRent, maxRent);
+        PropertyFilter filter = new PropertyFilter(null, null, minRent, maxRent, null, null);
+        return findPage(filter, PropertyCursor.decode(cursor, sort), pageSize(limit), includeTotal);
     }
 
-    public List<PropertyDto> getPropertiesByMaxRent(double maxRent){
-        if(maxRent < 0){
-            throw new IllegalArgumentException("Rent amount cannot be negative");
-        }
-        return toDtoList(propertyRepository.findByRentAmountLessThanEqual(maxRent));
+    public CursorPageDto<PropertyDto> getPropertiesByMaxRent(double maxRent,
+                                                             PropertySort sort, String cursor, int limit, boolean includeTotal){
+        validateMaxRent(maxRent);
+        PropertyFilter filter = new PropertyFilter(null, null, null, maxRent, null, null);
+        return findPage(filter, PropertyCursor.decode(cursor, sort), pageSize(limit), includeTotal);
     }
 
-    public List<PropertyDto> searchPropertiesByAddress(String address){
-        if(address == null || address.trim().isEmpty()){
-            throw new IllegalArgumentException("Address search term cannot be empty");
-        }
-        return toDtoList(propertyRepository.findByAddressContaining(address.trim()));
+    public CursorPageDto<PropertyDto> searchPropertiesByAddress(String address,
+                                                                PropertySort sort, String cursor, int limit, boolean includeTotal){
+        validateSearchTerm("Address", address);
+        PropertyFilter filter = new PropertyFilter(null, address.trim(), null, null, null, null);
+        return findPage(filter, PropertyCursor.decode(cursor, sort), pageSize(limit), includeTotal);
     }
 
-    public List<PropertyDto> searchPropertiesByTitle(String title){
-        if(title == null || title.trim().isEmpty()){
-            throw new IllegalArgumentException("Title search term cannot be empty");
+    public CursorPageDto<PropertyDto> searchPropertiesByTitle(String title,
+                                                              PropertySort sort, String cursor, int limit, boolean includeTotal){
+        validateSearchTerm("Title", title);
+        PropertyFilter filter = new PropertyFilter(title.trim(), null, null, null, null, null);
+        return findPage(filter, PropertyCursor.decode(cursor, sort), pageSize(limit), includeTotal);
+    }
+
+    public CursorPageDto<PropertyDto> searchPropertiesWithFilters(
+            String title,
+            String address,
+            double minRent,
+            double maxRent,
+            LocalDate availableFrom,
+            Long landlordId,
+            SearchConsistency consistency,
+            PropertySort sort,
+            String cursor,
+            int limit,
+            boolean includeTotal,
+            boolean includeFacets
+    ){
+        validateFilterRent(minRent, maxRent);
+        PropertyFilter filter = new PropertyFilter(trimToNull(title), trimToNull(address), minRent, maxRent, availableFrom, landlordId);
+        PropertyCursor position = PropertyCursor.decode(cursor, sort);
+        int pageSize = pageSize(limit);
+
+        if(consistency == SearchConsistency.EVENTUAL){
+            IndexPage page = propertySearchIndex.page(filter, sort, position.indexKey(), position.id(), pageSize, includeFacets);
+            if(page != null){
+                CursorPageDto<PropertyDto> result = loadIndexPage(page, filter, sort, includeTotal);
+                if(includeFacets){
+                    result.setFacets(toFacetDtos(page.facets()));
+                }
+                return result;
+            }
         }
-        return toDtoList(propertyRepository.findByTitleContaining(title.trim()));
+        CursorPageDto<PropertyDto> result = findPage(filter, position, pageSize, includeTotal);
+        if(includeFacets){
+            result.setFacets(toFacetDtos(findFacets(filter)));
+        }
+        return result;
     }
 
-    public List<PropertyDto> searchPropertiesWithFilters(
+    // Properties within a radius of a point and/or inside a bounding box, nearest first, with the other search
+    // filters on top. Served from the search index like search; consistency=STRONG reads Postgres instead
+    public CursorPageDto<PropertyDto> searchNear(
+            GeoFilter geo,
             String title,
             String address,
             double minRent,
             double maxRent,
-            LocalDate availableFrom
+            LocalDate availableFrom,
+            Long landlordId,
+            SearchConsistency consistency,
+            String cursor,
+            int limit,
+            boolean includeTotal
     ){
+        validateFilterRent(minRent, maxRent);
+        PropertyFilter filter = new PropertyFilter(trimToNull(title), trimToNull(address), minRent, maxRent, availableFrom, landlordId, geo);
+        NearCursor position = NearCursor.decode(cursor);
+        int pageSize = pageSize(limit);
+
+        if(consistency == SearchConsistency.EVENTUAL){
+            IndexPage page = propertySearchIndex.nearest(filter, position.distanceKm(), position.id(), pageSize);
+            if(page != null){
+                return loadNearIndexPage(page, filter, includeTotal);
+            }
+        }
+        return findNearPage(filter, position, pageSize, includeTotal);
+    }
+
+    // Properties whose title or address is similar to the query, typos included, best match first. Served from
+    // the search index like search; consistency=STRONG, or a search before the index is built, asks pg_trgm instead
+    public List<PropertyDto> searchSimilar(TextField field, String query, double minSimilarity, SearchConsistency consistency, int limit){
+        validateSearchTerm(field == TextField.TITLE ? "Title" : "Address", query);
+        if(!(minSimilarity > 0 && minSimilarity <= 1)){
+            throw new IllegalArgumentException("Minimum similarity must be above 0 and at most 1");
+        }
+        int pageSize = pageSize(limit);
+
+        long[] ids;
+        double[] similarities;
+        IndexPage page = consistency == SearchConsistency.EVENTUAL
+                ? propertySearchIndex.similar(field, query, minSimilarity, pageSize)
+                : null;
+        if(page != null){
+            ids = page.ids();
+            similarities = page.sortKeys();
+        } else {
+            String term = query.trim().toLowerCase(Locale.ROOT);
+            propertyRepository.setWordSimilarityThreshold(Double.toString(minSimilarity));
+            List<Object[]> rows = field == TextField.TITLE
+                    ? propertyRepository.findSimilarTitles(term, pageSize)
+                    : propertyRepository.findSimilarAddresses(term, pageSize);
+            ids = new long[rows.size()];
+            similarities = new double[rows.size()];
+            for(int i = 0; i < rows.size(); i++){
+                ids[i] = ((Number) rows.get(i)[0]).longValue();
+                similarities[i] = ((Number) rows.get(i)[1]).doubleValue();
+            }
+        }
+
+        List<Long> idList = new ArrayList<>(ids.length);
+        for(long id : ids){
+            idList.add(id);
+        }
+        Map<Long, PropertyDto> loaded = new HashMap<>();
+        for(Property property : propertyRepository.findAllWithLandlordByIdIn(idList)){
+            loaded.put(property.getId(), toDto(property));
+        }
+        List<PropertyDto> results = new ArrayList<>(ids.length);
+        for(int i = 0; i < ids.length; i++){
+            PropertyDto dto = loaded.get(ids[i]);
+            if(dto != null){
+                dto.setSimilarity(similarities[i]);
+                results.add(dto);
+            }
+        }
+        return results;
+    }
+
+    // Words of titles or addresses completing a typeahead prefix, most available first. Only the search index
+    // has them, so until it is built there are none to give
+    public List<SuggestionDto> suggest(TextField field, String prefix, int limit){
+        if(prefix == null || prefix.isBlank()){
+            throw new IllegalArgumentException("Prefix cannot be empty");
+        }
+        if(limit < 1 || limit > PropertySearchIndex.MAX_SUGGESTIONS){
+            throw new IllegalArgumentException("Limit must be between 1 and " + PropertySearchIndex.MAX_SUGGESTIONS);
+        }
+        List<Suggestion> suggestions = propertySearchIndex.suggest(field, prefix, limit);
+        if(suggestions == null){
+            throw new IllegalStateException("Suggestions are not available until the search index is built");
+        }
+        return suggestions.stream()
+                .map(suggestion -> new SuggestionDto(suggestion.word(), suggestion.available(), suggestion.total()))
+                .collect(Collectors.toList());
+    }
+
+    // --- Streaming forms of the lists above for NDJSON responses ---
+    // Each stream reads from an open cursor, so the caller consumes and closes it inside its own transaction
+
+    public Stream<PropertyDto> streamAllProperties(){
+        return propertyRepository.streamAllBy().map(PropertyDto::new);
+    }
+
+    public Stream<PropertyDto> streamPropertiesByLandlordId(Long landlordId){
+        return propertyRepository.streamByLandlordId(landlordId).map(PropertyDto::new);
+    }
+
+    public Stream<PropertyDto> streamAvailablePropertiesFromDate(LocalDate date){
+        return propertyRepository.streamByAvailableFromLessThanEqual(date).map(PropertyDto::new);
+    }
+
+    public Stream<PropertyDto> streamPropertiesByRentRange(double minRent, double maxRent){
+        validateRentRange(minRent, maxRent);
+        return propertyRepository.streamByRentAmountBetween(minRent, maxRent).map(PropertyDto::new);
+    }
+
+    public Stream<PropertyDto> streamPropertiesByMaxRent(double maxRent){
+        validateMaxRent(maxRent);
+        return propertyRepository.streamByRentAmountLessThanEqual(maxRent).map(PropertyDto::new);
+    }
+
+    public Stream<PropertyDto> streamPropertiesByAddress(String address){
+        validateSearchTerm("Address", address);
+        return propertyRepository.streamByAddressContaining(address.trim()).map(PropertyDto::new);
+    }
+
+    public Stream<PropertyDto> streamPropertiesByTitle(String title){
+        validateSearchTerm("Title", title);
+        return propertyRepository.streamByTitleContaining(title.trim()).map(PropertyDto::new);
+    }
+
+    public Stream<PropertyDto> streamPropertiesWithFilters(String title, String address, double minRent, double maxRent,
+                                                           LocalDate availableFrom, Long landlordId){
+        validateFilterRent(minRent, maxRent);
+        return propertyRepository.streamWithFilters(trimToNull(title), trimToNull(address), minRent, maxRent, availableFrom, landlordId)
+                .map(PropertyDto::new);
+    }
+
+    // --- Paging ---
+    // Rows are fetched with one extra element so we know whether another page exists
+    private CursorPageDto<PropertyDto> findPage(PropertyFilter filter, PropertyCursor position, int pageSize, boolean includeTotal){
+        Limit limit = Limit.of(pageSize + 1);
+        PropertyCursor start = scanStart(position, filter);
+        List<Property> rows = switch(position.sort()){
+            case NEWEST -> propertyRepository.findNewestPage(filter.title(), filter.address(), filter.minRent(),
+                    filter.maxRent(), filter.availableFrom(), filter.landlordId(), start.id(), limit);
+            case RENT_ASC -> propertyRepository.findRentAscendingPage(filter.title(), filter.address(), filter.minRent(),
+                    filter.maxRent(), filter.availableFrom(), filter.landlordId(), start.rentAmount(), start.id(), limit);
+            case RENT_DESC -> propertyRepository.findRentDescendingPage(filter.title(), filter.address(), filter.minRent(),
+                    filter.maxRent(), filter.availableFrom(), filter.landlordId(), start.rentAmount(), start.id(), limit);
+            case AVAILABLE_FROM -> propertyRepository.findAvailableFromPage(filter.title(), filter.address(), filter.minRent(),
+                    filter.maxRent(), filter.availableFrom(), filter.landlordId(), start.availableFrom(), start.id(), limit);
+        };
+
+        boolean hasMore = rows.size() > pageSize;
+        List<PropertyDto> items = toDtoList(hasMore ? rows.subList(0, pageSize) : rows);
+        String nextCursor = hasMore ? PropertyCursor.of(position.sort(), items.get(items.size() - 1)).encode() : null;
+        Long total = includeTotal
+                ? propertyRepository.countWithFilters(filter.title(), filter.address(), filter.minRent(),
+                        filter.maxRent(), filter.availableFrom(), filter.landlordId())
+                : null;
+        return new CursorPageDto<>(items, nextCursor, hasMore, total);
+    }
+
+    // Postgres starts a keyset index scan at the row comparison alone, so a position before the rent range
+    // of a rent-sorted page is moved up to the range's edge; otherwise the scan would step over every row in between
+    private static PropertyCursor scanStart(PropertyCursor position, PropertyFilter filter){
+        return switch(position.sort()){
+            case RENT_ASC -> filter.minRent() != null && position.rentAmount() < filter.minRent()
+                    ? new PropertyCursor(position.sort(), filter.minRent(), null, 0)
+                    : position;
+            case RENT_DESC -> filter.maxRent() != null && position.rentAmount() > filter.maxRent()
+                    ? new PropertyCursor(position.sort(), filter.maxRent(), null, Long.MAX_VALUE)
+                    : position;
+            default -> position;
+        };
+    }
+
+    // An index page is loaded by id in one statement and put back in index order. The filter is checked again
+    // on the loaded rows, so a property changed since the index last saw it is never returned for criteria it
+    // no longer meets. The next cursor comes from the index, so a row dropped that way never stalls paging.
+    private CursorPageDto<PropertyDto> loadIndexPage(IndexPage page, PropertyFilter filter, PropertySort sort, boolean includeTotal){
+        long[] ids = page.ids();
+        String nextCursor = page.hasMore()
+                ? PropertyCursor.ofIndexKey(sort, page.sortKeys()[ids.length - 1], ids[ids.length - 1]).encode()
+                : null;
+        return new CursorPageDto<>(loadIndexItems(page, filter), nextCursor, page.hasMore(), includeTotal ? (long) page.total() : null);
+    }
+
+    private List<PropertyDto> loadIndexItems(IndexPage page, PropertyFilter filter){
+        long[] ids = page.ids();
+        List<Long> idList = new ArrayList<>(ids.length);
+        for(long id : ids){
+            idList.add(id);
+        }
+        Map<Long, PropertyDto> loaded = new HashMap<>();
+        for(Property property : propertyRepository.findAllWithLandlordByIdIn(idList)){
+            PropertyDto dto = toDto(property);
+            if(filter.matches(IndexedProperty.of(dto))){
+                loaded.put(dto.getId(), dto);
+            }
+        }
+
+        List<PropertyDto> items = new ArrayList<>(ids.length);
+        for(long id : ids){
+            PropertyDto dto = loaded.get(id);
+            if(dto != null){
+                items.add(dto);
+            }
+        }
+        return items;
+    }
+
+    private CursorPageDto<PropertyDto> findNearPage(PropertyFilter filter, NearCursor position, int pageSize, boolean includeTotal){
+        GeoFilter geo = filter.geo();
+        List<Object[]> rows = propertyRepository.findNearPage(filter.title(), filter.address(), filter.minRent(),
+                filter.maxRent(), filter.availableFrom(), filter.landlordId(), geo.latitude(), geo.longitude(), geo.radiusKm(),
+                geo.south(), geo.west(), geo.north(), geo.east(), position.distanceKm(), position.id(), Limit.of(pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<PropertyDto> items = new ArrayList<>(Math.min(rows.size(), pageSize));
+        for(Object[] row : hasMore ? rows.subList(0, pageSize) : rows){
+            PropertyDto dto = toDto((Property) row[0]);
+            dto.setDistanceKm(((Number) row[1]).doubleValue());
+            items.add(dto);
+        }
+        String nextCursor = null;
+        if(hasMore){
+            PropertyDto last = items.get(items.size() - 1);
+            nextCursor = new NearCursor(last.getDistanceKm(), last.getId()).encode();
+        }
+        Long total = includeTotal
+                ? propertyRepository.countNear(filter.title(), filter.address(), filter.minRent(), filter.maxRent(),
+                        filter.availableFrom(), filter.landlordId(), geo.latitude(), geo.longitude(), geo.radiusKm(),
+                        geo.south(), geo.west(), geo.north(), geo.east())
+                : null;
+        return new CursorPageDto<>(items, nextCursor, hasMore, total);
+    }
+
+    // Same as loadIndexPage, with the distances the index sorted by copied onto the results
+    private CursorPageDto<PropertyDto> loadNearIndexPage(IndexPage page, PropertyFilter filter, boolean includeTotal){
+        long[] ids = page.ids();
+        Map<Long, Double> distances = new HashMap<>();
+        for(int i = 0; i < ids.length; i++){
+            distances.put(ids[i], page.sortKeys()[i]);
+        }
+        List<PropertyDto> items = loadIndexItems(page, filter);
+        for(PropertyDto dto : items){
+            dto.setDistanceKm(distances.get(dto.getId()));
+        }
+        String nextCursor = page.hasMore()
+                ? new NearCursor(page.sortKeys()[ids.length - 1], ids[ids.length - 1]).encode()
+                : null;
+        return new CursorPageDto<>(items, nextCursor, page.hasMore(), includeTotal ? (long) page.total() : null);
+    }
+
+    // Facet counts with a GROUP BY per facet, for when the index cannot give them
+    private PropertyFacets findFacets(PropertyFilter filter){
+        return new PropertyFacets(
+                toFacetCounts(propertyRepository.countByRentBucket(filter.title(), filter.address(), filter.minRent(),
+                        filter.maxRent(), filter.availableFrom(), filter.landlordId())),
+                toFacetCounts(propertyRepository.countByAvailableMonth(filter.title(), filter.address(), filter.minRent(),
+                        filter.maxRent(), filter.availableFrom(), filter.landlordId())),
+                toFacetCounts(propertyRepository.countByLandlord(filter.title(), filter.address(), filter.minRent(),
+                        filter.maxRent(), filter.availableFrom(), filter.landlordId(), Limit.of(PropertyFacets.MAX_LANDLORDS))));
+    }
+
+    private static FacetCounts toFacetCounts(List<Object[]> rows){
+        long[] values = new long[rows.size()];
+        int[] counts = new int[rows.size()];
+        for(int i = 0; i < rows.size(); i++){
+            values[i] = ((Number) rows.get(i)[0]).longValue();
+            counts[i] = ((Number) rows.get(i)[1]).intValue();
+        }
+        return new FacetCounts(values, counts);
+    }
+
+    private static Map<String, List<FacetCountDto>> toFacetDtos(PropertyFacets facets){
+        Map<String, List<FacetCountDto>> dtos = new LinkedHashMap<>();
+        dtos.put("rent", toFacetDtos(facets.rent(), bucket -> {
+            long from = bucket * PropertyFacets.RENT_BUCKET_WIDTH;
+            return bucket < PropertyFacets.RENT_BUCKETS - 1 ? from + "-" + (from + PropertyFacets.RENT_BUCKET_WIDTH) : from + "+";
+        }));
+        dtos.put("availableMonth", toFacetDtos(facets.availableMonth(),
+                month -> YearMonth.of((int) (month / 12), (int) (month % 12) + 1).toString()));
+        dtos.put("landlord", toFacetDtos(facets.landlord(), String::valueOf));
+        return dtos;
+    }
+
+    private static List<FacetCountDto> toFacetDtos(FacetCounts counts, LongFunction<String> label){
+        List<FacetCountDto> dtos = new ArrayList<>(counts.values().length);
+        for(int i = 0; i < counts.values().length; i++){
+            dtos.add(new FacetCountDto(label.apply(counts.values()[i]), counts.counts()[i]));
+        }
+        return dtos;
+    }
+
+    private int pageSize(int limit){
+        if(limit < 1){
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // --- Validation ---
+    private void validateRentRange(double minRent, double maxRent){
+        if(minRent < 0 || maxRent < 0){
+            throw new IllegalArgumentException("Rent amounts cannot be negative");
+        }
+        if(minRent > maxRent){
+            throw new IllegalArgumentException("Minimum rent cannot be greater than maximum rent");
+        }
+    }
+
+    private void validateMaxRent(double maxRent){
+        if(maxRent < 0){
+            throw new IllegalArgumentException("Rent amount cannot be negative");
+        }
+    }
+
+    private void validateFilterRent(double minRent, double maxRent){
         if(minRent < 0){
             throw new IllegalArgumentException("Minimum rent cannot be negative");
         }
@@ -181,17 +609,18 @@ public class PropertyService {
         if(minRent > maxRent){
             throw new IllegalArgumentException("Minimum rent cannot be greater than maximum rent");
         }
+    }
 
-        return toDtoList(propertyRepository.findPropertiesWithFilters(
-                title != null && !title.trim().isEmpty() ? title.trim() : null,
-                address != null && !address.trim().isEmpty() ? address.trim() : null,
-                minRent,
-                maxRent,
-                availableFrom
-        ));
+    private void validateSearchTerm(String field, String term){
+        if(term == null || term.trim().isEmpty()){
+            throw new IllegalArgumentException(field + " search term cannot be empty");
+        }
+    }
+
+    private static String trimToNull(String value){
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
     }
 
-    // --- Validation ---
     private void validateProperty(Property property){
         if(property.getTitle() == null || property.getTitle().trim().isEmpty()){
             throw new IllegalArgumentException("Property title cannot be empty");
@@ -208,5 +637,18 @@ public class PropertyService {
         if(property.getLandlord() == null){
             throw new IllegalArgumentException("Property must have a landlord");
         }
+        validateLocation(property.getLatitude(), property.getLongitude());
+    }
+
+    private void validateLocation(Double latitude, Double longitude){
+        if((latitude == null) != (longitude == null)){
+            throw new IllegalArgumentException("Latitude and longitude must be set together");
+        }
+        if(latitude != null && !(latitude >= -90 && latitude <= 90)){
+            throw new IllegalArgumentException("Latitude must be between -90 and 90");
+        }
+        if(longitude != null && !(longitude >= -180 && longitude <= 180)){
+            throw new IllegalArgumentException("Longitude must be between -180 and 180");
+        }
     }
 }
\ No newline at end of file
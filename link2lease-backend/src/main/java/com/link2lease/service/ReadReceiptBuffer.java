@@ -0,0 +1,206 @@
+package com.link2lease.service;
+
+import com.link2lease.dto.MessagesReadDto;
+import com.link2lease.event.DomainEventBus;
+import com.link2lease.event.MessagesRead;
+import com.link2lease.model.Message;
+import com.link2lease.repository.MessagRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer for the read receipts produced by viewing a message.
+ * Marks are held in memory, keyed by message id so repeated views coalesce, and written
+ * on a short interval or once maxPending marks are waiting, as a single set-based UPDATE.
+ * Conversation threads, counters and read events follow the flush, not the view.
+ * The buffer is drained when the application stops, after the web server has stopped
+ * taking requests, and marks arriving after that are written straight through.
+ */
+@Service
+@Slf4j
+public class ReadReceiptBuffer implements SmartLifecycle {
+    private final MessagRepository messageRepository;
+    private final ConversationThreadService conversationThreadService;
+    private final DomainEventBus domainEventBus;
+    private final MessageChangeLog messageChangeLog;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPending;
+
+    private final Map<Long, ReadReceipt> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ExecutorService flusher = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder flushed = new LongAdder();
+    private volatile boolean running;
+
+    public ReadReceiptBuffer(MessagRepository messageRepository,
+                             ConversationThreadService conversationThreadService,
+                             DomainEventBus domainEventBus,
+                             MessageChangeLog messageChangeLog,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${link2lease.read-receipts.max-pending:500}") int maxPending) {
+        this.messageRepository = messageRepository;
+        this.conversationThreadService = conversationThreadService;
+        this.domainEventBus = domainEventBus;
+        this.messageChangeLog = messageChangeLog;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPending = maxPending;
+
+        Gauge.builder("link2lease.read-receipts.pending", pending, Map::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("link2lease.read-receipts.flushed", flushed, LongAdder::sum)
+                .description("Messages marked read by buffered read receipts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffer a read receipt for an unread message the recipient just viewed.
+     * Returns the read time to report, which is the first view's time if one is already pending.
+     */
+    public LocalDateTime markRead(Message message) {
+        ReadReceipt receipt = new ReadReceipt(message.getId(), message.getRecipient().getId(),
+                message.getSender().getId(), LocalDateTime.now());
+        ReadReceipt existing = pending.putIfAbsent(receipt.messageId(), receipt);
+        if (existing != null) {
+            return existing.readAt();
+        }
+
+        if (!running) {
+            flushNow();
+        } else if (pending.size() >= maxPending) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // Stopping, the final flush will write it
+            }
+        }
+        return receipt.readAt();
+    }
+
+    /**
+     * Write every pending receipt. Skips if another flush is already running, since that one
+     * or the next scheduled run will pick up whatever is left.
+     */
+    @Scheduled(fixedDelayString = "${link2lease.read-receipts.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty() || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Waits for any flush in progress, then writes what is left
+    private void flushNow() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void drain() {
+        List<ReadReceipt> batch = new ArrayList<>(pending.size());
+        for (ReadReceipt receipt : pending.values()) {
+            if (pending.remove(receipt.messageId(), receipt)) {
+                batch.add(receipt);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+        } catch (RuntimeException e) {
+            // Put the marks back so the next flush retries them
+            batch.forEach(receipt -> pending.putIfAbsent(receipt.messageId(), receipt));
+            log.warn("Failed to flush {} read receipts, will retry", batch.size(), e);
+        }
+    }
+
+    private void apply(List<ReadReceipt> batch) {
+        Long[] ids = batch.stream().map(ReadReceipt::messageId).toArray(Long[]::new);
+        LocalDateTime[] readAts = batch.stream().map(ReadReceipt::readAt).toArray(LocalDateTime[]::new);
+        Set<Long> updatedIds = new HashSet<>(messageRepository.markReadReceipts(ids, readAts));
+
+        // Messages read or deleted some other way since the view are left out
+        List<ReadReceipt> applied = batch.stream()
+                .filter(receipt -> updatedIds.contains(receipt.messageId()))
+                .toList();
+        Map<Long, List<ReadReceipt>> byRecipient = applied.stream()
+                .collect(Collectors.groupingBy(ReadReceipt::recipientId));
+
+        byRecipient.forEach((recipientId, receipts) -> {
+            List<Long> senderIds = receipts.stream().map(ReadReceipt::senderId).distinct().toList();
+
+            List<Long> messageIds = receipts.stream().map(ReadReceipt::messageId).toList();
+            LocalDateTime readAt = receipts.stream().map(ReadReceipt::readAt).max(LocalDateTime::compareTo).orElseThrow();
+            MessagesReadDto receipt = new MessagesReadDto(recipientId, null, messageIds, messageIds.size(), readAt);
+            domainEventBus.publishAfterCommit(new MessagesRead(receipt, senderIds));
+        });
+
+        List<MessageChangeLog.MessageParties> readMessages = applied.stream()
+                .map(receipt -> new MessageChangeLog.MessageParties(receipt.messageId(), receipt.senderId(), receipt.recipientId()))
+                .toList();
+        conversationThreadService.recordUnreadRemoved(readMessages);
+        messageChangeLog.recordRead(readMessages);
+
+        flushed.add(updatedIds.size());
+        log.debug("Flushed {} read receipts, {} messages changed", batch.size(), updatedIds.size());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        flusher.close();
+        flushNow();
+        if (!pending.isEmpty()) {
+            log.error("{} read receipts could not be written on shutdown", pending.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Lower phases stop last, so the web server has already stopped taking requests when the final flush runs
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private record ReadReceipt(Long messageId, Long recipientId, Long senderId, LocalDateTime readAt) {
+    }
+}
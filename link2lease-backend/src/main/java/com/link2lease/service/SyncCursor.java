@@ -0,0 +1,34 @@
+package com.link2lease.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a user's message change log: the last change number the client has applied.
+ * Clients only ever see the encoded form.
+ */
+public record SyncCursor(long seq) {
+
+    public static final SyncCursor FIRST = new SyncCursor(0);
+
+    public static SyncCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            long seq = Long.parseLong(raw.substring(raw.indexOf(':') + 1));
+            if (!raw.startsWith("sync:") || seq < 0) {
+                throw new IllegalArgumentException();
+            }
+            return new SyncCursor(seq);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String raw = "sync:" + seq;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
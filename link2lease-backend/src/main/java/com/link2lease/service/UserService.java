@@ -10,18 +10,24 @@ import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final PropertyCache propertyCache;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, PropertyCache propertyCache) {
         this.userRepository = userRepository;
+        this.propertyCache = propertyCache;
     }
 
     public List<User> getUsers() { return userRepository.findAll(); }
 
+    // Reads from an open cursor, so the caller consumes and closes it inside its own transaction
+    public Stream<User> streamUsers() { return userRepository.streamAll(); }
+
     public void addNewUser(User user){
         Optional<User> userByEmail = userRepository.findUserByEmail(user.getEmail());
         if(userByEmail.isPresent()){
@@ -63,5 +69,8 @@ public class UserService {
         if(phoneNumber != null && phoneNumber.length() > 0 && !Objects.equals(user.getPhoneNumber(),phoneNumber)){
             user.setPhoneNumber(phoneNumber);
         }
+
+        // Cached properties show the landlord's name and email
+        propertyCache.invalidateLandlordAfterCommit(userId);
     }
 }
@@ -0,0 +1,24 @@
+-- Postgres-only schema additions, applied after Hibernate has created the tables
+-- (see spring.jpa.defer-datasource-initialization in application.properties).
+
+-- Full-text search over message subject and content. The generated column is kept
+-- current by Postgres on every insert and update; btree_gin lets one GIN index serve
+-- both the user filter and the text match.
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(subject, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(content, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_messages_sender_search ON messages USING GIN (sender_id, search_vector);
+CREATE INDEX IF NOT EXISTS idx_messages_recipient_search ON messages USING GIN (recipient_id, search_vector);
+
+-- Trigram indexes over lower-cased property titles and addresses. They serve the
+-- LOWER(...) LIKE '%term%' of the property filters and the word similarity (<%)
+-- of fuzzy search when it falls back to SQL.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_properties_title_trgm ON properties USING GIN (lower(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_properties_address_trgm ON properties USING GIN (lower(address) gin_trgm_ops);
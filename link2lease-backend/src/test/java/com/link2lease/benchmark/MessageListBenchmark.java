@@ -0,0 +1,133 @@
+package com.link2lease.benchmark;
+
+import com.link2lease.Link2LeaseBackendApplication;
+import com.link2lease.dto.MessageDto;
+import com.link2lease.enums.UserRole;
+import com.link2lease.model.Message;
+import com.link2lease.model.User;
+import com.link2lease.repository.MessagRepository;
+import com.link2lease.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One inbox page (the received list) loaded the old way, as Message entities with their sender,
+ * recipient, property and lease fetch joined and copied into MessageDto, against the constructor
+ * projection MessagRepository uses now.
+ * Run with the gc profiler to see heap use per request as gc.alloc.rate.norm (bytes per page):
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main MessageListBenchmark -prof gc
+ * </pre>
+ * Uses the in-memory "test" profile by default; pass -Dlink2lease.benchmark.profile= to run against the configured Postgres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageListBenchmark {
+    private static final String ENTITY_QUERY = "SELECT m FROM Message m " +
+            "LEFT JOIN FETCH m.sender " +
+            "LEFT JOIN FETCH m.recipient " +
+            "LEFT JOIN FETCH m.property " +
+            "LEFT JOIN FETCH m.lease " +
+            "WHERE m.recipient.id = :recipientId " +
+            "AND (m.sentAt, m.id) < (:sentAt, :id) " +
+            "ORDER BY m.sentAt DESC, m.id DESC";
+    private static final LocalDateTime FIRST_SENT_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @Param({"50", "200"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private MessagRepository messageRepository;
+    private EntityManagerFactory entityManagerFactory;
+    private TransactionTemplate transactionTemplate;
+    private Long recipientId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Link2LeaseBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(System.getProperty("link2lease.benchmark.profile", "test"))
+                .properties("spring.jpa.show-sql=false", "logging.level.root=WARN")
+                .run();
+        messageRepository = context.getBean(MessagRepository.class);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+
+        // One tenant with 2,000 messages from 50 different senders
+        transactionTemplate.executeWithoutResult(status -> {
+            User recipient = userRepository.save(new User("Benchmark Tenant", "bench.tenant@example.com", "password", UserRole.TENANT, "5550000000"));
+            List<User> senders = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                senders.add(userRepository.save(new User("Benchmark Sender " + i, "bench.sender" + i + "@example.com", "password", UserRole.LANDLORD, "5550000" + i)));
+            }
+            List<Message> messages = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                Message message = new Message();
+                message.setSender(senders.get(i % senders.size()));
+                message.setRecipient(recipient);
+                message.setContent("Benchmark message " + i + " about the lease renewal and the water heater");
+                message.setSubject("Subject " + i % 20);
+                messages.add(message);
+            }
+            messageRepository.saveAll(messages);
+            recipientId = recipient.getId();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MessageDto> entityGraph() {
+        return transactionTemplate.execute(status -> {
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            return entityManager.createQuery(ENTITY_QUERY, Message.class)
+                    .setParameter("recipientId", recipientId)
+                    .setParameter("sentAt", FIRST_SENT_AT)
+                    .setParameter("id", Long.MAX_VALUE)
+                    .setMaxResults(pageSize + 1)
+                    .getResultList()
+                    .stream()
+                    .map(MessageDto::new)
+                    .toList();
+        });
+    }
+
+    @Benchmark
+    public List<MessageDto> projection() {
+        return transactionTemplate.execute(status -> messageRepository.findByRecipientIdOrderBySentAtDesc(
+                recipientId, FIRST_SENT_AT, Long.MAX_VALUE, Limit.of(pageSize + 1)));
+    }
+}
@@ -0,0 +1,253 @@
+package com.link2lease.benchmark;
+
+import com.link2lease.enums.PropertySort;
+import com.link2lease.search.GeoFilter;
+import com.link2lease.search.IndexPage;
+import com.link2lease.search.IndexedProperty;
+import com.link2lease.search.PropertyColumns;
+import com.link2lease.search.PropertyFacets;
+import com.link2lease.search.PropertyFilter;
+import com.link2lease.search.PropertySuggestions;
+import com.link2lease.search.Suggestion;
+import com.link2lease.search.TextField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Property search over the in-memory columns against a scan of the same rows checking every filter,
+ * the work the catch-all SQL filter query does without a usable index.
+ * narrow is a landlord plus rent range (a few dozen matches), range a rent band with an availability
+ * date (a few percent of the catalogue), text a title substring with the open rent range the search
+ * endpoint sends by default, which only the trigram index narrows. near pages the 20 nearest properties
+ * within 2 km of a point in a metro-sized area, against sorting the scan's matches by distance.
+ * fuzzy ranks the 20 addresses most similar to a misspelt street name and has no scan counterpart.
+ * facets pages the first 20 matches with their counts per rent bucket, available-from month and landlord,
+ * for range and for open (every row matches, as a search with no filters), against counting the scan's matches.
+ * suggestComplete completes a one to three letter title prefix and suggestUpdate applies one property's new
+ * version to the suggestion tries, over their own rows with a word vocabulary as large as the catalogue;
+ * setup prints the tries' estimated heap.
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main PropertySearchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertySearchBenchmark {
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 1);
+    private static final String FUZZY_QUERY = "harbor rd";
+    private static final String[] WORDS = {"Loft", "Garden", "Studio", "Harbour", "Oak", "Main", "River", "Park"};
+
+    @Param({"100000", "1000000"})
+    private int properties;
+
+    private PropertyColumns columns;
+    private List<IndexedProperty> rows;
+
+    private final PropertyFilter narrow = new PropertyFilter(null, null, 1000.0, 2000.0, null, 1234L);
+    private final PropertyFilter range = new PropertyFilter(null, null, 1500.0, 1600.0, TODAY, null);
+    private final PropertyFilter open = new PropertyFilter(null, null, 0.0, Double.MAX_VALUE, null, null);
+    private final PropertyFilter text = new PropertyFilter("harbour loft", null, 0.0, Double.MAX_VALUE, null, null);
+    private final PropertyFilter near = new PropertyFilter(null, null, 0.0, Double.MAX_VALUE, null, null,
+            GeoFilter.of(51.5, -0.12, 2.0, null, null, null, null));
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        rows = new ArrayList<>(properties);
+        for (long id = 1; id <= properties; id++) {
+            rows.add(new IndexedProperty(id,
+                    WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)],
+                    random.nextInt(500) + " " + WORDS[random.nextInt(WORDS.length)] + " Road",
+                    500 + random.nextInt(3_000),
+                    TODAY.plusDays(random.nextInt(365) - 180),
+                    (long) random.nextInt(properties / 20),
+                    51.3 + random.nextDouble() * 0.4,
+                    -0.5 + random.nextDouble() * 0.8));
+        }
+        columns = PropertyColumns.build(rows, new HashMap<>());
+    }
+
+    @Benchmark
+    public long[] indexNarrow() {
+        return columns.search(narrow);
+    }
+
+    @Benchmark
+    public long[] indexRange() {
+        return columns.search(range);
+    }
+
+    @Benchmark
+    public long[] indexText() {
+        return columns.search(text);
+    }
+
+    @Benchmark
+    public IndexPage indexNear() {
+        return columns.nearest(near, -1, 0, 20);
+    }
+
+    @Benchmark
+    public IndexPage indexFuzzy() {
+        return columns.similar(TextField.ADDRESS, FUZZY_QUERY, 0.5, 20);
+    }
+
+    @Benchmark
+    public IndexPage indexFacetsRange() {
+        return columns.page(range, PropertySort.NEWEST, 0, Long.MAX_VALUE, 20, true);
+    }
+
+    @Benchmark
+    public IndexPage indexFacetsOpen() {
+        return columns.page(open, PropertySort.NEWEST, 0, Long.MAX_VALUE, 20, true);
+    }
+
+    @Benchmark
+    public long[] scanNarrow() {
+        return scan(narrow);
+    }
+
+    @Benchmark
+    public long[] scanRange() {
+        return scan(range);
+    }
+
+    @Benchmark
+    public long[] scanText() {
+        return scan(text);
+    }
+
+    @Benchmark
+    public long[] scanNear() {
+        GeoFilter geo = near.geo();
+        return rows.stream()
+                .filter(near::matches)
+                .sorted(Comparator.comparingDouble(property -> geo.distanceKm(property.latitude(), property.longitude())))
+                .limit(20)
+                .mapToLong(IndexedProperty::id)
+                .toArray();
+    }
+
+    @Benchmark
+    public List<Map<Long, Integer>> scanFacetsRange() {
+        return scanFacets(range);
+    }
+
+    @Benchmark
+    public List<Map<Long, Integer>> scanFacetsOpen() {
+        return scanFacets(open);
+    }
+
+    private List<Map<Long, Integer>> scanFacets(PropertyFilter filter) {
+        Map<Long, Integer> rents = new HashMap<>();
+        Map<Long, Integer> months = new HashMap<>();
+        Map<Long, Integer> landlords = new HashMap<>();
+        for (IndexedProperty property : rows) {
+            if (filter.matches(property)) {
+                rents.merge(PropertyFacets.rentBucket(property.rentAmount()), 1, Integer::sum);
+                months.merge(PropertyFacets.month(property.availableFrom()), 1, Integer::sum);
+                landlords.merge(property.landlordId(), 1, Integer::sum);
+            }
+        }
+        return List.of(rents, months, landlords);
+    }
+
+    @Benchmark
+    public List<Suggestion> suggestComplete(SuggestionWords words) {
+        return words.suggestions.complete(TextField.TITLE, words.nextPrefix(), 10);
+    }
+
+    @Benchmark
+    public PropertySuggestions suggestUpdate(SuggestionWords words) {
+        int change = words.nextChange();
+        return words.suggestions.withChanges(List.of(words.rows.get(change)), List.of(words.updates[change]));
+    }
+
+    private long[] scan(PropertyFilter filter) {
+        return rows.stream().filter(filter::matches).mapToLong(IndexedProperty::id).toArray();
+    }
+
+    /**
+     * Rows for the suggestion benchmarks. The search rows draw on eight words, which would make the tries tiny,
+     * so these take their titles and street names from random words, one per property.
+     */
+    @State(Scope.Benchmark)
+    public static class SuggestionWords {
+        private static final int SAMPLES = 1024;
+
+        private PropertySuggestions suggestions;
+        private List<IndexedProperty> rows;
+        private IndexedProperty[] updates;
+        private String[] prefixes;
+        private int next;
+
+        @Setup
+        public void setUp(PropertySearchBenchmark benchmark) {
+            int properties = benchmark.properties;
+            Random random = new Random(7);
+            String[] vocabulary = new String[properties];
+            for (int i = 0; i < properties; i++) {
+                char[] word = new char[4 + random.nextInt(7)];
+                for (int j = 0; j < word.length; j++) {
+                    word[j] = (char) ('a' + random.nextInt(26));
+                }
+                vocabulary[i] = new String(word);
+            }
+            rows = new ArrayList<>(properties);
+            for (long id = 1; id <= properties; id++) {
+                rows.add(row(random, vocabulary, id));
+            }
+            suggestions = PropertySuggestions.build(rows, TODAY);
+
+            updates = new IndexedProperty[SAMPLES];
+            prefixes = new String[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                updates[i] = row(random, vocabulary, rows.get(i).id());
+                prefixes[i] = vocabulary[random.nextInt(properties)].substring(0, 1 + random.nextInt(3));
+            }
+            System.out.printf("Suggestion tries for %d properties: about %d MB%n", properties, suggestions.estimatedBytes() >> 20);
+        }
+
+        private String nextPrefix() {
+            return prefixes[next++ & (SAMPLES - 1)];
+        }
+
+        private int nextChange() {
+            return next++ & (SAMPLES - 1);
+        }
+
+        private static IndexedProperty row(Random random, String[] vocabulary, long id) {
+            return new IndexedProperty(id,
+                    vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)],
+                    random.nextInt(500) + " " + vocabulary[random.nextInt(vocabulary.length)] + " Road",
+                    500 + random.nextInt(3_000),
+                    TODAY.plusDays(random.nextInt(365) - 180),
+                    1L,
+                    null,
+                    null);
+        }
+    }
+}
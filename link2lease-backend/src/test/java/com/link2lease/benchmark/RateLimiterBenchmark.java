@@ -0,0 +1,93 @@
+package com.link2lease.benchmark;
+
+import com.link2lease.enums.UserRole;
+import com.link2lease.ratelimit.RateLimitProperties;
+import com.link2lease.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of RateLimiter.tryAcquire per request with many threads calling at once: spread over
+ * many users, all on one user's bucket (every call contends on the same CAS), and when the
+ * bucket is empty and the call is rejected. baselineMapLookup is a plain ConcurrentHashMap get
+ * over the same user ids, the floor any per-user lookup pays.
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main RateLimiterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RateLimiterBenchmark {
+    private static final int USERS = 10_000;
+    private static final long HOT_USER_ID = 0L;
+    private static final long EMPTY_USER_ID = -1L;
+
+    private RateLimiter rateLimiter;
+    private Map<Long, UserRole> roles;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLimits(Map.of(
+                // Large enough that the allowed paths never run dry during a run
+                "open", Map.of("default", limit(Integer.MAX_VALUE, 1e9)),
+                "closed", Map.of("default", limit(1, 1e-6))));
+        rateLimiter = new RateLimiter(properties, id -> Optional.of(UserRole.TENANT), new SimpleMeterRegistry());
+
+        roles = new ConcurrentHashMap<>();
+        for (long userId = 0; userId < USERS; userId++) {
+            rateLimiter.tryAcquire(userId, "open");
+            roles.put(userId, UserRole.TENANT);
+        }
+        rateLimiter.tryAcquire(EMPTY_USER_ID, "closed");
+    }
+
+    @Benchmark
+    public long distinctUsers() {
+        return rateLimiter.tryAcquire(ThreadLocalRandom.current().nextLong(USERS), "open");
+    }
+
+    @Benchmark
+    public long singleUser() {
+        return rateLimiter.tryAcquire(HOT_USER_ID, "open");
+    }
+
+    @Benchmark
+    public long rejected() {
+        return rateLimiter.tryAcquire(EMPTY_USER_ID, "closed");
+    }
+
+    @Benchmark
+    public UserRole baselineMapLookup() {
+        return roles.get(ThreadLocalRandom.current().nextLong(USERS));
+    }
+
+    private static RateLimitProperties.Limit limit(int capacity, double refillPerSecond) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(capacity);
+        limit.setRefillPerSecond(refillPerSecond);
+        return limit;
+    }
+}
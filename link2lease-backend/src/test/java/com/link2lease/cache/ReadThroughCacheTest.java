@@ -0,0 +1,98 @@
+package com.link2lease.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReadThroughCacheTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void loadsOnceThenServesHitsUntilExpiry() {
+        ReadThroughCache<Long, String> cache = cache(16);
+
+        assertEquals("value-1", cache.get(1L, this::load));
+        assertEquals("value-1", cache.get(1L, this::load));
+        assertEquals(1, loads.get());
+
+        clock.addAndGet(59 * SECOND);
+        assertEquals("value-1", cache.get(1L, this::load));
+        assertEquals(1, loads.get());
+
+        clock.addAndGet(SECOND);
+        assertEquals("value-1", cache.get(1L, this::load));
+        assertEquals(2, loads.get());
+
+        assertEquals(2, counter("link2lease.cache.gets", "result", "hit"));
+        assertEquals(2, counter("link2lease.cache.gets", "result", "miss"));
+        assertEquals(1, counter("link2lease.cache.evictions", "cause", "expired"));
+        assertEquals(0.5, meterRegistry.get("link2lease.cache.hit-ratio").gauge().value());
+        assertEquals(2, meterRegistry.get("link2lease.cache.loads").timer().count());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedOnceFull() {
+        ReadThroughCache<Long, String> cache = cache(16);
+
+        // Keys 16 apart share a segment, which holds one entry
+        cache.get(0L, this::load);
+        cache.get(16L, this::load);
+        assertEquals(1, cache.size());
+        assertEquals(1, counter("link2lease.cache.evictions", "cause", "size"));
+
+        cache.get(16L, this::load);
+        assertEquals(2, loads.get());
+        cache.get(0L, this::load);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void doesNotCacheNullsOrLoadsOverlappingAnInvalidation() {
+        ReadThroughCache<Long, String> cache = cache(64);
+
+        assertNull(cache.get(1L, key -> null));
+        assertEquals(0, cache.size());
+
+        // A write commits while the load is reading the old value
+        assertEquals("stale", cache.get(2L, key -> {
+            cache.invalidate(2L);
+            return "stale";
+        }));
+        assertEquals("value-2", cache.get(2L, this::load));
+        assertEquals("value-2", cache.get(2L, this::load));
+        assertEquals(1, loads.get());
+
+        cache.get(3L, this::load);
+        cache.invalidateIf(value -> value.endsWith("3"));
+        assertEquals(1, cache.size());
+        cache.invalidate(2L);
+        assertEquals(0, cache.size());
+        assertEquals(3, counter("link2lease.cache.invalidations", null, null));
+    }
+
+    private String load(Long key) {
+        loads.incrementAndGet();
+        return "value-" + key;
+    }
+
+    private double counter(String name, String tag, String value) {
+        return tag == null
+                ? meterRegistry.get(name).functionCounter().count()
+                : meterRegistry.get(name).tag(tag, value).functionCounter().count();
+    }
+
+    private ReadThroughCache<Long, String> cache(int maximumSize) {
+        return new ReadThroughCache<>("test", maximumSize, Duration.ofMinutes(1), meterRegistry, clock::get);
+    }
+}
@@ -0,0 +1,95 @@
+package com.link2lease.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void rejectsOffersOnceTheSlowestConsumerIsALapBehind() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(3, 2);
+        assertEquals(4, ringBuffer.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+        assertFalse(ringBuffer.offer(4));
+
+        // Only the first consumer catching up is not enough to free a slot
+        List<Integer> batch = new ArrayList<>();
+        ringBuffer.release(0, ringBuffer.poll(0, batch, 10));
+        assertEquals(List.of(0, 1, 2, 3), batch);
+        assertFalse(ringBuffer.offer(4));
+
+        batch.clear();
+        ringBuffer.release(1, ringBuffer.poll(1, batch, 2));
+        assertEquals(List.of(0, 1), batch);
+        assertTrue(ringBuffer.offer(4));
+        assertTrue(ringBuffer.offer(5));
+        assertFalse(ringBuffer.offer(6));
+        assertEquals(2, ringBuffer.backlog(0));
+        assertEquals(4, ringBuffer.backlog(1));
+    }
+
+    @Test
+    void everyConsumerSeesEveryElementInOrderAcrossConcurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(256, 2);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                executor.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!ringBuffer.offer(producer * perProducer + i)) {
+                            Thread.yield();
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+
+            // Drain both consumers on this thread until every element has been seen by each
+            long[] lastPerProducer0 = new long[producers];
+            long[] lastPerProducer1 = new long[producers];
+            Arrays.fill(lastPerProducer0, -1);
+            Arrays.fill(lastPerProducer1, -1);
+            int seen0 = 0;
+            int seen1 = 0;
+            List<Integer> batch = new ArrayList<>();
+            while (seen0 < producers * perProducer || seen1 < producers * perProducer) {
+                seen0 += drain(ringBuffer, 0, batch, lastPerProducer0, perProducer);
+                seen1 += drain(ringBuffer, 1, batch, lastPerProducer1, perProducer);
+            }
+            done.await();
+        }
+
+        assertEquals(0, ringBuffer.backlog(0));
+        assertEquals(0, ringBuffer.backlog(1));
+    }
+
+    private static int drain(RingBuffer<Integer> ringBuffer, int consumer, List<Integer> batch, long[] lastPerProducer, int perProducer) {
+        batch.clear();
+        long sequence = ringBuffer.poll(consumer, batch, 16);
+        for (Integer element : batch) {
+            int producer = element / perProducer;
+            // Each producer's elements must come out in the order it offered them
+            assertTrue(element > lastPerProducer[producer]);
+            lastPerProducer[producer] = element;
+        }
+        ringBuffer.release(consumer, sequence);
+        return batch.size();
+    }
+}
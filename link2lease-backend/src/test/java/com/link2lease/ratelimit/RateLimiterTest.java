@@ -0,0 +1,165 @@
+package com.link2lease.ratelimit;
+
+import com.link2lease.enums.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long TENANT_ID = 1L;
+    private static final long LANDLORD_ID = 2L;
+    private static final long UNKNOWN_ID = 1_000L;
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+    private final AtomicInteger roleLookups = new AtomicInteger();
+
+    @Test
+    void allowsTheBurstThenOneRequestPerRefillInterval() {
+        RateLimiter rateLimiter = rateLimiter(100);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(TENANT_ID, "search"));
+        }
+        assertEquals(SECOND, rateLimiter.tryAcquire(TENANT_ID, "search"));
+
+        clock.addAndGet(SECOND / 4);
+        assertEquals(3 * SECOND / 4, rateLimiter.tryAcquire(TENANT_ID, "search"));
+
+        clock.addAndGet(3 * SECOND / 4);
+        assertEquals(0, rateLimiter.tryAcquire(TENANT_ID, "search"));
+        assertTrue(rateLimiter.tryAcquire(TENANT_ID, "search") > 0);
+    }
+
+    @Test
+    void appliesRoleLimitsAndKeepsEndpointsAndUsersApart() {
+        RateLimiter rateLimiter = rateLimiter(100);
+
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire(TENANT_ID, "search");
+        }
+        assertTrue(rateLimiter.tryAcquire(TENANT_ID, "search") > 0);
+        assertEquals(0, rateLimiter.tryAcquire(TENANT_ID, "send-message"));
+        assertEquals(0, rateLimiter.tryAcquire(TENANT_ID, "unlimited"));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(LANDLORD_ID, "search"));
+        }
+        assertTrue(rateLimiter.tryAcquire(LANDLORD_ID, "search") > 0);
+        assertEquals(2, roleLookups.get());
+    }
+
+    @Test
+    void evictsOnlyUsersWhoseBucketsHaveRefilled() {
+        RateLimiter rateLimiter = rateLimiter(2);
+        rateLimiter.tryAcquire(TENANT_ID, "search");
+        rateLimiter.tryAcquire(LANDLORD_ID, "search");
+
+        // The landlord's faster bucket has refilled, the tenant's has not
+        clock.addAndGet(SECOND / 2);
+        rateLimiter.evictIdle();
+        assertEquals(1, rateLimiter.trackedUsers());
+
+        // With the tenant still tracked the limiter is full again, and further users go untracked
+        assertEquals(0, rateLimiter.tryAcquire(3L, "search"));
+        assertEquals(2, rateLimiter.trackedUsers());
+        assertEquals(0, rateLimiter.tryAcquire(4L, "search"));
+        assertEquals(2, rateLimiter.trackedUsers());
+    }
+
+    @Test
+    void limitsUntrackedUsersTogetherAtTheDefaultRateOnceFull() {
+        RateLimiter rateLimiter = rateLimiter(2);
+        rateLimiter.tryAcquire(TENANT_ID, "search");
+        rateLimiter.tryAcquire(LANDLORD_ID, "search");
+
+        // New users past max-users share one bucket, however many ids they spread over
+        for (long userId = 3; userId < 6; userId++) {
+            assertEquals(0, rateLimiter.tryAcquire(userId, "search"));
+        }
+        assertEquals(SECOND, rateLimiter.tryAcquire(6L, "search"));
+        assertEquals(SECOND, rateLimiter.tryAcquire(7L, "search"));
+        assertEquals(0, rateLimiter.tryAcquire(3L, "send-message"));
+        assertEquals(2, rateLimiter.trackedUsers());
+        assertEquals(2, roleLookups.get());
+
+        // Tracked users keep their own buckets
+        assertEquals(0, rateLimiter.tryAcquire(LANDLORD_ID, "search"));
+    }
+
+    @Test
+    void sendsUnknownUsersToTheOverflowBucketWithoutTrackingThem() {
+        RateLimiter rateLimiter = rateLimiter(100);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(UNKNOWN_ID + i, "search"));
+        }
+        assertTrue(rateLimiter.tryAcquire(UNKNOWN_ID + 3, "search") > 0);
+        assertEquals(0, rateLimiter.trackedUsers());
+
+        assertEquals(0, rateLimiter.tryAcquire(TENANT_ID, "search"));
+        assertEquals(1, rateLimiter.trackedUsers());
+    }
+
+    @Test
+    void sweepsAFullTableInlineAtMostOncePerInterval() {
+        RateLimiter rateLimiter = rateLimiter(2);
+        rateLimiter.tryAcquire(TENANT_ID, "search");
+        rateLimiter.tryAcquire(LANDLORD_ID, "search");
+
+        // Both buckets have refilled, but the table was swept less than an interval ago
+        clock.addAndGet(2 * SECOND);
+        assertEquals(0, rateLimiter.tryAcquire(3L, "search"));
+        assertEquals(2, rateLimiter.trackedUsers());
+
+        clock.addAndGet(60 * SECOND);
+        assertEquals(0, rateLimiter.tryAcquire(3L, "search"));
+        assertEquals(1, rateLimiter.trackedUsers());
+
+        // Full again: the next new user goes untracked without another sweep
+        rateLimiter.tryAcquire(4L, "search");
+        clock.addAndGet(2 * SECOND);
+        assertEquals(0, rateLimiter.tryAcquire(5L, "search"));
+        assertEquals(2, rateLimiter.trackedUsers());
+    }
+
+    @Test
+    void rejectsLimitsWithoutADefault() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLimits(Map.of("search", Map.of("tenant", limit(1, 1))));
+
+        assertThrows(IllegalStateException.class,
+                () -> new RateLimiter(properties, id -> Optional.empty(), new SimpleMeterRegistry(), clock::get));
+    }
+
+    private RateLimiter rateLimiter(int maxUsers) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxUsers(maxUsers);
+        properties.setLimits(Map.of(
+                "search", Map.of("default", limit(3, 1), "landlord", limit(10, 5)),
+                "send-message", Map.of("default", limit(5, 1))));
+        return new RateLimiter(properties, id -> {
+            roleLookups.incrementAndGet();
+            if (id >= UNKNOWN_ID) {
+                return Optional.empty();
+            }
+            return Optional.of(id == LANDLORD_ID ? UserRole.LANDLORD : UserRole.TENANT);
+        }, new SimpleMeterRegistry(), clock::get);
+    }
+
+    private static RateLimitProperties.Limit limit(int capacity, double refillPerSecond) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(capacity);
+        limit.setRefillPerSecond(refillPerSecond);
+        return limit;
+    }
+}
@@ -0,0 +1,234 @@
+package com.link2lease.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.link2lease.enums.MessageType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every MessagRepository query against a seeded local Postgres (16 or later, for GENERIC_PLAN)
+ * and fails if the plan reads the messages table with a sequential scan. The mailbox lists must also not
+ * gather a user's whole mailbox through a BitmapOr, and a page of them must not sort more than a Limit let through.
+ * The SQL Hibernate generates is captured and explained as a generic plan, so the check covers the
+ * plan a prepared statement would get for any parameter values rather than for the ones used here.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.link2lease.repository.RecordingStatementInspector",
+        // Otherwise SQL translated before a test runs is reused without passing the inspector again
+        "spring.jpa.properties.hibernate.query.plan_cache_enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@Transactional
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MessageRepositoryQueryPlanTest {
+    private static final Set<String> LARGE_TABLES = Set.of("messages");
+    private static final Set<String> KEYSET_LISTS = Set.of(
+            "findAllUserMessages", "findBySenderIdOrderBySentAtDesc", "findByRecipientIdOrderBySentAtDesc",
+            "findByRecipientIdAndIsReadFalseOrderBySentAtDesc", "streamAllUserMessages", "streamSentMessages",
+            "streamReceivedMessages", "streamUnreadMessages");
+    private static final int USERS = 1_000;
+    private static final int MESSAGES = 200_000;
+    private static final long FIRST_USER_ID = 10_000;
+    private static final long FIRST_MESSAGE_ID = 1_000_000;
+
+    private static final long USER_ID = FIRST_USER_ID + 1;
+    private static final long OTHER_USER_ID = FIRST_USER_ID + 8;
+    private static final long PROPERTY_ID = FIRST_USER_ID + 5;
+    private static final long LEASE_ID = FIRST_USER_ID + 3;
+    private static final long MESSAGE_ID = FIRST_MESSAGE_ID + 5_000;
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private MessagRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    // $n placeholders only survive the simple query protocol, so plans are explained over a separate connection
+    private JdbcTemplate explainJdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, full_name, email, role) " +
+                "SELECT g, 'Plan User ' || g, 'plan' || g || '@example.com', 1 " +
+                "FROM generate_series(?, ?) g", FIRST_USER_ID, FIRST_USER_ID + USERS - 1);
+        jdbcTemplate.update("INSERT INTO properties (id, title, rent_amount, available_from, landlord_id) " +
+                "SELECT g, 'Plan Property ' || g, 1500, CURRENT_DATE, ? + g % 50 " +
+                "FROM generate_series(?, ?) g", FIRST_USER_ID, FIRST_USER_ID, FIRST_USER_ID + 99);
+        jdbcTemplate.update("INSERT INTO leases (id, created_at, property_id, tenant_id, status) " +
+                "SELECT g, current_date, ? + g % 100, ? + 500 + g % 500, 'ACTIVE' " +
+                "FROM generate_series(?, ?) g", FIRST_USER_ID, FIRST_USER_ID, FIRST_USER_ID, FIRST_USER_ID + 499);
+        // Replies point 500 messages back, every fifth message is about a property and every third about a lease
+        jdbcTemplate.update("INSERT INTO messages (id, sender_id, recipient_id, property_id, lease_id, content, subject, " +
+                "message_type, is_read, sent_at, parent_message_id) " +
+                "SELECT ? + g, ? + g % ?, ? + (g * 7 + 1) % ?, " +
+                "CASE WHEN g % 5 = 0 THEN ? + g % 100 END, " +
+                "CASE WHEN g % 3 = 0 THEN ? + g % 500 END, " +
+                "'Plan message ' || g || ' about the water heater', 'Subject ' || g % 50, " +
+                "(ARRAY['GENERAL', 'PROPERTY_INQUIRY', 'LEASE_REQUEST', 'LEASE_UPDATE', 'MAINTENANCE_REQUEST', 'PAYMENT_RELATED', 'COMPLAINT'])[1 + g % 7], " +
+                "g % 4 <> 0, timestamp '2024-01-01' + g * interval '1 minute', " +
+                "CASE WHEN g > 500 AND g % 10 = 0 THEN ? + g - 500 END " +
+                "FROM generate_series(1, ?) g",
+                FIRST_MESSAGE_ID, FIRST_USER_ID, USERS, FIRST_USER_ID, USERS,
+                FIRST_USER_ID, FIRST_USER_ID, FIRST_MESSAGE_ID, MESSAGES);
+        jdbcTemplate.execute("ANALYZE users, properties, leases, messages");
+
+        String url = dataSourceProperties.getUrl();
+        explainJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                url + (url.contains("?") ? "&" : "?") + "preferQueryMode=simple",
+                dataSourceProperties.getUsername(), dataSourceProperties.getPassword()));
+    }
+
+    static Stream<Arguments> queries() {
+        List<Arguments> queries = new ArrayList<>();
+        add(queries, "findAllUserMessages", r -> r.findAllUserMessages(USER_ID, NOW, Long.MAX_VALUE, 51));
+        add(queries, "findBySenderIdOrderBySentAtDesc", r -> r.findBySenderIdOrderBySentAtDesc(USER_ID, NOW, Long.MAX_VALUE, Limit.of(50)));
+        add(queries, "findByRecipientIdOrderBySentAtDesc", r -> r.findByRecipientIdOrderBySentAtDesc(USER_ID, NOW, Long.MAX_VALUE, Limit.of(50)));
+        add(queries, "findByRecipientIdAndIsReadFalseOrderBySentAtDesc", r -> r.findByRecipientIdAndIsReadFalseOrderBySentAtDesc(USER_ID, NOW, Long.MAX_VALUE, Limit.of(50)));
+        add(queries, "countByRecipientIdAndIsReadFalse", r -> r.countByRecipientIdAndIsReadFalse(USER_ID));
+        add(queries, "findConversationBetweenUsers", r -> r.findConversationBetweenUsers(USER_ID, OTHER_USER_ID));
+        add(queries, "findConversationPartners", r -> r.findConversationPartners(USER_ID));
+        add(queries, "findLatestBetweenUsers", r -> r.findLatestBetweenUsers(USER_ID, OTHER_USER_ID, Limit.of(1)));
+        add(queries, "countBySenderIdAndRecipientIdAndIsReadFalse", r -> r.countBySenderIdAndRecipientIdAndIsReadFalse(USER_ID, OTHER_USER_ID));
+        add(queries, "findByPropertyIdOrderBySentAtDesc", r -> r.findByPropertyIdOrderBySentAtDesc(PROPERTY_ID));
+        add(queries, "streamAllUserMessages", r -> r.streamAllUserMessages(USER_ID, NOW, Long.MAX_VALUE).close());
+        add(queries, "streamSentMessages", r -> r.streamSentMessages(USER_ID, NOW, Long.MAX_VALUE).close());
+        add(queries, "streamReceivedMessages", r -> r.streamReceivedMessages(USER_ID, NOW, Long.MAX_VALUE).close());
+        add(queries, "streamUnreadMessages", r -> r.streamUnreadMessages(USER_ID, NOW, Long.MAX_VALUE).close());
+        add(queries, "streamConversation", r -> r.streamConversation(USER_ID, OTHER_USER_ID).close());
+        add(queries, "streamPropertyMessages", r -> r.streamPropertyMessages(PROPERTY_ID).close());
+        add(queries, "findByLeaseIdOrderBySentAtDesc", r -> r.findByLeaseIdOrderBySentAtDesc(LEASE_ID));
+        add(queries, "findByParentMessageIdOrderBySentAtAsc", r -> r.findByParentMessageIdOrderBySentAtAsc(MESSAGE_ID));
+        add(queries, "markMessagesAsRead", r -> r.markMessagesAsRead(new Long[]{MESSAGE_ID, MESSAGE_ID + 1}, USER_ID, NOW));
+        add(queries, "markReadUpTo", r -> r.markReadUpTo(USER_ID, NOW, MESSAGE_ID, NOW));
+        add(queries, "markAllMessagesFromUserAsRead", r -> r.markAllMessagesFromUserAsRead(OTHER_USER_ID, USER_ID, NOW));
+        add(queries, "findByMessageTypeAndRecipientIdOrderBySentAtDesc", r -> r.findByMessageTypeAndRecipientIdOrderBySentAtDesc(MessageType.COMPLAINT, USER_ID));
+        add(queries, "findThreadRows", r -> r.findThreadRows(MESSAGE_ID, USER_ID, 50, 51, 501));
+        add(queries, "markReadReceipts", r -> r.markReadReceipts(new Long[]{MESSAGE_ID, MESSAGE_ID + 1}, new LocalDateTime[]{NOW, NOW}));
+        add(queries, "searchUserMessageIds", r -> r.searchUserMessageIds(USER_ID, "water & heat:*", 21, 0));
+        add(queries, "findAllWithDetailsByIdIn", r -> r.findAllWithDetailsByIdIn(List.of(MESSAGE_ID, MESSAGE_ID + 1)));
+        add(queries, "countBySenderId", r -> r.countBySenderId(USER_ID));
+        add(queries, "countByRecipientId", r -> r.countByRecipientId(USER_ID));
+        return queries.stream();
+    }
+
+    private static void add(List<Arguments> queries, String method, Consumer<MessagRepository> call) {
+        queries.add(Arguments.of(method, call));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void queryAvoidsSequentialScansOnLargeTables(String method, Consumer<MessagRepository> call) throws Exception {
+        List<String> statements;
+        RecordingStatementInspector.start();
+        try {
+            call.accept(messageRepository);
+        } finally {
+            statements = RecordingStatementInspector.stop();
+        }
+        assertFalse(statements.isEmpty(), method + " sent no SQL");
+
+        for (String sql : statements) {
+            JsonNode plan = explain(sql);
+            List<String> scanned = new ArrayList<>();
+            collectSequentialScans(plan, scanned);
+            assertTrue(scanned.isEmpty(), method + " sequentially scans " + scanned + "\n" + sql + "\n" + plan.toPrettyString());
+
+            if (KEYSET_LISTS.contains(method)) {
+                List<String> unordered = new ArrayList<>();
+                collectUnorderedReads(plan, "Limit".equals(plan.path("Node Type").asText()), unordered);
+                assertTrue(unordered.isEmpty(), method + " does not read in index order: " + unordered + "\n" + sql + "\n" + plan.toPrettyString());
+            }
+        }
+    }
+
+    @Test
+    void everyRepositoryQueryHasAPlanCheck() {
+        Set<String> declared = Arrays.stream(MessagRepository.class.getDeclaredMethods())
+                .map(Method::getName)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Set<String> checked = queries()
+                .map(arguments -> (String) arguments.get()[0])
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        assertEquals(declared, checked, "Add new MessagRepository methods to queries()");
+    }
+
+    private JsonNode explain(String sql) throws Exception {
+        // GENERIC_PLAN takes $n placeholders instead of JDBC's ?
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        String json = explainJdbcTemplate.queryForObject("EXPLAIN (GENERIC_PLAN, FORMAT JSON) " + numbered, String.class);
+        return objectMapper.readTree(json).get(0).get("Plan");
+    }
+
+    private void collectSequentialScans(JsonNode node, List<String> scanned) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())
+                && LARGE_TABLES.contains(node.path("Relation Name").asText())) {
+            scanned.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSequentialScans(child, scanned);
+        }
+    }
+
+    // A BitmapOr gathers every matching row before any can be returned. So does a sort, incremental or not, unless a Limit below it
+    // caps its input, which only matters for a page; a stream reads everything either way.
+    private void collectUnorderedReads(JsonNode node, boolean page, List<String> unordered) {
+        String type = node.path("Node Type").asText();
+        if ("BitmapOr".equals(type) || page && type.endsWith("Sort") && !containsLimit(node)) {
+            unordered.add(type);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectUnorderedReads(child, page, unordered);
+        }
+    }
+
+    private boolean containsLimit(JsonNode node) {
+        for (JsonNode child : node.path("Plans")) {
+            if ("Limit".equals(child.path("Node Type").asText()) || containsLimit(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
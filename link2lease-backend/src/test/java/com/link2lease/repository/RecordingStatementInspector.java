@@ -0,0 +1,33 @@
+package com.link2lease.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate hook that remembers the SQL the current thread sends while recording is on.
+ * Registered through hibernate.session_factory.statement_inspector in the query plan test.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+    private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+    static void start() {
+        RECORDED.set(new ArrayList<>());
+    }
+
+    static List<String> stop() {
+        List<String> statements = RECORDED.get();
+        RECORDED.remove();
+        return statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = RECORDED.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,365 @@
+package com.link2lease.search;
+
+import com.link2lease.enums.PropertySort;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PropertyColumnsTest {
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 1);
+    private static final String[] WORDS = {"Loft", "Garden", "Studio", "Harbour", "Oak", "Main"};
+
+    @Test
+    void matchesEveryCriterionLikeTheSqlFilter() {
+        Map<Long, Integer> slotById = new HashMap<>();
+        PropertyColumns columns = PropertyColumns.build(List.of(
+                new IndexedProperty(1L, "Sunny Loft", "1 Main Street", 1200, TODAY.minusDays(3), 10L, 51.5, -0.12),
+                new IndexedProperty(2L, "Garden Flat", "2 Oak Avenue", 900, TODAY.plusDays(30), 10L, 51.51, -0.1),
+                new IndexedProperty(3L, "Harbour STUDIO", "3 Main Street", 1500, null, 11L, 51.6, 0.2),
+                new IndexedProperty(4L, null, null, 1200, TODAY, null, null, null)), slotById);
+
+        assertArrayEquals(new long[]{1, 2, 3, 4}, columns.search(filter(null, null, null, null, null, null)));
+        assertArrayEquals(new long[]{1, 4}, columns.search(filter(null, null, 1200.0, 1200.0, null, null)));
+        // No availability date never counts as available
+        assertArrayEquals(new long[]{1, 4}, columns.search(filter(null, null, null, null, TODAY, null)));
+        assertArrayEquals(new long[]{1, 2}, columns.search(filter(null, null, null, null, null, 10L)));
+        assertArrayEquals(new long[]{3}, columns.search(filter("studio", "main st", null, null, null, null)));
+        assertArrayEquals(new long[]{}, columns.search(filter(null, null, 1300.0, 1000.0, null, null)));
+        // A radius of 3 km around the first property reaches the second, 1.8 km away; no location is never near
+        GeoFilter near = GeoFilter.of(51.5, -0.12, 3.0, null, null, null, null);
+        assertArrayEquals(new long[]{1, 2}, columns.search(new PropertyFilter(null, null, null, null, null, null, near)));
+        GeoFilter box = GeoFilter.of(null, null, null, 51.505, -0.2, 51.7, 0.3);
+        assertArrayEquals(new long[]{2, 3}, columns.search(new PropertyFilter(null, null, null, null, null, null, box)));
+    }
+
+    @Test
+    void agreesWithABruteForceScanThroughUpdatesDeletesAndCompactions() {
+        Random random = new Random(42);
+        Map<Long, IndexedProperty> expected = new TreeMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            expected.put(id, randomProperty(random, id));
+        }
+        Map<Long, Integer> slotById = new HashMap<>();
+        PropertyColumns columns = PropertyColumns.build(expected.values(), slotById);
+
+        long nextId = 2_001;
+        for (int round = 0; round < 40; round++) {
+            // Batches of creates, updates and deletes, enough over the rounds to force several compactions
+            Map<Long, IndexedProperty> changes = new LinkedHashMap<>();
+            for (int i = 0; i < 150; i++) {
+                int action = random.nextInt(3);
+                long id = action == 0 ? nextId++ : 1 + random.nextInt((int) nextId - 1);
+                IndexedProperty property = action == 2 ? null : randomProperty(random, id);
+                changes.put(id, property);
+                if (property == null) {
+                    expected.remove(id);
+                } else {
+                    expected.put(id, property);
+                }
+            }
+            columns = columns.withChanges(changes, slotById);
+            assertEquals(expected.size(), columns.liveCount());
+
+            for (int query = 0; query < 20; query++) {
+                PropertyFilter filter = randomFilter(random);
+                long[] brute = expected.values().stream()
+                        .filter(filter::matches)
+                        .mapToLong(IndexedProperty::id)
+                        .toArray();
+                assertArrayEquals(brute, columns.search(filter), filter.toString());
+            }
+        }
+    }
+
+    @Test
+    void pagesWalkEveryMatchInSortOrder() {
+        Random random = new Random(7);
+        Map<Long, IndexedProperty> properties = new TreeMap<>();
+        for (long id = 1; id <= 1_500; id++) {
+            properties.put(id, randomProperty(random, id));
+        }
+        PropertyColumns columns = PropertyColumns.build(properties.values(), new HashMap<>());
+
+        for (PropertySort sort : PropertySort.values()) {
+            for (int query = 0; query < 10; query++) {
+                PropertyFilter filter = randomFilter(random);
+                Comparator<IndexedProperty> order = Comparator.<IndexedProperty>comparingDouble(property -> sortKey(property, sort))
+                        .thenComparingLong(IndexedProperty::id);
+                long[] expected = properties.values().stream()
+                        .filter(filter::matches)
+                        .sorted(sort.isDescending() ? order.reversed() : order)
+                        .mapToLong(IndexedProperty::id)
+                        .toArray();
+
+                List<Long> walked = new ArrayList<>();
+                double afterKey = sort.isDescending() ? Double.MAX_VALUE : -Double.MAX_VALUE;
+                long afterId = sort.isDescending() ? Long.MAX_VALUE : 0;
+                IndexPage page;
+                do {
+                    page = columns.page(filter, sort, afterKey, afterId, 7);
+                    assertEquals(expected.length, page.total());
+                    for (long id : page.ids()) {
+                        walked.add(id);
+                    }
+                    if (page.ids().length > 0) {
+                        afterKey = page.sortKeys()[page.ids().length - 1];
+                        afterId = page.ids()[page.ids().length - 1];
+                    }
+                } while (page.hasMore());
+
+                assertArrayEquals(expected, walked.stream().mapToLong(Long::longValue).toArray(), sort + " " + filter);
+            }
+        }
+    }
+
+    @Test
+    void nearestPagesWalkEveryMatchByDistance() {
+        Random random = new Random(11);
+        Map<Long, IndexedProperty> properties = new TreeMap<>();
+        for (long id = 1; id <= 3_000; id++) {
+            properties.put(id, randomProperty(random, id));
+        }
+        Map<Long, Integer> slotById = new HashMap<>();
+        PropertyColumns columns = PropertyColumns.build(properties.values(), slotById);
+        // Some properties only reach the index through changes, so they are outside the sorted views
+        Map<Long, IndexedProperty> changes = new LinkedHashMap<>();
+        for (long id = 3_001; id <= 3_100; id++) {
+            changes.put(id, randomProperty(random, id));
+        }
+        properties.putAll(changes);
+        columns = columns.withChanges(changes, slotById);
+
+        for (int query = 0; query < 40; query++) {
+            PropertyFilter base = randomFilter(random);
+            PropertyFilter filter = new PropertyFilter(base.title(), base.address(), base.minRent(),
+                    base.maxRent(), base.availableFrom(), base.landlordId(), randomGeo(random));
+            GeoFilter geo = filter.geo();
+            long[] expected = properties.values().stream()
+                    .filter(filter::matches)
+                    .sorted(Comparator.<IndexedProperty>comparingDouble(property -> geo.distanceKm(property.latitude(), property.longitude()))
+                            .thenComparingLong(IndexedProperty::id))
+                    .mapToLong(IndexedProperty::id)
+                    .toArray();
+
+            List<Long> walked = new ArrayList<>();
+            double afterDistance = -1;
+            long afterId = 0;
+            IndexPage page;
+            do {
+                page = columns.nearest(filter, afterDistance, afterId, 9);
+                assertEquals(expected.length, page.total());
+                for (long id : page.ids()) {
+                    walked.add(id);
+                }
+                if (page.ids().length > 0) {
+                    afterDistance = page.sortKeys()[page.ids().length - 1];
+                    afterId = page.ids()[page.ids().length - 1];
+                }
+            } while (page.hasMore());
+
+            assertArrayEquals(expected, walked.stream().mapToLong(Long::longValue).toArray(), filter.toString());
+        }
+    }
+
+    @Test
+    void scoresSimilarityLikePgTrgmWordSimilarity() {
+        PropertyColumns columns = PropertyColumns.build(List.of(
+                new IndexedProperty(1L, "Two Words", "12 Harbour Road", 900, TODAY, 10L, null, null),
+                new IndexedProperty(2L, "Garden Flat", "1 Harbor Rd.", 900, TODAY, 10L, null, null),
+                new IndexedProperty(3L, "Sword Loft", "Oak Avenue", 900, TODAY, 10L, null, null)), new HashMap<>());
+
+        // word_similarity('word', 'two words') is 0.8 in the pg_trgm documentation
+        IndexPage titles = columns.similar(TextField.TITLE, "Word", 0.5, 10);
+        assertArrayEquals(new long[]{1, 3}, titles.ids());
+        assertEquals(0.8, titles.sortKeys()[0], 1e-9);
+        assertEquals(0.6, titles.sortKeys()[1], 1e-9);
+
+        // A typo still finds both harbours, the exact spelling first
+        IndexPage addresses = columns.similar(TextField.ADDRESS, "harbour", 0.5, 10);
+        assertArrayEquals(new long[]{1, 2}, addresses.ids());
+        assertEquals(1.0, addresses.sortKeys()[0], 1e-9);
+        assertEquals(0.625, addresses.sortKeys()[1], 1e-9);
+        assertArrayEquals(new long[]{1}, columns.similar(TextField.ADDRESS, "harbour", 0.9, 10).ids());
+    }
+
+    @Test
+    void similarAgreesWithScoringEveryTextThroughChanges() {
+        Random random = new Random(5);
+        Map<Long, IndexedProperty> properties = new TreeMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            properties.put(id, randomProperty(random, id));
+        }
+        Map<Long, Integer> slotById = new HashMap<>();
+        PropertyColumns columns = PropertyColumns.build(properties.values(), slotById);
+        Map<Long, IndexedProperty> changes = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            long id = 1 + random.nextInt(2_200);
+            IndexedProperty property = random.nextInt(4) == 0 ? null : randomProperty(random, id);
+            changes.put(id, property);
+        }
+        changes.forEach((id, property) -> {
+            if (property == null) {
+                properties.remove(id);
+            } else {
+                properties.put(id, property);
+            }
+        });
+        columns = columns.withChanges(changes, slotById);
+
+        String[] queries = {"harbor", "gardn studio", "main road", "lofts", "oak", "stud", "ain"};
+        for (TextField field : TextField.values()) {
+            for (String query : queries) {
+                double minSimilarity = 0.3 + random.nextInt(5) * 0.1;
+                long[] trigrams = TrigramIndex.trigrams(query);
+                Map<Long, Double> scores = new HashMap<>();
+                for (IndexedProperty property : properties.values()) {
+                    String text = field == TextField.TITLE ? property.title() : property.address();
+                    double score = (double) TrigramIndex.shared(trigrams, TrigramIndex.trigrams(text.toLowerCase())) / trigrams.length;
+                    if (score >= minSimilarity - 1e-9) {
+                        scores.put(property.id(), score);
+                    }
+                }
+                long[] expected = scores.entrySet().stream()
+                        .sorted(Map.Entry.<Long, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()).reversed())
+                        .limit(25)
+                        .mapToLong(Map.Entry::getKey)
+                        .toArray();
+
+                IndexPage page = columns.similar(field, query, minSimilarity, 25);
+                assertArrayEquals(expected, page.ids(), field + " " + query + " " + minSimilarity);
+                assertEquals(scores.size(), page.total());
+            }
+        }
+    }
+
+    @Test
+    void facetsCountEveryMatchThroughChanges() {
+        // Enough slots for several bitmap chunks, with rent buckets and months dense enough for bitmap containers
+        Random random = new Random(11);
+        Map<Long, IndexedProperty> properties = new TreeMap<>();
+        for (long id = 1; id <= 80_000; id++) {
+            properties.put(id, randomProperty(random, id));
+        }
+        Map<Long, Integer> slotById = new HashMap<>();
+        PropertyColumns columns = PropertyColumns.build(properties.values(), slotById);
+
+        long nextId = 80_001;
+        for (int round = 0; round < 5; round++) {
+            for (int query = 0; query < 8; query++) {
+                PropertyFilter filter = query == 0 ? filter(null, null, null, null, null, null) : randomFilter(random);
+                List<IndexedProperty> matches = properties.values().stream().filter(filter::matches).toList();
+                PropertyFacets facets = columns.page(filter, PropertySort.NEWEST, 0, Long.MAX_VALUE, 5, true).facets();
+
+                assertFacet(counts(matches, property -> PropertyFacets.rentBucket(property.rentAmount())), facets.rent(), filter);
+                assertFacet(counts(matches, property -> property.availableFrom() != null ? PropertyFacets.month(property.availableFrom()) : null),
+                        facets.availableMonth(), filter);
+                Map<Long, Integer> landlords = counts(matches, IndexedProperty::landlordId);
+                Map<Long, Integer> topLandlords = new LinkedHashMap<>();
+                landlords.entrySet().stream()
+                        .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                        .limit(PropertyFacets.MAX_LANDLORDS)
+                        .forEach(entry -> topLandlords.put(entry.getKey(), entry.getValue()));
+                assertFacet(topLandlords, facets.landlord(), filter);
+            }
+
+            // Appended slots are counted from the columns until a compaction puts them in the bitmaps,
+            // including landlords and months no indexed slot has
+            Map<Long, IndexedProperty> changes = new LinkedHashMap<>();
+            for (int i = 0; i < 2_000; i++) {
+                long id = random.nextBoolean() ? nextId++ : 1 + random.nextInt((int) nextId - 1);
+                IndexedProperty property = random.nextInt(4) == 0 ? null : randomProperty(random, id);
+                if (property != null && random.nextInt(20) == 0) {
+                    property = new IndexedProperty(id, property.title(), property.address(), property.rentAmount() * 3,
+                            TODAY.plusYears(1), 1_000L + random.nextInt(3), property.latitude(), property.longitude());
+                }
+                changes.put(id, property);
+                if (property == null) {
+                    properties.remove(id);
+                } else {
+                    properties.put(id, property);
+                }
+            }
+            columns = columns.withChanges(changes, slotById);
+        }
+    }
+
+    private static double sortKey(IndexedProperty property, PropertySort sort) {
+        return switch (sort) {
+            case NEWEST -> 0;
+            case RENT_ASC, RENT_DESC -> property.rentAmount();
+            case AVAILABLE_FROM -> property.availableFrom() != null ? property.availableFrom().toEpochDay() : PropertyColumns.NO_DATE;
+        };
+    }
+
+    private static Map<Long, Integer> counts(List<IndexedProperty> properties, Function<IndexedProperty, Long> value) {
+        Map<Long, Integer> counts = new TreeMap<>();
+        for (IndexedProperty property : properties) {
+            Long key = value.apply(property);
+            if (key != null) {
+                counts.merge(key, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static void assertFacet(Map<Long, Integer> expected, FacetCounts actual, PropertyFilter filter) {
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).toArray(), actual.values(), filter.toString());
+        assertArrayEquals(expected.values().stream().mapToInt(Integer::intValue).toArray(), actual.counts(), filter.toString());
+    }
+
+    private static IndexedProperty randomProperty(Random random, long id) {
+        // Spread over a city-sized area, about 45 by 55 km
+        boolean located = random.nextInt(10) != 0;
+        return new IndexedProperty(id,
+                WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)],
+                random.nextInt(100) + " " + WORDS[random.nextInt(WORDS.length)] + " Road",
+                500 + random.nextInt(40) * 50,
+                random.nextInt(10) == 0 ? null : TODAY.plusDays(random.nextInt(120) - 60),
+                random.nextInt(10) == 0 ? null : (long) random.nextInt(30),
+                located ? 51.3 + random.nextDouble() * 0.4 : null,
+                located ? -0.5 + random.nextDouble() * 0.8 : null);
+    }
+
+    private static PropertyFilter randomFilter(Random random) {
+        Double minRent = random.nextBoolean() ? 500.0 + random.nextInt(40) * 50 : null;
+        Double maxRent = random.nextBoolean() ? 500.0 + random.nextInt(40) * 50 : null;
+        LocalDate availableFrom = random.nextBoolean() ? TODAY.plusDays(random.nextInt(120) - 60) : null;
+        Long landlordId = random.nextInt(4) == 0 ? (long) random.nextInt(30) : null;
+        String title = random.nextInt(4) == 0 ? WORDS[random.nextInt(WORDS.length)].toLowerCase() : null;
+        String address = random.nextInt(4) == 0 ? WORDS[random.nextInt(WORDS.length)].substring(1) : null;
+        GeoFilter geo = random.nextInt(4) == 0 ? randomGeo(random) : null;
+        return new PropertyFilter(title, address, minRent, maxRent, availableFrom, landlordId, geo);
+    }
+
+    // A radius around a point, a bounding box or both, mostly inside the area randomProperty uses
+    private static GeoFilter randomGeo(Random random) {
+        int shape = random.nextInt(3);
+        Double latitude = shape != 1 ? 51.25 + random.nextDouble() * 0.5 : null;
+        Double longitude = shape != 1 ? -0.55 + random.nextDouble() * 0.9 : null;
+        Double radiusKm = shape != 1 ? 0.5 + random.nextDouble() * 15 : null;
+        if (shape == 0) {
+            return GeoFilter.of(latitude, longitude, radiusKm, null, null, null, null);
+        }
+        double south = 51.3 + random.nextDouble() * 0.3;
+        double west = -0.5 + random.nextDouble() * 0.6;
+        return GeoFilter.of(latitude, longitude, radiusKm, south, west,
+                south + random.nextDouble() * 0.2, west + random.nextDouble() * 0.3);
+    }
+
+    private static PropertyFilter filter(String title, String address, Double minRent, Double maxRent,
+                                         LocalDate availableFrom, Long landlordId) {
+        return new PropertyFilter(title, address, minRent, maxRent, availableFrom, landlordId);
+    }
+}
@@ -0,0 +1,100 @@
+package com.link2lease.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PropertySuggestionsTest {
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 1);
+    private static final String[] WORDS = {"Harbour", "Harbor", "Hart", "Harvest", "Main", "Maine", "Mall", "Oak", "Oaklands", "Road", "Rd"};
+
+    @Test
+    void completesTheLastWordWithAvailablePropertiesFirst() {
+        PropertySuggestions suggestions = PropertySuggestions.build(List.of(
+                property(1, "Harbour Loft", "1 Harbour Road", TODAY.plusDays(10)),
+                property(2, "Harbour View", "2 Harbour Road", TODAY.plusDays(10)),
+                property(3, "Hart House", "3 Hart Street", TODAY.minusDays(1)),
+                property(4, "Harvest Flat", "4 Harvest Lane", null)), TODAY);
+
+        assertEquals(List.of(new Suggestion("hart", 1, 1), new Suggestion("harbour", 0, 2), new Suggestion("harvest", 0, 1)),
+                suggestions.complete(TextField.ADDRESS, "HAR", 10));
+        assertEquals(List.of(new Suggestion("harbour", 0, 2)), suggestions.complete(TextField.TITLE, "Sunny harb", 10));
+        assertEquals(List.of(new Suggestion("hart", 1, 1)), suggestions.complete(TextField.ADDRESS, "har", 1));
+        assertEquals(List.of(new Suggestion("road", 0, 2)), suggestions.complete(TextField.ADDRESS, "12 Harbour r", 10));
+        // Nothing is being typed after a space, and house numbers of one digit are not words
+        assertEquals(List.of(), suggestions.complete(TextField.ADDRESS, "harbour ", 10));
+        assertEquals(List.of(), suggestions.complete(TextField.ADDRESS, "1", 10));
+    }
+
+    @Test
+    void agreesWithCountingEveryPropertyThroughChanges() {
+        Random random = new Random(3);
+        Map<Long, IndexedProperty> properties = new TreeMap<>();
+        for (long id = 1; id <= 500; id++) {
+            properties.put(id, randomProperty(random, id));
+        }
+        PropertySuggestions suggestions = PropertySuggestions.build(properties.values(), TODAY);
+
+        for (int round = 0; round < 50; round++) {
+            List<IndexedProperty> removed = new ArrayList<>();
+            List<IndexedProperty> added = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                long id = 1 + random.nextInt(600);
+                IndexedProperty previous = properties.remove(id);
+                if (previous != null) {
+                    removed.add(previous);
+                }
+                if (random.nextInt(3) != 0) {
+                    IndexedProperty next = randomProperty(random, id);
+                    properties.put(id, next);
+                    added.add(next);
+                }
+            }
+            suggestions = suggestions.withChanges(removed, added);
+
+            for (String prefix : new String[]{"h", "ha", "har", "harb", "harbour", "harbours", "m", "mai", "o", "oaklands", "oaklandz", "r", "x"}) {
+                for (TextField field : TextField.values()) {
+                    assertEquals(expected(properties, field, prefix), suggestions.complete(field, prefix, 10), field + " " + prefix);
+                }
+            }
+        }
+    }
+
+    private static List<Suggestion> expected(Map<Long, IndexedProperty> properties, TextField field, String prefix) {
+        Map<String, int[]> counts = new HashMap<>();
+        for (IndexedProperty property : properties.values()) {
+            boolean available = property.availableFrom() != null && !property.availableFrom().isAfter(TODAY);
+            for (String word : PropertySuggestions.words(field == TextField.TITLE ? property.title() : property.address())) {
+                if (word.startsWith(prefix)) {
+                    int[] wordCounts = counts.computeIfAbsent(word, w -> new int[2]);
+                    wordCounts[0] += available ? 1 : 0;
+                    wordCounts[1]++;
+                }
+            }
+        }
+        return counts.entrySet().stream()
+                .map(entry -> new Suggestion(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                .sorted(Suggestion.RANKING)
+                .limit(10)
+                .toList();
+    }
+
+    private static IndexedProperty randomProperty(Random random, long id) {
+        return property(id,
+                WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)],
+                random.nextInt(20) + " " + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)],
+                random.nextInt(5) == 0 ? null : TODAY.plusDays(random.nextInt(60) - 30));
+    }
+
+    private static IndexedProperty property(long id, String title, String address, LocalDate availableFrom) {
+        return new IndexedProperty(id, title, address, 1000, availableFrom, 1L, null, null);
+    }
+}
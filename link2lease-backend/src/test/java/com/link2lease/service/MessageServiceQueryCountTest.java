@@ -0,0 +1,96 @@
+package com.link2lease.service;
+
+import com.link2lease.dto.ConversationDto;
+import com.link2lease.dto.MessageCreateDto;
+import com.link2lease.enums.MessageType;
+import com.link2lease.enums.UserRole;
+import com.link2lease.model.User;
+import com.link2lease.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MessageServiceQueryCountTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void conversationsUseFixedNumberOfStatementsRegardlessOfPartnerCount() {
+        User smallInbox = seedConversations("small", 2);
+        User largeInbox = seedConversations("large", 40);
+
+        long smallStatements = countStatements(smallInbox.getId(), 2);
+        long largeStatements = countStatements(largeInbox.getId(), 40);
+
+        assertEquals(smallStatements, largeStatements);
+        assertEquals(2, largeStatements); // user check + one aggregate query
+    }
+
+    @Test
+    void conversationsReportUnreadCountPerPartner() {
+        User owner = seedConversations("unread", 3);
+
+        List<ConversationDto> conversations = messageService.getUserConversations(owner.getId());
+
+        assertEquals(3, conversations.size());
+        for (ConversationDto conversation : conversations) {
+            // Each partner sent two messages and received one reply
+            assertEquals(2L, conversation.getUnreadCount());
+            assertEquals(owner.getId(), conversation.getLatestMessage().getSenderId());
+        }
+    }
+
+    private long countStatements(Long userId, int expectedConversations) {
+        statistics.clear();
+        List<ConversationDto> conversations = messageService.getUserConversations(userId);
+        assertEquals(expectedConversations, conversations.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User seedConversations(String prefix, int partners) {
+        User owner = userRepository.save(new User(prefix + " Owner", prefix + ".owner@test.com",
+                "password", UserRole.LANDLORD, "0000000000"));
+
+        for (int i = 0; i < partners; i++) {
+            User partner = userRepository.save(new User(prefix + " Tenant " + i, prefix + ".tenant" + i + "@test.com",
+                    "password", UserRole.TENANT, "0000000000"));
+            messageService.sendMessage(partner.getId(), message(owner.getId(), "Question " + i));
+            messageService.sendMessage(partner.getId(), message(owner.getId(), "Follow-up " + i));
+            messageService.sendMessage(owner.getId(), message(partner.getId(), "Reply " + i));
+        }
+        return owner;
+    }
+
+    private MessageCreateDto message(Long recipientId, String content) {
+        MessageCreateDto dto = new MessageCreateDto();
+        dto.setRecipientId(recipientId);
+        dto.setContent(content);
+        dto.setMessageType(MessageType.GENERAL);
+        return dto;
+    }
+}
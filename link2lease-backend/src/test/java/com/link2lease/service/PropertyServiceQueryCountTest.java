@@ -0,0 +1,105 @@
+package com.link2lease.service;
+
+import com.link2lease.dto.PropertyDto;
+import com.link2lease.enums.PropertySort;
+import com.link2lease.enums.SearchConsistency;
+import com.link2lease.enums.UserRole;
+import com.link2lease.model.Property;
+import com.link2lease.model.User;
+import com.link2lease.repository.PropertyRepository;
+import com.link2lease.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PropertyServiceQueryCountTest {
+    private static final int LANDLORDS = 30;
+    private static final LocalDate AVAILABLE_FROM = LocalDate.of(2020, 1, 1);
+
+    @Autowired
+    private PropertyService propertyService;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listEndpointsLoadLandlordsInTheSameStatement() {
+        List<User> landlords = seedLandlords("lists");
+        String title = "lists Loft";
+
+        // One statement each however many landlords the rows have
+        assertStatements(1, () -> propertyService.getAvailablePropertiesFromDate(AVAILABLE_FROM));
+        assertStatements(1, () -> propertyService.getPropertiesByLandlord(landlords.get(0)));
+        assertStatements(1, () -> propertyService.getAllProperties(PropertySort.NEWEST, null, 200, false).getItems());
+        assertStatements(1, () -> propertyService.searchPropertiesByTitle(title, PropertySort.RENT_ASC, null, 200, false).getItems());
+        assertStatements(1, () -> propertyService.searchPropertiesWithFilters(title, null, 0, 10_000, null, null,
+                SearchConsistency.STRONG, PropertySort.AVAILABLE_FROM, null, 200, false, false).getItems());
+        assertEquals(2 * LANDLORDS, propertyService.searchPropertiesByTitle(title, PropertySort.NEWEST, null, 200, false).getItems().size());
+
+        List<PropertyDto> properties = propertyService.getPropertiesByLandlord(landlords.get(0));
+        assertEquals(landlords.get(0).getEmail(), properties.get(0).getLandlordEmail());
+    }
+
+    @Test
+    void cachedLookupsLoadOnceWithTheirLandlord() {
+        User landlord = seedLandlords("cached").get(LANDLORDS - 1);
+        Long propertyId = propertyRepository.findByLandlordId(landlord.getId()).get(0).getId();
+
+        assertStatements(1, () -> propertyService.getPropertiesByLandlordId(landlord.getId()));
+        assertStatements(0, () -> propertyService.getPropertiesByLandlordId(landlord.getId()));
+        statistics.clear();
+        assertEquals(landlord.getFullName(), propertyService.getPropertyById(propertyId).orElseThrow().getLandlordName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertStatements(0, () -> List.of(propertyService.getPropertyById(propertyId).orElseThrow()));
+    }
+
+    private void assertStatements(long expected, Supplier<List<PropertyDto>> endpoint) {
+        statistics.clear();
+        List<PropertyDto> properties = endpoint.get();
+        assertEquals(expected, statistics.getPrepareStatementCount());
+        for (PropertyDto property : properties) {
+            assertEquals(property.getLandlordId() != null, property.getLandlordName() != null);
+        }
+    }
+
+    private List<User> seedLandlords(String prefix) {
+        List<User> landlords = new ArrayList<>();
+        for (int i = 0; i < LANDLORDS; i++) {
+            User landlord = userRepository.save(new User(prefix + " Landlord " + i, prefix + ".landlord" + i + "@test.com",
+                    "password", UserRole.LANDLORD, "0000000000"));
+            for (int j = 0; j < 2; j++) {
+                propertyRepository.save(new Property(prefix + " Loft " + i + "-" + j, "Seeded", i + " Test Street",
+                        1000 + 10 * i + j, AVAILABLE_FROM.minusDays(i), landlord));
+            }
+            landlords.add(landlord);
+        }
+        return landlords;
+    }
+}